@@ -1,12 +1,46 @@
+javac target_decoy/ParallelGzipChannel.java
+javac target_decoy/CompressedIO.java
+javac target_decoy/ProteinStore.java
+javac target_decoy/ProteinTable.java
+javac target_decoy/FastaRecord.java
+javac target_decoy/FastaReader.java
+javac target_decoy/FastaWriter.java
+javac target_decoy/ParallelFastaWriter.java
+javac target_decoy/FastaIndex.java
+javac target_decoy/IndexedFastaReader.java
+javac target_decoy/ParallelFastaParser.java
 javac target_decoy/DictionaryGenerator.java
+javac target_decoy/AminoAcidHistogram.java
 javac target_decoy/Counter.java
 javac target_decoy/Database.java
 javac target_decoy/DecoyGenerator.java
+javac target_decoy/AminoAcidSampler.java
 javac target_decoy/RandomDecoy.java
+javac target_decoy/KmerCodec.java
+javac target_decoy/KmerTable.java
+javac target_decoy/DenseKmerTable.java
+javac target_decoy/SparseKmerTable.java
 javac target_decoy/DeBruijnDecoy.java
 javac target_decoy/ReverseDecoy.java
+javac target_decoy/ShuffleDecoy.java
+javac target_decoy/MassTable.java
+javac target_decoy/Modification.java
+javac target_decoy/ModificationEnumerator.java
+javac target_decoy/Protease.java
+javac target_decoy/Digester.java
 javac target_decoy/Peptide.java
 javac target_decoy/TrypsinPeptide.java
+javac target_decoy/PeptideIndex.java
+javac target_decoy/PeptideStore.java
+javac target_decoy/BloomFilter.java
+javac target_decoy/CollisionDetector.java
+javac target_decoy/FdrCalculator.java
+javac target_decoy/FdrCalculatorCheck.java
 javac target_decoy/PeptideGenerator.java
+javac target_decoy/DecoySink.java
+javac target_decoy/DecoyPipeline.java
+javac target_decoy/StreamingDecoyPipeline.java
 javac target_decoy/TargetDecoy.java
 javac target_decoy/TargetDecoySim.java
+javac target_decoy/Benchmark.java
+javac target_decoy/DeterminismCheck.java
@@ -0,0 +1,132 @@
+package target_decoy;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts amino acids (A to Z) in a primitive long[26], index 0 = 'A' ... index 25 = 'Z'.
+ * Residues are counted straight off CharSequence / byte[] input with no boxing; lowercase
+ * letters are counted as uppercase and any other character is ignored.
+ * A histogram is not thread safe: parallel code counts into one histogram per thread
+ * and merges them (see count).
+ * @author junghyey
+ */
+public final class AminoAcidHistogram {
+
+	private final long[] counts = new long[26];
+
+	/**
+	 * Counts the amino acids of all the proteins of a protein sequence data.
+	 * @param proteinSeqs	protein sequences (ex: proteinSeqDict.values())
+	 * @param parallel		count on all cores (one histogram per worker, merged at the end) if true
+	 * @return histogram	amino acid count of all the given proteins
+	 */
+	public static AminoAcidHistogram count(Collection<? extends CharSequence> proteinSeqs, boolean parallel) {
+		if (parallel)
+			return proteinSeqs.parallelStream()
+							  .collect(AminoAcidHistogram::new, AminoAcidHistogram::add, AminoAcidHistogram::merge);
+
+		AminoAcidHistogram histogram = new AminoAcidHistogram();
+		for (CharSequence proteinSeq: proteinSeqs)
+			histogram.add(proteinSeq);
+		return histogram;
+	}//count
+
+	/**
+	 * Counts the amino acids of all the proteins of a sequence dictionary
+	 * (straight off the residue array if the dictionary is a ProteinStore).
+	 * @param proteinSeqDict	protein sequence data [proteinID : protein sequence]
+	 * @param parallel			count on all cores if true (ignored for a ProteinStore)
+	 * @return histogram		amino acid count of all the given proteins
+	 */
+	public static AminoAcidHistogram count(Map<String, String> proteinSeqDict, boolean parallel) {
+		if (proteinSeqDict instanceof ProteinStore)
+			return ((ProteinStore) proteinSeqDict).count();
+		return count(proteinSeqDict.values(), parallel);
+	}//count
+
+	/**
+	 * Counts every amino acid of a sequence.
+	 * @param aminoAcidSeq	amino acid sequence
+	 */
+	public void add(CharSequence aminoAcidSeq) {
+		int length = aminoAcidSeq.length();
+		for (int position = 0; position < length; position++) {
+			int index = (aminoAcidSeq.charAt(position) | 0x20) - 'a'; //lowercase -> index
+			if (index >= 0 && index < 26)
+				counts[index]++;
+		}//for position
+	}//add
+
+	/**
+	 * Counts every amino acid of a part of a byte (ASCII) array.
+	 * @param residues	amino acid sequence(s) as ASCII bytes
+	 * @param offset	first residue to count
+	 * @param length	number of residues to count
+	 */
+	public void add(byte[] residues, int offset, int length) {
+		for (int position = offset; position < offset + length; position++) {
+			int index = (residues[position] | 0x20) - 'a';
+			if (index >= 0 && index < 26)
+				counts[index]++;
+		}//for position
+	}//add
+
+	/**
+	 * Adds the counts of another histogram to this histogram.
+	 * @param other		another histogram (not modified)
+	 */
+	public void merge(AminoAcidHistogram other) {
+		for (int index = 0; index < 26; index++)
+			counts[index] += other.counts[index];
+	}//merge
+
+	/**
+	 * @param aminoAcid		amino acid (A to Z)
+	 * @return count		the number of the given amino acid, 0 if it is not a letter
+	 */
+	public long get(char aminoAcid) {
+		int index = (aminoAcid | 0x20) - 'a';
+		return (index >= 0 && index < 26) ? counts[index] : 0;
+	}//get
+
+	/**
+	 * @return total	the total number of amino acids counted
+	 */
+	public long getTotal() {
+		long total = 0;
+		for (long count: counts)
+			total += count;
+		return total;
+	}//getTotal
+
+	/**
+	 * @return counts	copy of the counts, index 0 = 'A' ... index 25 = 'Z'
+	 */
+	public long[] toArray() {
+		return counts.clone();
+	}//toArray
+
+	/**
+	 * Converts the histogram to a dictionary (for reports).
+	 * @return aminoCountDict	a dictionary [keys]: amino acid (alphabet A to Z)
+	 * 										 [value]: count
+	 */
+	public Map<String, Long> toMap() {
+		Map<String, Long> aminoCountDict = new HashMap<String, Long>();
+		for (int index = 0; index < 26; index++)
+			aminoCountDict.put(Character.toString((char) ('A' + index)), counts[index]);
+		return aminoCountDict;
+	}//toMap
+
+	/**
+	 * Calculates a proportion (decimal) of each amino acid (A-Z).
+	 * @param sigFig		  decides how many decimal places to keep
+	 * @return proportionDict see Counter.getProportion
+	 */
+	public Map<String, Double> getProportion(int sigFig) {
+		return Counter.getProportion(toMap(), getTotal(), sigFig);
+	}//getProportion
+
+}//end of class
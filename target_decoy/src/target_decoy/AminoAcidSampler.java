@@ -0,0 +1,152 @@
+package target_decoy;
+
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Draws amino acids at random, in proportion to a reference amino acid count.
+ * Implemented with Walker's alias method (Vose's construction): the tables are built once,
+ * and every draw costs O(1) (one random index + one random double), with no boxing.
+ * Instances are immutable and can be shared between threads.
+ * @author junghyey
+ */
+public final class AminoAcidSampler {
+
+	private final char[]   aminoAcids;  //amino acids with a count > 0
+	private final long[]   counts;      //reference count of each amino acid (same order)
+	private final double[] probability; //probability of keeping column i (else take alias[i])
+	private final int[]    alias;
+
+	/**
+	 * Constructor for the class
+	 * @param referenceCountDict	a dictionary [Key: amino acid (single letter), Value: count]
+	 * 								(entries with a count of 0 are ignored)
+	 * @throws IllegalArgumentException if a key is not a single letter, a count is negative,
+	 * 									or there is no amino acid with a count > 0
+	 */
+	public AminoAcidSampler(Map<String, Integer> referenceCountDict) {
+		this(toArray(referenceCountDict));
+	}//AminoAcidSampler
+
+	/**
+	 * Constructor for the class
+	 * @param aminoCount	count of each amino acid, index 0 = 'A' ... index 25 = 'Z'
+	 * @throws IllegalArgumentException if a count is negative or there is no amino acid with a count > 0
+	 */
+	public AminoAcidSampler(long[] aminoCount) {
+
+		/* 1. Keep the amino acids with a count > 0*/
+		int size = 0;
+		long total = 0;
+		for (int index = 0; index < aminoCount.length; index++) {
+			if (aminoCount[index] < 0)
+				throw new IllegalArgumentException("Received a negative count for " + (char) ('A' + index));
+			if (aminoCount[index] > 0) {
+				size++;
+				total += aminoCount[index];
+			}//if
+		}//for index
+
+		/*Enforce the precondition: There is at least one amino acid to draw*/
+		if (size == 0)
+			throw new IllegalArgumentException("There is no amino acid with a count > 0");
+
+		aminoAcids  = new char[size];
+		counts      = new long[size];
+		probability = new double[size];
+		alias       = new int[size];
+
+		int column = 0;
+		for (int index = 0; index < aminoCount.length; index++) {
+			if (aminoCount[index] > 0) {
+				aminoAcids[column] = (char) ('A' + index);
+				counts[column] = aminoCount[index];
+				column++;
+			}//if
+		}//for index
+
+		/* 2. Build the alias table (Vose): split the columns into small (< 1) and large (>= 1) ones*/
+		double[] scaled = new double[size];
+		int[] small = new int[size];
+		int[] large = new int[size];
+		int smallCount = 0;
+		int largeCount = 0;
+		for (column = 0; column < size; column++) {
+			scaled[column] = (double) counts[column] * size / total;
+			if (scaled[column] < 1.0)
+				small[smallCount++] = column;
+			else
+				large[largeCount++] = column;
+		}//for column
+
+		/* Fill every small column with the excess of a large column*/
+		while (smallCount > 0 && largeCount > 0) {
+			int less = small[--smallCount];
+			int more = large[--largeCount];
+			probability[less] = scaled[less];
+			alias[less] = more;
+
+			scaled[more] = (scaled[more] + scaled[less]) - 1.0;
+			if (scaled[more] < 1.0)
+				small[smallCount++] = more;
+			else
+				large[largeCount++] = more;
+		}//while
+
+		/* Remaining columns are full (rounding errors only)*/
+		while (largeCount > 0)
+			probability[large[--largeCount]] = 1.0;
+		while (smallCount > 0)
+			probability[small[--smallCount]] = 1.0;
+	}//AminoAcidSampler
+
+	/**
+	 * Draws a single amino acid.
+	 * @param random	random number generator to use
+	 * @return amino acid (one of 'A', 'C' ....etc..)
+	 */
+	public char sample(SplittableRandom random) {
+		int column = random.nextInt(aminoAcids.length);
+		return (random.nextDouble() < probability[column]) ? aminoAcids[column] : aminoAcids[alias[column]];
+	}//sample
+
+	/**
+	 * Creates a sampler over the same reference count without the given amino acids.
+	 * (Equivalent to drawing again until the amino acid is not one of the excluded ones)
+	 * @param excluded	amino acids that can no longer be drawn (ex: 'K', 'R')
+	 * @return sampler	a new AminoAcidSampler
+	 */
+	public AminoAcidSampler without(char... excluded) {
+		long[] aminoCount = getCount();
+		for (char aminoAcid: excluded) {
+			if (aminoAcid >= 'A' && aminoAcid <= 'Z')
+				aminoCount[aminoAcid - 'A'] = 0;
+		}//for aminoAcid
+		return new AminoAcidSampler(aminoCount);
+	}//without
+
+	/**
+	 * @return aminoCount	copy of the reference count, index 0 = 'A' ... index 25 = 'Z'
+	 */
+	public long[] getCount() {
+		long[] aminoCount = new long[26];
+		for (int column = 0; column < aminoAcids.length; column++)
+			aminoCount[aminoAcids[column] - 'A'] = counts[column];
+		return aminoCount;
+	}//getCount
+
+	/**
+	 * Converts a count dictionary to a count array (index 0 = 'A' ... index 25 = 'Z').
+	 */
+	private static long[] toArray(Map<String, Integer> referenceCountDict) {
+		long[] aminoCount = new long[26];
+		for (Map.Entry<String, Integer> entry: referenceCountDict.entrySet()) {
+			String aminoAcid = entry.getKey();
+			if (aminoAcid.length() != 1 || aminoAcid.charAt(0) < 'A' || aminoAcid.charAt(0) > 'Z')
+				throw new IllegalArgumentException("Invalid amino acid: " + aminoAcid);
+			aminoCount[aminoAcid.charAt(0) - 'A'] = entry.getValue();
+		}//for entry
+		return aminoCount;
+	}//toArray
+
+}//end of class
@@ -0,0 +1,243 @@
+package target_decoy;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Micro benchmarks of the database creation stages, run over a synthetic proteome:
+ * parse (DictionaryGenerator), random, deBruijn, reverse & shuffle (generateDecoy of every protein),
+ * digest (TrypsinPeptide.cleaveAllProtein) and write (Database.generateDatabase).
+ * Every stage runs WARMUP_ITERATIONS times (JIT warm up), then is measured MEASURED_ITERATIONS times;
+ * the report gives the median throughput (residues per second) and the allocation per residue
+ * (bytes allocated by all the threads, including the parallel stream & ParallelFastaWriter workers;
+ * threads ending during a run are not counted; -1 if the JVM cannot measure it).
+ *
+ * Working directory: target_decoy>src
+ * java target_decoy/Benchmark [number of proteins (1 to MAX_PROTEINS, default 10000)] [report CSV file]
+ * (large proteomes need a large heap, ex: java -Xmx64g target_decoy/Benchmark 10000000)
+ * The synthetic proteins have MIN_LENGTH to MAX_LENGTH residues (200 on average), so that
+ * MAX_PROTEINS proteins still fit in a ProteinStore (ProteinStore.MAX_RESIDUES).
+ * @author junghyey
+ */
+public class Benchmark {
+
+	public final static int DEFAULT_PROTEINS = 10000;
+	public final static int MAX_PROTEINS = 10000000; //~2.0e9 residues
+	public final static int MIN_LENGTH = 50;   //residues per synthetic protein
+	public final static int MAX_LENGTH = 350;
+	public final static int WARMUP_ITERATIONS = 2;
+	public final static int MEASURED_ITERATIONS = 5;
+	private final static long SEED = 42;
+
+	/**
+	 * Human (Swiss-Prot) amino acid composition per mille, index 0 = 'A' ... index 25 = 'Z'
+	 */
+	private final static long[] HUMAN_COMPOSITION = {
+		70, 0, 23, 47, 71, 36, 66, 26, 43, 0, 57, 100, 21, 36, 0, 63, 48, 56, 83, 54, 0, 60, 12, 0, 27, 0
+	};
+
+	/**
+	 * A benchmarked stage. Returns a checksum of its result, so that the work cannot be optimized away.
+	 */
+	private interface Stage {
+		long run() throws IOException;
+	}//Stage
+
+	private final Map<String, double[]> results = new LinkedHashMap<String, double[]>(); //stage -> [residues/s, bytes/residue]
+	private final com.sun.management.ThreadMXBean threadBean;
+	private long checksum;
+
+	/**
+	 * Constructor for the class
+	 */
+	public Benchmark() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+			threadBean = (com.sun.management.ThreadMXBean) bean;
+			threadBean.setThreadAllocatedMemoryEnabled(true);
+		}//if
+		else
+			threadBean = null;
+	}//Benchmark
+
+	/*main method starts here*/
+	public static void main(String[] args) throws IOException {
+		int proteinCount = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PROTEINS;
+
+		/*Enforce the precondition: The proteome fits in a ProteinStore*/
+		if (proteinCount < 1 || proteinCount > MAX_PROTEINS)
+			throw new IllegalArgumentException("The number of proteins must be between 1 and " + MAX_PROTEINS
+											   + " (" + MIN_LENGTH + " to " + MAX_LENGTH + " residues per protein, at most "
+											   + ProteinStore.MAX_RESIDUES + " residues): " + proteinCount);
+		Benchmark benchmark = new Benchmark();
+
+		/* 1. Synthetic proteome */
+		File targetFile = File.createTempFile("benchmark_target", ".fasta");
+		File outputFile = File.createTempFile("benchmark_target_decoy", ".fasta");
+		targetFile.deleteOnExit();
+		outputFile.deleteOnExit();
+		long residues = writeProteome(targetFile.getPath(), proteinCount, SEED);
+		if (residues > ProteinStore.MAX_RESIDUES)
+			throw new IllegalArgumentException("The synthetic proteome has too many residues (" + residues
+											   + " > " + ProteinStore.MAX_RESIDUES + "), use fewer proteins");
+
+		/* 2. Stages */
+		benchmark.measure("parse", residues, () -> new DictionaryGenerator(targetFile.getPath()).getSeqDict().size());
+
+		DictionaryGenerator targetData = new DictionaryGenerator(targetFile.getPath());
+		Map<String, String> targetSeqDict  = targetData.getSeqDict();
+		Map<String, String> targetInfoDict = targetData.getInfoDict();
+		AminoAcidSampler sampler = new AminoAcidSampler(AminoAcidHistogram.count(targetSeqDict.values(), true).toArray());
+
+		RandomDecoy random = new RandomDecoy(targetSeqDict, targetInfoDict);
+		random.setSeed(SEED);
+		random.setSampler(sampler);
+		benchmark.measure("random", residues, () -> generateAll(random));
+
+		DeBruijnDecoy deBruijn = new DeBruijnDecoy(targetSeqDict, targetInfoDict);
+		deBruijn.setSeed(SEED);
+		deBruijn.setSampler(sampler);
+		deBruijn.prepare();
+		benchmark.measure("deBruijn", residues, () -> generateAll(deBruijn));
+
+		ReverseDecoy reverse = new ReverseDecoy(targetSeqDict, targetInfoDict);
+		benchmark.measure("reverse", residues, () -> generateAll(reverse));
+
+		ShuffleDecoy shuffle = new ShuffleDecoy(targetSeqDict, targetInfoDict);
+		shuffle.setSeed(SEED);
+		benchmark.measure("shuffle", residues, () -> generateAll(shuffle));
+
+		benchmark.measure("digest", residues, () -> {
+			TrypsinPeptide peptides = new TrypsinPeptide(targetSeqDict);
+			peptides.cleaveAllProtein();
+			return peptides.getPeptideDict().size();
+		});
+
+		reverse.generateDecoyDict();
+		reverse.generateDecoyInfo();
+		benchmark.measure("write", residues * 2, () -> {
+			Database.generateDatabase(outputFile.getPath(), targetSeqDict, reverse.getDseqDict(),
+									  targetInfoDict, reverse.getDinfoDict());
+			return outputFile.length();
+		});
+
+		/* 3. Report */
+		System.out.printf("%d proteins, %d residues (checksum %d)%n", proteinCount, residues, benchmark.checksum);
+		System.out.printf("%-10s %16s %16s%n", "stage", "residues/s", "bytes/residue");
+		for (Map.Entry<String, double[]> entry: benchmark.results.entrySet())
+			System.out.printf("%-10s %16.0f %16.2f%n", entry.getKey(), entry.getValue()[0], entry.getValue()[1]);
+		if (args.length > 1)
+			benchmark.writeReport(args[1]);
+	}//main
+
+	/**
+	 * Runs a stage WARMUP_ITERATIONS + MEASURED_ITERATIONS times and records its median
+	 * throughput & allocation.
+	 * @param name		name of the stage
+	 * @param residues	residues processed by one run of the stage
+	 * @param stage		the stage
+	 * @throws IOException	if the stage fails
+	 */
+	public void measure(String name, long residues, Stage stage) throws IOException {
+		for (int iteration = 0; iteration < WARMUP_ITERATIONS; iteration++)
+			checksum += stage.run();
+
+		double[] throughput = new double[MEASURED_ITERATIONS];
+		double[] allocation = new double[MEASURED_ITERATIONS];
+		for (int iteration = 0; iteration < MEASURED_ITERATIONS; iteration++) {
+			Map<Long, Long> allocated = allocatedBytes();
+			long start = System.nanoTime();
+			checksum += stage.run();
+			long elapsed = System.nanoTime() - start;
+			throughput[iteration] = residues * 1e9 / Math.max(1, elapsed);
+			allocation[iteration] = (threadBean == null) ? -1 : (double) allocatedSince(allocated) / residues;
+		}//for iteration
+		results.put(name, new double[] {median(throughput), median(allocation)});
+	}//measure
+
+	/**
+	 * Writes the results (CSV: stage, residues/s, bytes/residue).
+	 * @param fileName	full file path of the report
+	 * @throws IOException	if writing fails
+	 */
+	public void writeReport(String fileName) throws IOException {
+		Map<String, String> reportDict = new LinkedHashMap<String, String>();
+		for (Map.Entry<String, double[]> entry: results.entrySet())
+			reportDict.put(entry.getKey(), String.format("%.0f,%.2f", entry.getValue()[0], entry.getValue()[1]));
+		Database.writeCSV(fileName, reportDict);
+	}//writeReport
+
+	/**
+	 * Writes a synthetic proteome (human amino acid composition, MIN_LENGTH to MAX_LENGTH residues per protein).
+	 * @param fileName		full file path of the FASTA file
+	 * @param proteinCount	number of proteins
+	 * @param seed			seed of the sequences
+	 * @return the total number of residues
+	 * @throws IOException	if writing fails
+	 */
+	public static long writeProteome(String fileName, int proteinCount, long seed) throws IOException {
+		AminoAcidSampler sampler = new AminoAcidSampler(HUMAN_COMPOSITION);
+		SplittableRandom random = new SplittableRandom(seed);
+		StringBuilder proteinSeq = new StringBuilder(MAX_LENGTH);
+		long residues = 0;
+		try (FastaWriter writer = FastaWriter.open(fileName)) {
+			for (int protein = 0; protein < proteinCount; protein++) {
+				int length = MIN_LENGTH + random.nextInt(MAX_LENGTH - MIN_LENGTH + 1);
+				proteinSeq.setLength(0);
+				proteinSeq.append('M');
+				for (int position = 1; position < length; position++)
+					proteinSeq.append(sampler.sample(random));
+				writer.write(String.format(">sp|B%07d|BENCH%d_HUMAN Benchmark protein %d OS=Homo sapiens", protein, protein, protein),
+							 proteinSeq);
+				residues += length;
+			}//for protein
+		}//try
+		return residues;
+	}//writeProteome
+
+	private static long generateAll(DecoyGenerator generator) {
+		long length = 0;
+		for (int protein = 0; protein < generator.getTseqDict().size(); protein++)
+			length += generator.generateDecoy(protein).length(); //the target data is a ProteinTable
+		return length;
+	}//generateAll
+
+	/**
+	 * @return allocated	bytes allocated so far by each live thread [Key: thread id, Value: bytes]
+	 */
+	private Map<Long, Long> allocatedBytes() {
+		Map<Long, Long> allocated = new HashMap<Long, Long>();
+		if (threadBean != null) {
+			long[] threadIDs = threadBean.getAllThreadIds();
+			long[] bytes = threadBean.getThreadAllocatedBytes(threadIDs);
+			for (int thread = 0; thread < threadIDs.length; thread++)
+				if (bytes[thread] >= 0) //-1: the thread ended
+					allocated.put(threadIDs[thread], bytes[thread]);
+		}//if
+		return allocated;
+	}//allocatedBytes
+
+	/**
+	 * @param before	allocatedBytes before the run
+	 * @return bytes allocated by all the live threads since before (threads started since count from 0)
+	 */
+	private long allocatedSince(Map<Long, Long> before) {
+		long bytes = 0;
+		for (Map.Entry<Long, Long> thread: allocatedBytes().entrySet())
+			bytes += thread.getValue() - before.getOrDefault(thread.getKey(), 0L);
+		return bytes;
+	}//allocatedSince
+
+	private static double median(double[] values) {
+		double[] sorted = values.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}//median
+
+}//end of class
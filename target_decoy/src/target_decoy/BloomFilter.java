@@ -0,0 +1,102 @@
+package target_decoy;
+
+/**
+ * Bloom filter of peptide sequences (residues [start, end) of a CharSequence, no String needed).
+ * mightContain never misses an added peptide, and wrongly answers true for other peptides with
+ * (about) the false positive rate the filter was sized for. Bits are kept in a long[];
+ * the hashes of a peptide are derived from one 64 bit hash (double hashing).
+ * Adding is not thread safe, mightContain can be called from any number of threads.
+ * @author junghyey
+ */
+public class BloomFilter {
+
+	private final long[] bits;
+	private final long	 bitCount;
+	private final int	 hashCount;
+
+	/**
+	 * Constructor for the class (sized for the expected number of peptides & false positive rate)
+	 * @param expectedCount			expected number of peptides (> 0)
+	 * @param falsePositiveRate		wanted false positive rate (0 < rate < 1)
+	 * @throws IllegalArgumentException if an argument is out of range
+	 */
+	public BloomFilter(long expectedCount, double falsePositiveRate) {
+
+		/*Enforce the precondition: expectedCount > 0, 0 < falsePositiveRate < 1*/
+		if (expectedCount <= 0)
+			throw new IllegalArgumentException("The expected count is <= 0: " + expectedCount);
+		if (falsePositiveRate <= 0 || falsePositiveRate >= 1)
+			throw new IllegalArgumentException("The false positive rate should be in (0, 1): " + falsePositiveRate);
+
+		/* m = -n ln(p) / ln(2)^2 bits, k = m / n ln(2) hashes */
+		long optimalBits = (long) Math.ceil(-expectedCount * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		bits	  = new long[(int) Math.min(Integer.MAX_VALUE - 8, (optimalBits + 63) >>> 6)];
+		bitCount  = (long) bits.length << 6;
+		hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedCount * Math.log(2)));
+	}//BloomFilter
+
+	/**
+	 * Adds a peptide.
+	 * @param sequence	protein (or peptide) amino acid sequence
+	 * @param start		position of the first residue of the peptide
+	 * @param end		position after the last residue of the peptide
+	 */
+	public void add(CharSequence sequence, int start, int end) {
+		long hash = hash(sequence, start, end);
+		int  first  = (int) hash;
+		int  second = (int) (hash >>> 32);
+		for (int index = 0; index < hashCount; index++) {
+			long bit = Math.floorMod(first + (long) index * second, bitCount);
+			bits[(int) (bit >>> 6)] |= 1L << bit;
+		}//for index
+	}//add
+
+	/**
+	 * @param sequence	protein (or peptide) amino acid sequence
+	 * @param start		position of the first residue of the peptide
+	 * @param end		position after the last residue of the peptide
+	 * @return false if the peptide was never added, true if it (probably) was
+	 */
+	public boolean mightContain(CharSequence sequence, int start, int end) {
+		long hash = hash(sequence, start, end);
+		int  first  = (int) hash;
+		int  second = (int) (hash >>> 32);
+		for (int index = 0; index < hashCount; index++) {
+			long bit = Math.floorMod(first + (long) index * second, bitCount);
+			if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0)
+				return false;
+		}//for index
+		return true;
+	}//mightContain
+
+	/**
+	 * 64 bit FNV-1a hash of the residues, with a final mix (murmur3 finalizer).
+	 */
+	private static long hash(CharSequence sequence, int start, int end) {
+		long hash = 0xcbf29ce484222325L;
+		for (int position = start; position < end; position++) {
+			hash ^= sequence.charAt(position);
+			hash *= 0x100000001b3L;
+		}//for position
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		return hash;
+	}//hash
+
+	//***********************************************Getters***********************************************
+	/**
+	 * @return bitCount		number of bits of the filter
+	 */
+	public long getBitCount() {
+		return bitCount;
+	}//getBitCount
+
+	/**
+	 * @return hashCount	number of bits set per peptide
+	 */
+	public int getHashCount() {
+		return hashCount;
+	}//getHashCount
+
+}//end of class
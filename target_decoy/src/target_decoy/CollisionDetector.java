@@ -0,0 +1,264 @@
+package target_decoy;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Finds decoy peptides that are also target peptides (target-decoy collisions inflate the FDR).
+ * 1. indexTargets	 digests the target proteins into a BloomFilter
+ * 2. check			 digests each decoy protein, decoy peptides hitting the filter become candidates
+ * 					 (optionally regenerating the decoy protein while it has candidates)
+ * 3. verify		 digests the target proteins again and keeps the candidates that really are
+ * 					 target peptides (exact hash set of the few candidates)
+ * Regeneration is decided on filter hits, before the exact check, so a filter false positive still
+ * regenerates a decoy protein for nothing: with regeneration on, the filter is sized for
+ * REGENERATION_FALSE_POSITIVE_RATE to make such regenerations rarer (not to eliminate them), and
+ * verify also checks the hits that triggered each regeneration, so that the regenerations on
+ * unconfirmed filter hits are reported separately.
+ * Only the filter and the candidates are held in memory, never the full target peptide set.
+ * A detector is not thread safe.
+ * @author junghyey
+ */
+public class CollisionDetector {
+
+	public final static int    DEFAULT_MIN_LENGTH = 7; //shorter peptides are shared by chance
+	public final static double FALSE_POSITIVE_RATE = 0.001;
+	public final static double REGENERATION_FALSE_POSITIVE_RATE = 1e-6; //about 2x the filter size of FALSE_POSITIVE_RATE
+
+	private final Digester digester;
+	private BloomFilter targetFilter;
+	private int maxAttempts; //regeneration attempts per decoy protein (0: never regenerate)
+
+	/**
+	 * Statistics & results
+	 */
+	private long targetPeptideCount;
+	private long decoyPeptideCount;
+	private long candidateCount;    //decoy peptides hitting the filter
+	private int  regeneratedCount;  //decoy proteins regenerated
+	private final Map<String, List<String>> candidates = new HashMap<String, List<String>>(); //peptide -> decoy proteinIDs
+	private final Set<String> collisions = new HashSet<String>(); //verified colliding peptides
+	private final Map<String, List<String>> triggers = new HashMap<String, List<String>>(); //hit of a replaced decoy protein -> regenerated decoy proteinIDs
+	private final Set<String> confirmedTriggers = new HashSet<String>(); //verified triggers
+	private boolean verified;
+
+	/**
+	 * Constructor for the class (tryptic peptides of at least DEFAULT_MIN_LENGTH residues)
+	 */
+	public CollisionDetector() {
+		this(new Digester(Protease.TRYPSIN));
+		digester.setLengthRange(DEFAULT_MIN_LENGTH, Integer.MAX_VALUE);
+	}//CollisionDetector
+
+	/**
+	 * Constructor for the class
+	 * @param digester		digestion rules of the peptides to compare (ex: TrypsinPeptide.getDigester())
+	 */
+	public CollisionDetector(Digester digester) {
+		this.digester = digester;
+	}//CollisionDetector
+
+	/**
+	 * Digests the target proteins into the Bloom filter (sized from a first counting pass,
+	 * for REGENERATION_FALSE_POSITIVE_RATE if maxAttempts > 0, else for FALSE_POSITIVE_RATE).
+	 * @param targetSeqs	target protein sequences (ex: targetSeqDict.values())
+	 */
+	public void indexTargets(Collection<? extends CharSequence> targetSeqs) {
+		long[] count = new long[1];
+		for (CharSequence targetSeq: targetSeqs)
+			digester.digest(0, targetSeq, (protein, start, end) -> count[0]++);
+
+		BloomFilter filter = new BloomFilter(Math.max(1, count[0]),
+											 (maxAttempts > 0) ? REGENERATION_FALSE_POSITIVE_RATE : FALSE_POSITIVE_RATE);
+		for (CharSequence targetSeq: targetSeqs)
+			digester.digest(0, targetSeq, (protein, start, end) -> filter.add(targetSeq, start, end));
+		targetFilter = filter;
+		targetPeptideCount = count[0];
+	}//indexTargets
+
+	/**
+	 * Checks a decoy protein against the target peptides. If regeneration is on and the generator
+	 * can regenerate, the decoy protein is generated again (up to maxAttempts times) while it has
+	 * candidate collisions (filter hits: a false positive also triggers a regeneration).
+	 * @param generator		the generator of the decoy protein
+	 * @param proteinID		target proteinID of the decoy protein
+	 * @param targetSeq		target protein sequence (regenerated decoy proteins are generated from it)
+	 * @param decoySeq		decoy protein sequence
+	 * @return decoySeq		the decoy protein sequence to keep
+	 * @throws IllegalStateException if indexTargets was not called
+	 */
+	public String check(DecoyGenerator generator, String proteinID, CharSequence targetSeq, String decoySeq) {
+		if (targetFilter == null)
+			throw new IllegalStateException("The target peptides are not indexed");
+
+		String decoyID = DecoyGenerator.DECOY_PREFIX.substring(1) + proteinID;
+		if (maxAttempts > 0 && generator.canRegenerate()) {
+			List<String> hits = getFilterHits(decoySeq);
+			for (int attempt = 1; attempt <= maxAttempts && !hits.isEmpty(); attempt++) {
+				
+				/*Remember why the decoy protein was replaced (confirmed or not by verify)*/
+				for (String peptide: hits)
+					triggers.computeIfAbsent(peptide, trigger -> new ArrayList<String>(1)).add(decoyID);
+				decoySeq = generator.generateDecoy(proteinID, targetSeq, attempt);
+				hits = getFilterHits(decoySeq);
+				if (attempt == 1)
+					regeneratedCount++;
+			}//for attempt
+		}//if
+
+		/*Record the candidates of the kept decoy protein*/
+		String kept = decoySeq;
+		digester.digest(0, kept, (protein, start, end) -> {
+			decoyPeptideCount++;
+			if (targetFilter.mightContain(kept, start, end)) {
+				candidateCount++;
+				candidates.computeIfAbsent(kept.substring(start, end), peptide -> new ArrayList<String>(1)).add(decoyID);
+			}//if
+		});
+		verified = false;
+		return decoySeq;
+	}//check
+
+	/**
+	 * Keeps the candidates (and the regeneration triggers) that really are target peptides (exact check).
+	 * @param targetSeqs	target protein sequences used in indexTargets
+	 */
+	public void verify(Collection<? extends CharSequence> targetSeqs) {
+		collisions.clear();
+		confirmedTriggers.clear();
+		if (!candidates.isEmpty() || !triggers.isEmpty()) {
+			for (CharSequence targetSeq: targetSeqs) {
+				digester.digest(0, targetSeq, (protein, start, end) -> {
+					String peptide = targetSeq.subSequence(start, end).toString();
+					if (candidates.containsKey(peptide))
+						collisions.add(peptide);
+					if (triggers.containsKey(peptide))
+						confirmedTriggers.add(peptide);
+				});
+			}//for targetSeq
+		}//if
+		verified = true;
+	}//verify
+
+	/**
+	 * Summarizes the collisions (for reports).
+	 * @return summaryDict	a dictionary [Key: statistic, Value: number]
+	 * @throws IllegalStateException if verify was not called after the last check
+	 */
+	public Map<String, Number> getSummary() {
+		requireVerified();
+		Map<String, Number> summaryDict = new HashMap<String, Number>();
+		summaryDict.put("target_peptides", targetPeptideCount);
+		summaryDict.put("decoy_peptides", decoyPeptideCount);
+		summaryDict.put("filter_candidates", candidateCount);
+		summaryDict.put("colliding_peptides", collisions.size());
+		summaryDict.put("colliding_decoy_proteins", getProteinCollisions().size());
+		summaryDict.put("regenerated_decoy_proteins", regeneratedCount);
+		int confirmed = countConfirmedRegenerations();
+		summaryDict.put("regenerated_on_confirmed_collisions", confirmed);
+		summaryDict.put("regenerated_on_unconfirmed_filter_hits", regeneratedCount - confirmed);
+		summaryDict.put("collision_rate", (decoyPeptideCount == 0) ? 0.0 : (double) countCollidingDecoyPeptides() / decoyPeptideCount);
+		return summaryDict;
+	}//getSummary
+
+	/**
+	 * @return collisionDict	a dictionary [Key: decoy proteinID ("XXX_" + proteinID),
+	 * 											 Value: number of its peptides found in the target]
+	 * @throws IllegalStateException if verify was not called after the last check
+	 */
+	public Map<String, Integer> getProteinCollisions() {
+		requireVerified();
+		Map<String, Integer> collisionDict = new HashMap<String, Integer>();
+		for (String peptide: collisions) {
+			for (String decoyID: candidates.get(peptide))
+				collisionDict.merge(decoyID, 1, Integer::sum);
+		}//for peptide
+		return collisionDict;
+	}//getProteinCollisions
+
+	/**
+	 * Writes the collision summary & the colliding decoy proteins reports.
+	 * @param summaryFileName	full file path of the summary report
+	 * @param proteinFileName	full file path of the colliding decoy proteins report
+	 * @throws IOException		if a report cannot be written
+	 */
+	public void writeReports(String summaryFileName, String proteinFileName) throws IOException {
+		Database.writeCSV(summaryFileName, getSummary());
+		Database.writeCSV(proteinFileName, getProteinCollisions());
+	}//writeReports
+
+	private long countCollidingDecoyPeptides() {
+		long count = 0;
+		for (String peptide: collisions)
+			count += candidates.get(peptide).size();
+		return count;
+	}//countCollidingDecoyPeptides
+
+	/**
+	 * @return the regenerated decoy proteins replaced (at least once) because of a verified collision
+	 */
+	private int countConfirmedRegenerations() {
+		Set<String> confirmedIDs = new HashSet<String>();
+		for (String peptide: confirmedTriggers)
+			confirmedIDs.addAll(triggers.get(peptide));
+		return confirmedIDs.size();
+	}//countConfirmedRegenerations
+
+	/**
+	 * @return the peptides of a decoy protein hitting the filter (empty if none)
+	 */
+	private List<String> getFilterHits(String decoySeq) {
+		List<String> hits = new ArrayList<String>(0);
+		digester.digest(0, decoySeq, (protein, start, end) -> {
+			if (targetFilter.mightContain(decoySeq, start, end))
+				hits.add(decoySeq.substring(start, end));
+		});
+		return hits;
+	}//getFilterHits
+
+	private void requireVerified() {
+		if (!verified)
+			throw new IllegalStateException("The candidates are not verified");
+	}//requireVerified
+
+	//***********************************************Setters***********************************************
+	/**
+	 * @param maxAttempts	regeneration attempts per colliding decoy protein (0: report only),
+	 * 						set before indexTargets (decides the filter size)
+	 * @throws IllegalArgumentException if maxAttempts < 0
+	 */
+	public void setMaxAttempts(int maxAttempts) {
+		if (maxAttempts < 0)
+			throw new IllegalArgumentException("The number of attempts is < 0: " + maxAttempts);
+		this.maxAttempts = maxAttempts;
+	}//setMaxAttempts
+
+	//***********************************************Getters***********************************************
+	/**
+	 * @return true if the candidates were verified after the last check
+	 */
+	public boolean isVerified() {
+		return verified;
+	}//isVerified
+
+	/**
+	 * @return true once indexTargets was called
+	 */
+	public boolean isIndexed() {
+		return targetFilter != null;
+	}//isIndexed
+
+	/**
+	 * @return digester		digestion rules of the compared peptides
+	 */
+	public Digester getDigester() {
+		return digester;
+	}//getDigester
+
+}//end of class
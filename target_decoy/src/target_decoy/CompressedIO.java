@@ -0,0 +1,97 @@
+package target_decoy;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Opens files for reading & writing, (de)compressing them on the fly based on the file extension:
+ * .gz 		 gzip (written with ParallelGzipChannel: block-parallel, multi-member)
+ * .zst/.zstd not supported (no zstd codec in the JDK)
+ * other	 plain (uncompressed) file
+ * @author junghyey
+ */
+public final class CompressedIO {
+
+	private final static int BUFFER_SIZE = 1 << 16; //64 KB decompression buffers
+
+	private CompressedIO() {
+	}//CompressedIO
+
+	/**
+	 * Opens a (possibly compressed) file for reading.
+	 * @param fileName		full file path (path + name)
+	 * @return channel		a channel of the uncompressed bytes of the file
+	 * @throws IllegalArgumentException if the compression format is not supported
+	 * @throws IOException	if the file cannot be opened
+	 */
+	public static ReadableByteChannel openRead(String fileName) throws IOException {
+		checkSupported(fileName);
+		if (!isGzip(fileName))
+			return FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+
+		/*GZIPInputStream also reads multi-member files (ex: written by ParallelGzipChannel, bgzip)*/
+		return Channels.newChannel(new GZIPInputStream(
+				new BufferedInputStream(Files.newInputStream(Paths.get(fileName)), BUFFER_SIZE), BUFFER_SIZE));
+	}//openRead
+
+	/**
+	 * Creates (or overwrites) a (possibly compressed) file for writing.
+	 * @param fileName		full file path (path + name)
+	 * @return channel		a channel compressing the bytes written to it (if needed)
+	 * @throws IllegalArgumentException if the compression format is not supported
+	 * @throws IOException	if the file cannot be created
+	 */
+	public static WritableByteChannel openWrite(String fileName) throws IOException {
+		checkSupported(fileName);
+		FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.CREATE,
+											   StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		return isGzip(fileName) ? new ParallelGzipChannel(channel) : channel;
+	}//openWrite
+
+	/**
+	 * Creates (or overwrites) a (possibly compressed) text file (UTF-8) for writing.
+	 * @param fileName		full file path (path + name)
+	 * @return writer		a buffered writer of the file
+	 * @throws IllegalArgumentException if the compression format is not supported
+	 * @throws IOException	if the file cannot be created
+	 */
+	public static Writer newWriter(String fileName) throws IOException {
+		return new BufferedWriter(Channels.newWriter(openWrite(fileName), StandardCharsets.UTF_8));
+	}//newWriter
+
+	/**
+	 * @param fileName		full file path (path + name)
+	 * @return true if the file is gzip compressed (.gz)
+	 */
+	public static boolean isGzip(String fileName) {
+		return fileName.endsWith(".gz");
+	}//isGzip
+
+	/**
+	 * @param fileName		full file path (path + name)
+	 * @return true if the file is compressed (and therefore cannot be memory mapped)
+	 */
+	public static boolean isCompressed(String fileName) {
+		return isGzip(fileName) || fileName.endsWith(".zst") || fileName.endsWith(".zstd");
+	}//isCompressed
+
+	/**
+	 * @throws IllegalArgumentException if the file is compressed with an unsupported format
+	 */
+	private static void checkSupported(String fileName) {
+		if (fileName.endsWith(".zst") || fileName.endsWith(".zstd"))
+			throw new IllegalArgumentException("zstd compression is not supported: " + fileName);
+	}//checkSupported
+
+}//end of class
@@ -1,400 +1,427 @@
-package target_decoy;
-
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Random;
-import java.util.Set;
-/**
- *  Represents decoy protein data created using "deBrujin amino acid" approach.
- *  Reference for this approach: J. Proteome Res. 2020, 19, 3, 1029–1036
- *								 Publication Date:February 3, 2020
- *								 https://doi.org/10.1021/acs.jproteome.9b00555
- * @author junghyey
- *
- */
-public class DeBruijnDecoy extends DecoyGenerator {
-	
-	private final static String DUMMY_SEQUENCE = "__";
-	private Map<String, ArrayList<Integer>> rangeMap;
-	
-	/**
-	 * combinationCount stores [Three letter combination,  count] ([K,V] pair)
-	 * combinationMap stores  [Three letter combination, mapped amino acid] ([K,V] pair)
-	 */
-	private Map<String, Integer> combinationCount;
-	private Map<String, String> combinationMap;
-	private Map<String, String> modifiedTargetSeq;
-	
-	/**
-	 * Constructor for the class
-	 * {@inheritDoc}
-	 * Initialize additional class variables.
-	 */
-	public DeBruijnDecoy(Map<String, String> targetSeqDict, Map<String, String> targetInfoDict) {
-		super(targetSeqDict, targetInfoDict);
-		combinationCount  = new HashMap<String, Integer>();
-		combinationMap    = new HashMap<String, String>();
-		modifiedTargetSeq = new HashMap<String, String>();
-		rangeMap	      = new HashMap<String, ArrayList<Integer>>();
-	}//ThreeDecoy
-
-	 
-	/**
-	 * Adds "__" prefix to each target protein's (assigned in the constructor) amino acid sequence.
-	 * @return	newTargetDict	a dictionary of modified target protein sequence data 
-	 * 							each protein's amino acid sequence begins with "__"
-	 */
-	public static Map<String, String> addDummySeq(Map<String, String> targetSeqDict) {
-		 Set<String> idSet = targetSeqDict.keySet();
-		 Map<String, String> newTargetDict = new HashMap<String, String> ();
-		 StringBuilder seqBuilder = new StringBuilder();
-		 for (String proteinID: idSet) {
-			 String proteinSeq = targetSeqDict.get(proteinID);
-			 seqBuilder.append(DUMMY_SEQUENCE);
-			 seqBuilder.append(proteinSeq);
-			 newTargetDict.put(proteinID, seqBuilder.toString());
-			 seqBuilder.setLength(0);
-		 }//for proteinID
-		 
-		 
-		 return newTargetDict;
-	}//addPrefix
-	
-	
-	
-	/**
-	 * Helper function for countAllCombination:
-	 * Finds all possible three letter combinations of the form (position,position+1, position+2)
-	 * from a protein amino acid sequence and accumulates the count of that combination. 
-	 * Updates combinationCount. [Key: three letter combination , Value: abundance]
-	 * @param proteinSeq	a protein's amino acid sequence
-	 */
-	private void countCombination(String proteinSeq) {
-		char [] seqArr= proteinSeq.toCharArray();
-		StringBuilder combinationBuilder = new StringBuilder();
-		
-		/* Find all the possible three letter combinations form: (position, position +1, position_2) */
-		for (int position = 0; position + 2 < proteinSeq.length(); position++) {
-			
-			/*Create the three letter combination*/
-			combinationBuilder.append(seqArr[position]);    // first letter
-			combinationBuilder.append(seqArr[position + 1]);// second letter
-			combinationBuilder.append(seqArr[position + 2]);// third letter
-			String chosenCombination = combinationBuilder.toString();
-			
-			/* Store the combination in combinationCount and accumulate the count*/
-			if(combinationCount.get(chosenCombination) == null) // does not exist add entry
-				combinationCount.put(chosenCombination, 1); // new combination, count = 1 
-			else
-				//existing combination, increment the count
-				combinationCount.put(chosenCombination, combinationCount.get(chosenCombination) + 1); 
-			
-			combinationBuilder.setLength(0); //initialize StringBuilder
-			
-		}// for position
-		
-	}//countCombination
-	
-	/**
-	 * Finds all possible three amino acid combinations (of the form position, position + 1, position +2)
-	 * from targetSeqDict and calculates the abundance of each three
-	 * letter combination in the given  target sequence data. Stores these information as dictionary:
-	 * [Key: three amino acid combination, 
-	 *  Value: total count indicating how many the [key] amino acid 
-	 *  	   there are in the set of all the proteins in proteinSeqDict.
-	 *  ]
-	 */
-	public void countAllCombination () {
-		 Set<String> idSet = modifiedTargetSeq.keySet();
-		 for(String proteinID: idSet) 
-			 countCombination(modifiedTargetSeq.get(proteinID));
-	}//countAllCombination
-	
-
-	
-	/**
-	 * Encodes (or map) every three letter(= amino acid) combination to
-	 * a single aminoAcid based on rangeMap
-	 */
-	
-	public void mapCombination() {
-		
-		//Map <String, Integer> originalRefCount = referenceCount; //copy the initial referenceCount
-		
-		Set<String> combinationSet = combinationCount.keySet(); //get all combination
-		Random getRandNum = new Random();
-
-		/*Set the range for randum number generation*/
-		int max =  Counter.getTotalAminoCount(targetSeqDict);
-		int min = 1;
-
-		int randNum = 0; //initialize
-		String aminoAcid = null; //initialize
-
-		/*Convert keySet to keylist (sorted in alphbetical order) */
-		Set<String> keys = rangeMap.keySet();
-		keys.stream().sorted();
-		List<String> keyList = new ArrayList<>(keys);
-		
-		/* Map a combination (three letter) of the combinationSet
-		 * to a single amino acid. (A combination cannot be mapped to two different amino acids).
-		 */
-		for (String combination: combinationSet) {
-			
-			if(combination.charAt(2) == 'R')
-				combinationMap.put(combination, "R");
-			else if(combination.charAt(2) == 'K')
-				combinationMap.put(combination, "K");
-			else{
-
-				do{
-					randNum = getRandNum.nextInt((max - min) + 1) + min;
-					aminoAcid = whichAminoAcid(randNum, 0 , rangeMap.size(), keyList);
-				}while(aminoAcid.equals("K") || aminoAcid.equals("R"));
-	
-				/* Map the combination to the chosen amino acid (ex: ABC --> A)  */
-				combinationMap.put(combination, aminoAcid);
-			}
-			
-			
-		}// for combination
-		
-	}//mapCombination
-
-	/**
-	 * {@inheritDoc}
-	 */
-	@Override
-	public String generateDecoy(String proteinID) {
-		
-		/*Enforce the precondition: The given proteinID should be a valid key.*/
-		if (!modifiedTargetSeq.keySet().contains(proteinID))
-			throw new IllegalArgumentException("Invalid protein id: " + proteinID);
-		
-		/* Get the target protein */
-		String targetProteinSeq =  modifiedTargetSeq.get(proteinID); 
-		char [] seqArr= targetProteinSeq.toCharArray(); 
-		int targetLength = targetProteinSeq.length(); 
-		
-		/* Prepare for the decoy protein building */
-		StringBuilder decoyBuilder = new StringBuilder(); 
-		StringBuilder combinationBuilder = new StringBuilder();
-		
-		/*Create a decoy protein */
-		for (int position = 0; position + 2 < targetLength; position++) {
-		
-			/*Get the three letter combination in the protein sequence.*/
-			combinationBuilder.append(seqArr[position]);    // first letter
-			combinationBuilder.append(seqArr[position + 1]);// second letter
-			combinationBuilder.append(seqArr[position + 2]);// third letter
-			
-			/*Convert the three letter combination to the according amino acid based on combinationMap.*/
-			String mappedAminoAcid = combinationMap.get(combinationBuilder.toString()); 
-			decoyBuilder.append(mappedAminoAcid);
-			
-			combinationBuilder.setLength(0); //initialize for a new combination
-		}// for position
-		
-		/* Confirm postcondition: The length of the target protein sequence is greater than
-		 * 						  that of the built decoy protein sequence by 2.
-		 */
-		assert(modifiedTargetSeq.get(proteinID).length() - decoyBuilder.toString().length() ==  2 );
-		
-		return decoyBuilder.toString();
-		
-	}//generateDecoy
-	
-	/**
-	 * {@inheritDoc}
-	 */
-	@Override
-	public void generateDecoyDict() {
-		Set<String> idSet = modifiedTargetSeq.keySet();
-		 
-		for (String proteinID: idSet) {
-			String decoyProtein = generateDecoy(proteinID);
-			decoySeqDict.put(proteinID, decoyProtein);
-			}// for proteinID
-		 
-		/* Confirm postcondition: The decoy proteinIDs and target protein IDs are the same. 
-		 *						  i.e. Have the same key sets. 
-		 */
-		assert(decoySeqDict.keySet().equals(idSet));
-	}//decoyDictGenerator()
-	
-
-	/**
-	 * Helper method for isAllMappingCorrect
-	 * Checks if a decoy protein generated by DeBruijn was properly generated from a given target protein.
-	 * (Looks for the mapping process)
-	 * @param  targetSequence	target protein sequence
-	 * @param  decoySequence 	decoy sequence created based on targetSeqeunce using three decoy method
-	 * @return boolean			true if properly created, else false
-	 */
-	private boolean isMappingCorrect (String targetSequence ,String decoySequence) {
-		char [] tSeqArr = targetSequence.toCharArray(); 
-		char [] dSeqArr = decoySequence.toCharArray();
-		
-		/*List to store the result of comparison of each amino acid*/
-		ArrayList <Boolean> checkResult  = new ArrayList<Boolean> ();	
-		StringBuilder combinationBuilder = new StringBuilder();
-		
-		/* Find all the possible three letter combinations form: (position, position +1, position_2) */
-		for (int position = 0; position + 2 < targetSequence.length(); position++) {
-			
-			/*Get the three letter combination*/
-			combinationBuilder.append(tSeqArr[position]);    // first letter
-			combinationBuilder.append(tSeqArr[position + 1]);// second letter
-			combinationBuilder.append(tSeqArr[position + 2]);// third letter
-			
-			/*
-			 * ex) Map: __A = J , _AB = K, ABC = L
-			 * ex) target sequence: __ABC
-			 * 						|
-			 * 						J
-			 * 					compare with the according decoy sequence	
-			 * ex) decoy sequence:  JKL	
-			 */
-			checkResult.add(combinationMap.get(combinationBuilder.toString()).equals(Character.toString(dSeqArr[position]))); //append the result
-			
-			combinationBuilder.setLength(0);
-		}//for position
-		
-		if (checkResult.contains(false)) // if any of amino acid is unmatched
-			return false;
-		else
-			return true;
-	}//checkMapping
-
-	
-	/**
-	 * Checks if decoy proteins generated by DeBruijn were properly generated from a given target proteins.
-	 * (Looks for the mapping process)
-	 * @param  targetSeqDict	target sequence data used for decoySeqDict generation
-	 * @param  decoySeqDict		decoy sequence data created using three decoy method.
-	 * @throws IllegalArgumentException if the given target sequence data and the decoy sequence 
-	 * 									data do not contain same protein ids.
-	 * @return boolean			true if properly created, else false
-	 */
-	
-	public boolean isAllMappingCorrect (Map<String, String> TargetSeqDict, Map<String, String> decoySeqDict) {
-		
-		/*Enforce the precondition: The given target sequence data and the decoy sequence data contain same protein ids*/
-		if(!targetSeqDict.keySet().equals(decoySeqDict.keySet())) {
-			throw new IllegalArgumentException ("The given target sequence data and the decoy sequence data do not contain same protein ids ");
-		}
-		
-		Set <String> idSet = modifiedTargetSeq.keySet();
-		
-		/* Check for every protein*/
-		for (String proteinID: idSet) {
-			if(!isMappingCorrect(modifiedTargetSeq.get(proteinID), decoySeqDict.get(proteinID)))
-				return false;
-		}// for proteinID
-		return true;
-		
-	}//isMappingCorrect
-
-
-
-	/**
-	 * Decides amino acid based on the chosen number & given range (rangeDict) 
-	 * # implemented using binary search algorithm
-	 * @param num	number 
-	 * @param low   start index of the given keys List (generally 0)
-	 * @param high  last index of the given keys List (generally length of the keys List)
-	 * @param keys	list of keys of  rangeMap (which is list of amino acids)
-	 * @return amino acid in String (one of "A", "B" ....etc..)
-	 */
-	
-	protected String whichAminoAcid(int num, int low, int high, List <String> keys)
-	{
-		int mid = (low + high) / 2 ; 
-		String key = keys.get(mid); //start from the middle
-		ArrayList<Integer> chosenRange = rangeMap.get(key); //get the chosen range
-
-		if (num >= chosenRange.get(0) && num < chosenRange.get(1))
-			return key;
-		else if (num < chosenRange.get(0)) //num is on the left side
-			return whichAminoAcid(num, low, mid - 1, keys);
-		else 									  //num is on the right side
-			return whichAminoAcid(num, mid + 1, high , keys);
-		}// whichAminoAcid
-		
-
-
-	//***********************************************Setters***********************************************	
-	/**
-	 * @param combinationCount   each entry of a dictionary looks like
-	 * 							 [Key: combination, Value: total count]
-	 * 							 
-	 */
-	public void setCombinationCount(Map<String, Integer> combinationCount) {
-		this.combinationCount = combinationCount;
-	}//setCombinationDict
-
-	
-	/**
-	 * @param combinationMap	 each entry of a dictionary looks like 
-	 * 							 [Key: combination, Value: amino acid]
-	 * 						
-	 */
-	public void setCombinationMap (Map<String, String> combinationMap) {
-		this.combinationMap = combinationMap;
-	}//setCombinationMap
-
-	/**
-	 * @param modifiedTargetSeq  each entry of a dictionary looks like
-	 * 							 [Key: protein id, Value: dummy sequence + original target protein sequence]
-	 * 							 
-	 */
-	
-	public void setModifiedSeq (Map<String, String> modifiedTargetSeq) {
-		this.modifiedTargetSeq = modifiedTargetSeq;
-	}//setModifiedSeq
-	
-	/**
- 	* @param rangeMap	a Dictionary (Map<String, ArrayList<Integer>>), where each
-	 * 		   			entry stores  [Key: amino acid, Value: range for that amino acid]
- 	*/
-	 public void setRangeMap (Map<String ,ArrayList<Integer>> rangeMap){
-		this.rangeMap = rangeMap;
-	}//setRangeMap
-
-	
-	//***********************************************Getters***********************************************
-	/**
-	 * @return combinationCount a Dictionary (Map<String, Integer>), where each
-	 * 		   					entry stores  [Key: combination, Value: total count]
-	 */
-	public Map<String, Integer> getCombinationCount() {
-		return combinationCount;
-	}//getCombinationDict
-	
-	/**
-	 * @return combinationMap  a Dictionary (Map<String, String>), where each
-	 * 		   				   entry stores  [Key: combination, Value: amino acid]
-	 */
-	public Map<String, String> getCombinationMap (){
-		return combinationMap;
-	}//mapCombination
-	
-	/**
-	 * @return modifiedTargetSeq a Dictionary (Map<String, String>), where each
-	 * 		   				   entry stores  [Key: protein id , Value: dummy sequence + original target protein sequence]
-	 */
-	public Map<String, String> getModifiedTarget (){
-		return modifiedTargetSeq;
-	}//getModifiedTarget
-
-	/**
- 	 * @return RangeMap		a Dictionary (Map<String, ArrayList<Integer>>), where each
-	 * 		   				entry stores  [Key: amino acid, Value: range for that amino acid]
- 	 */
-	  public Map<String ,ArrayList<Integer>> getRangeMap(){
-		return rangeMap;
-	}//getRangeMap
-
-}//end of class
+package target_decoy;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+/**
+ *  Represents decoy protein data created using "deBrujin amino acid" approach.
+ *  Reference for this approach: J. Proteome Res. 2020, 19, 3, 1029–1036
+ *								 Publication Date:February 3, 2020
+ *								 https://doi.org/10.1021/acs.jproteome.9b00555
+ * @author junghyey
+ *
+ */
+public class DeBruijnDecoy extends DecoyGenerator {
+	
+	private final static String DUMMY_SEQUENCE = "__";
+	public final static int MIN_K = 3;
+	public final static int MAX_K = 8;
+	private AminoAcidSampler sampler; //draws amino acids in proportion to the target amino acid count
+	
+	/**
+	 * k: letters per combination (3 by default), the dummy prefix has k - 1 letters.
+	 * Combinations are packed into longs (see KmerCodec) and stored in a KmerTable
+	 * (flat arrays up to k = 4, primitive hash table above) with, for each combination:
+	 * [combination, count] and [combination, mapped amino acid] (0 if not mapped)
+	 */
+	private final int  k;
+	private final long mask;
+	private KmerTable combinationTable;
+	private boolean combinationMapped; //true once the combinations are mapped
+	private Map<String, String> modifiedTargetSeq;
+	
+	/**
+	 * Constructor for the class
+	 * {@inheritDoc}
+	 * Initialize additional class variables.
+	 */
+	public DeBruijnDecoy(Map<String, String> targetSeqDict, Map<String, String> targetInfoDict) {
+		this(targetSeqDict, targetInfoDict, MIN_K);
+	}//ThreeDecoy
+	
+	/**
+	 * Constructor for the class
+	 * {@inheritDoc}
+	 * @param k		letters per combination (MIN_K to MAX_K)
+	 * @throws IllegalArgumentException if k is not between MIN_K and MAX_K
+	 */
+	public DeBruijnDecoy(Map<String, String> targetSeqDict, Map<String, String> targetInfoDict, int k) {
+		super(targetSeqDict, targetInfoDict);
+		
+		/*Enforce the precondition: MIN_K <= k <= MAX_K*/
+		if (k < MIN_K || k > MAX_K)
+			throw new IllegalArgumentException("k should be between " + MIN_K + " and " + MAX_K + ": " + k);
+		
+		this.k = k;
+		mask   = KmerCodec.mask(k);
+		combinationTable  = KmerTable.create(k);
+		modifiedTargetSeq = new HashMap<String, String>();
+	}//DeBruijnDecoy
+
+	 
+	/**
+	 * Adds "__" prefix to each target protein's (assigned in the constructor) amino acid sequence.
+	 * (Only used for reports with k = 3: the combinations are read with an implicit dummy prefix)
+	 * @return	newTargetDict	a dictionary of modified target protein sequence data 
+	 * 							each protein's amino acid sequence begins with "__"
+	 */
+	public static Map<String, String> addDummySeq(Map<String, String> targetSeqDict) {
+		return addDummySeq(targetSeqDict, DUMMY_SEQUENCE);
+	}//addPrefix
+	
+	/**
+	 * Adds a dummy prefix to each target protein's amino acid sequence.
+	 * @param	dummySeq		the prefix (k - 1 dummy letters)
+	 * @return	newTargetDict	a dictionary of modified target protein sequence data 
+	 * 							each protein's amino acid sequence begins with dummySeq
+	 */
+	private static Map<String, String> addDummySeq(Map<String, String> targetSeqDict, String dummySeq) {
+		 ProteinStore newTargetDict = new ProteinStore(Math.max(1, targetSeqDict.size()), 1 << 16);
+		 StringBuilder seqBuilder = new StringBuilder();
+		 if (targetSeqDict instanceof ProteinStore) {
+			 
+			 /*Read the residues straight off the store (no String per protein)*/
+			 ProteinStore targetStore = (ProteinStore) targetSeqDict;
+			 for (int protein = 0; protein < targetStore.size(); protein++) {
+				 seqBuilder.append(dummySeq);
+				 seqBuilder.append(targetStore.getResidues(protein));
+				 newTargetDict.add(targetStore.getProteinID(protein), seqBuilder);
+				 seqBuilder.setLength(0);
+			 }//for protein
+		 }//if
+		 else {
+			 for (Map.Entry<String, String> entry: targetSeqDict.entrySet()) {
+				 seqBuilder.append(dummySeq);
+				 seqBuilder.append(entry.getValue());
+				 newTargetDict.add(entry.getKey(), seqBuilder);
+				 seqBuilder.setLength(0);
+			 }//for entry
+		 }//else
+		 
+		 
+		 return newTargetDict;
+	}//addPrefix
+	
+	
+	
+	/**
+	 * Helper function for countAllCombination:
+	 * Finds all possible k letter combinations of the form (position, ..., position + k - 1)
+	 * from a protein amino acid sequence (with the dummy prefix) and accumulates the count of that combination. 
+	 * Updates combinationTable. [Key: k letter combination , Value: abundance]
+	 * @param proteinSeq	a protein's amino acid sequence (without the dummy prefix)
+	 */
+	private void countCombination(CharSequence proteinSeq) {
+		long combination = KmerCodec.DUMMY_CODE; //dummy prefix: the first window is dummies + first letter
+		
+		/* Roll a k letter window over the sequence: drop the first letter, add the next one */
+		for (int position = 0; position < proteinSeq.length(); position++) {
+			combination = ((combination << KmerCodec.BITS_PER_RESIDUE) | KmerCodec.encode(proteinSeq.charAt(position))) & mask;
+			combinationTable.increment(combination);
+		}// for position
+		
+	}//countCombination
+	
+	/**
+	 * Finds all possible k amino acid combinations (of the form position, ..., position + k - 1)
+	 * from targetSeqDict and calculates the abundance of each k
+	 * letter combination in the given  target sequence data. Stores these information in combinationTable:
+	 * [Key: k amino acid combination, 
+	 *  Value: total count indicating how many the [key] amino acid 
+	 *  	   there are in the set of all the proteins in proteinSeqDict.
+	 *  ]
+	 */
+	public void countAllCombination () {
+		if (targetSeqDict instanceof ProteinStore) {
+			
+			/*Count straight off the store residues (no String per protein)*/
+			ProteinStore targetStore = (ProteinStore) targetSeqDict;
+			for (int protein = 0; protein < targetStore.size(); protein++)
+				countCombination(targetStore.getResidues(protein));
+		}//if
+		else
+			countAllCombination(targetSeqDict.values());
+	}//countAllCombination
+	
+	/**
+	 * Same as countAllCombination() for the given target protein sequences.
+	 * @param targetSeqs	all the target protein sequences
+	 */
+	public void countAllCombination (Collection<? extends CharSequence> targetSeqs) {
+		 for(CharSequence proteinSeq: targetSeqs) 
+			 countCombination(proteinSeq);
+	}//countAllCombination
+	
+
+	
+	/**
+	 * Encodes (or map) every k letter(= amino acid) combination to
+	 * a single aminoAcid drawn with sampler
+	 */
+	
+	public void mapCombination() {
+		
+		SplittableRandom getRandNum = new SplittableRandom(seed); //reproducible with the master seed
+
+		/*Combinations not ending with K or R are never mapped to K or R (trypsin sites are kept)*/
+		AminoAcidSampler noCleavageSampler = sampler.without('K', 'R');
+		KmerTable table = combinationTable;
+		
+		/* Map every combination that occurs in the target (in table order)
+		 * to a single amino acid. (A combination cannot be mapped to two different amino acids).
+		 */
+		table.forEach((combination, count, residue) -> {
+			if (count == 0)
+				return;
+			
+			char lastLetter = KmerCodec.decode(KmerCodec.lastCode(combination));
+			if(lastLetter == 'R' || lastLetter == 'K')
+				table.setResidue(combination, lastLetter);
+			else
+				/* Map the combination to the chosen amino acid (ex: ABC --> A)  */
+				table.setResidue(combination, noCleavageSampler.sample(getRandNum));
+		});
+		combinationMapped = true;
+		
+	}//mapCombination
+
+	/**
+	 * {@inheritDoc}
+	 * Counts all k letter combinations and maps them to amino acids
+	 * (unless already done). sampler should be set before.
+	 */
+	@Override
+	public void prepare() {
+		if (!combinationMapped) {
+			countAllCombination();
+			mapCombination();
+		}//if
+	}//prepare
+	
+	/**
+	 * {@inheritDoc}
+	 * Counts the combinations of the given target protein sequences.
+	 */
+	@Override
+	public void prepare(Collection<? extends CharSequence> targetSeqs) {
+		if (!combinationMapped) {
+			countAllCombination(targetSeqs);
+			mapCombination();
+		}//if
+	}//prepare
+	
+	/**
+	 * {@inheritDoc}
+	 * (same decoy protein for every attempt: the mapping is fixed)
+	 */
+	@Override
+	protected String generateDecoy(String proteinID, CharSequence targetProteinSeq, int attempt) {
+		
+		int targetLength = targetProteinSeq.length(); 
+		
+		/* Prepare for the decoy protein building */
+		char [] decoyArr = new char[targetLength]; 
+		long combination = KmerCodec.DUMMY_CODE; //dummy prefix
+		
+		/*Create a decoy protein */
+		for (int position = 0; position < targetLength; position++) {
+		
+			/*Get the k letter combination ending at position (rolling window).*/
+			combination = ((combination << KmerCodec.BITS_PER_RESIDUE) | KmerCodec.encode(targetProteinSeq.charAt(position))) & mask;
+			
+			/*Convert the k letter combination to the according amino acid based on combinationTable.*/
+			decoyArr[position] = combinationTable.getResidue(combination);
+		}// for position
+		
+		/* Confirm postcondition: Every combination of the target protein was mapped
+		 * 						  (an unmapped combination gives the residue 0).
+		 */
+		assert(new String(decoyArr).indexOf('\0') < 0) : "Unmapped combination in protein " + proteinID;
+		
+		return new String(decoyArr);
+		
+	}//generateDecoy
+	
+
+	/**
+	 * {@inheritDoc}
+	 * Checks the mapping process (see isMappingCorrect).
+	 */
+	@Override
+	protected boolean isDecoyCorrect(String proteinID, CharSequence targetSeq, String decoySeq) {
+		return isMappingCorrect(targetSeq, decoySeq);
+	}//isDecoyCorrect
+	
+	/**
+	 * Helper method for isAllMappingCorrect
+	 * Checks if a decoy protein generated by DeBruijn was properly generated from a given target protein.
+	 * (Looks for the mapping process)
+	 * @param  targetSequence	target protein sequence (without the dummy prefix)
+	 * @param  decoySequence 	decoy sequence created based on targetSeqeunce using three decoy method
+	 * @return boolean			true if properly created, else false
+	 */
+	private boolean isMappingCorrect (CharSequence targetSequence ,String decoySequence) {
+		if (targetSequence.length() != decoySequence.length())
+			return false;
+		
+		long combination = KmerCodec.DUMMY_CODE; //dummy prefix
+		
+		/* Find all the possible k letter combinations form: (position, ..., position + k - 1) */
+		for (int position = 0; position < targetSequence.length(); position++) {
+			combination = ((combination << KmerCodec.BITS_PER_RESIDUE) | KmerCodec.encode(targetSequence.charAt(position))) & mask;
+			
+			/*
+			 * ex) Map: __A = J , _AB = K, ABC = L
+			 * ex) target sequence: __ABC
+			 * 						|
+			 * 						J
+			 * 					compare with the according decoy sequence	
+			 * ex) decoy sequence:  JKL	
+			 */
+			if (combinationTable.getResidue(combination) != decoySequence.charAt(position)) // if any of amino acid is unmatched
+				return false;
+		}//for position
+		
+		return true;
+	}//checkMapping
+
+	
+	/**
+	 * Checks if decoy proteins generated by DeBruijn were properly generated from a given target proteins.
+	 * (Looks for the mapping process)
+	 * @param  targetSeqDict	target sequence data used for decoySeqDict generation
+	 * @param  decoySeqDict		decoy sequence data created using three decoy method.
+	 * @throws IllegalArgumentException if the given target sequence data and the decoy sequence 
+	 * 									data do not contain same protein ids.
+	 * @return boolean			true if properly created, else false
+	 */
+	
+	public boolean isAllMappingCorrect (Map<String, String> TargetSeqDict, Map<String, String> decoySeqDict) {
+		
+		/*Enforce the precondition: The given target sequence data and the decoy sequence data contain same protein ids*/
+		if(!targetSeqDict.keySet().equals(decoySeqDict.keySet())) {
+			throw new IllegalArgumentException ("The given target sequence data and the decoy sequence data do not contain same protein ids ");
+		}
+		
+		Set <String> idSet = targetSeqDict.keySet();
+		
+		/* Check for every protein*/
+		for (String proteinID: idSet) {
+			if(!isMappingCorrect(targetSeqDict.get(proteinID), decoySeqDict.get(proteinID)))
+				return false;
+		}// for proteinID
+		return true;
+		
+	}//isMappingCorrect
+
+
+
+	//***********************************************Setters***********************************************	
+	/**
+	 * @param combinationCount   each entry of a dictionary looks like
+	 * 							 [Key: combination, Value: total count]
+	 * 							 
+	 */
+	public void setCombinationCount(Map<String, Integer> combinationCount) {
+		for (Map.Entry<String, Integer> entry: combinationCount.entrySet())
+			combinationTable.setCount(packCombination(entry.getKey()), entry.getValue());
+	}//setCombinationDict
+
+	
+	/**
+	 * @param combinationMap	 each entry of a dictionary looks like 
+	 * 							 [Key: combination, Value: amino acid]
+	 * 						
+	 */
+	public void setCombinationMap (Map<String, String> combinationMap) {
+		for (Map.Entry<String, String> entry: combinationMap.entrySet())
+			combinationTable.setResidue(packCombination(entry.getKey()), entry.getValue().charAt(0));
+		combinationMapped = true;
+	}//setCombinationMap
+	
+	/**
+	 * @param combination	a k letter combination
+	 * @return the packed combination
+	 * @throws IllegalArgumentException if the combination does not have k letters
+	 */
+	private long packCombination(String combination) {
+		if (combination.length() != k)
+			throw new IllegalArgumentException("Expected a combination of " + k + " letters: " + combination);
+		return KmerCodec.pack(combination);
+	}//packCombination
+
+	/**
+	 * @param modifiedTargetSeq  each entry of a dictionary looks like
+	 * 							 [Key: protein id, Value: dummy sequence + original target protein sequence]
+	 * 							 
+	 */
+	
+	public void setModifiedSeq (Map<String, String> modifiedTargetSeq) {
+		this.modifiedTargetSeq = modifiedTargetSeq;
+	}//setModifiedSeq
+	
+	/**
+ 	* @param sampler	an AminoAcidSampler built from the (zero removed) target amino acid count
+ 	*/
+	 public void setSampler (AminoAcidSampler sampler){
+		this.sampler = sampler;
+	}//setSampler
+
+	
+	//***********************************************Getters***********************************************
+	/**
+	 * @return k	letters per combination
+	 */
+	public int getK() {
+		return k;
+	}//getK
+	
+	/**
+	 * @return combinationCount a Dictionary (Map<String, Integer>), where each
+	 * 		   					entry stores  [Key: combination, Value: total count]
+	 * 							(created from the packed counts, for reports)
+	 */
+	public Map<String, Integer> getCombinationCount() {
+		Map<String, Integer> countDict = new HashMap<String, Integer>();
+		combinationTable.forEach((combination, count, residue) -> {
+			if (count != 0)
+				countDict.put(KmerCodec.unpack(combination, k), count);
+		});
+		return countDict;
+	}//getCombinationDict
+	
+	/**
+	 * @return combinationMap  a Dictionary (Map<String, String>), where each
+	 * 		   				   entry stores  [Key: combination, Value: amino acid]
+	 * 						   (created from the packed map, for reports)
+	 */
+	public Map<String, String> getCombinationMap (){
+		Map<String, String> mapDict = new HashMap<String, String>();
+		combinationTable.forEach((combination, count, residue) -> {
+			if (residue != 0)
+				mapDict.put(KmerCodec.unpack(combination, k), Character.toString(residue));
+		});
+		return mapDict;
+	}//mapCombination
+	
+	/**
+	 * @return modifiedTargetSeq a Dictionary (Map<String, String>), where each
+	 * 		   				   entry stores  [Key: protein id , Value: dummy sequence + original target protein sequence]
+	 * 						   (created on first use, for reports)
+	 */
+	public Map<String, String> getModifiedTarget (){
+		if (modifiedTargetSeq.isEmpty())
+			modifiedTargetSeq = addDummySeq(targetSeqDict, DUMMY_SEQUENCE.substring(0, 1).repeat(k - 1));
+		return modifiedTargetSeq;
+	}//getModifiedTarget
+
+	/**
+ 	 * @return sampler		an AminoAcidSampler used to map the combinations
+ 	 */
+	  public AminoAcidSampler getSampler(){
+		return sampler;
+	}//getSampler
+
+}//end of class
@@ -1,177 +1,384 @@
-package target_decoy;
-
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
-
-/**
- * Helper(Parent) class for other decoy generator classes.
- * @author junghyey
- */
-public abstract class DecoyGenerator {
-	
-	/**
-	 * Variables for the given target protein data
-	 */
-	protected Map<String, String> targetSeqDict;
-	protected Map<String, String> targetInfoDict;
-	
-	// * rangeMap ex) 100 aminoacids total, A = 30 counts, B = 40 counts, C = 10 counts, D = 20 counts
-	//				  A range (out of 100 aminoacids):  1 -30, B range: 30-40 ...etc....
-	//				  minimun inclusive,maximum exclusive
-	
-	/**
-	 * Variables for the decoy protein data.
-	 */
-	protected Map<String, String> decoySeqDict;
-	protected Map<String, String> decoyInfoDict;
-	protected final static String DECOY_PREFIX = ">XXX_";
-	
-	/**
-	 * Constructor for the class
-	 * Stores the target protein data information & update the class variables.
-	 * @param  targetSeqDict target sequence data (each entry's form: [proteinID : target protein sequence])	
-	 * @param  targetInfoDict	target info data (each entry's form: [proteinID : target protein info])
-	 */
-	public DecoyGenerator(Map<String, String> targetSeqDict, Map<String, String> targetInfoDict)
-	{
-		this.targetInfoDict  = targetInfoDict;
-		this.targetSeqDict   = targetSeqDict;
-		decoySeqDict         = new HashMap<String, String>();
-		decoyInfoDict 		 = new HashMap<String, String>();
-		
-	}//DecoyGenerator
-	
-	/**
-	 * Generates a single decoy protein sequence given the target proteinID.
-	 * @param proteinID	  a valid proteinID 
-	 * @return a decoy protein corresponding to the target protein with the given proteinID.
-	 */
-	protected abstract String generateDecoy(String proteinID);
-	
-	/**
-	 * Generate decoy protein sequences corresponding to all target proteins from targetSeqDict.
-	 * Stores decoy protein sequences in the decoySeqDict where each entry is
-	 * [proteinID, decoy protein sequence]
-	 */
-	public abstract void generateDecoyDict();
-	
-	
-	/**
-	 * Generate decoy protein information header ("XXX_" + target protein info heading) 
-	 * corresponding to all target proteins from targetInfoDict.
-	 * Stores decoy protein information in the decoyInfoDict where each entry is
-	 * [proteinID, decoy protein information]
-	 */
- 	public void generateDecoyInfo () {
- 		/*Get all the protein ids*/
-		Set<String> idSet = targetInfoDict.keySet();
-		StringBuilder infoBuilder = new StringBuilder();
-
-		/*Generate decoy information header for all decoy proteins*/
-		 for (String proteinID: idSet) {
-
-			 /* 1. Create decoy protein information heading ("XXX_" + target protein info heading)*/
-			 String targetInfo = targetInfoDict.get(proteinID);
-			 infoBuilder.append(DECOY_PREFIX); //add default decoy prefix
-			 infoBuilder.append(targetInfo.substring(1)); //get after ">"
-			 String decoyInfo = infoBuilder.toString();
-			 
-			 /* 2. Store it into the decoyInfoDict*/
-			 decoyInfoDict.put(proteinID, decoyInfo);
-			
-			 infoBuilder.setLength(0); //initialize after storing.
-		 }// for proteinID	 
-		 
-		 /* Confirm postcondition: The decoy proteinIDs and target protein IDs are the same. 
-		  *						   i.e. Have the same key sets. 
-		  */
-		 assert(targetInfoDict.keySet().equals(decoyInfoDict.keySet()));
-	}//decoyInfoGenerator()
-
-
-
-
-	//***********************************************Getters***********************************************
- 	/**
- 	 * Returns the current version of decoySeqDict
- 	 * @return decoySeqDict		a Dictionary (Map<String, String>), where each
-	 * 		   					entry stores  [Key: proteinID, Value: decoy protein sequence]
- 	 */
- 	
-	public Map<String, String> getDseqDict(){
-		return decoySeqDict;
-	}//getDseqDict
-	
-	/**
- 	 * Returns the current version of decoyInfoDict
- 	 * @return decoySeqDict		a Dictionary (Map<String, String>), where each
-	 * 		   					entry stores  [Key: proteinID, Value: decoy protein information]
- 	 */
-	public Map<String,String> getDinfoDict(){
-		return decoyInfoDict;
-	}//getDinfoDict
-	
- 	/**
- 	 * Returns the current version of targetSeqDict
- 	 * @return decoySeqDict		a Dictionary (Map<String, String>), where each
-	 * 		   					entry stores  [Key: proteinID, Value: target protein sequence]
- 	 */
- 	
-	  public Map<String, String> getTseqDict(){
-		return targetSeqDict;
-	}//getTseqDict
-	
-		
- 	/**
- 	 * Returns the current version of targetInfoDict
- 	 * @return targetInfoDict	a Dictionary (Map<String, String>), where each
-	 * 		   					entry stores  [Key: proteinID, Value: target protein information]
- 	 */
- 	
-	  public Map<String, String> getTinfoDict(){
-		return targetInfoDict;
-	}//getTinfoDict
-
-
-	//***********************************************Setters***********************************************
-
-	/**
- 	* Sets the targetSeqDict to the given parameter
- 	* @param targetSeqDict	 a Dictionary (Map<String, String>), where each
-	 * 		   				 entry stores  [Key: proteinID, Value: target protein sequence]
- 	*/
-	 public void setTseqDict(Map<String ,String> targetSeqDict){
-		this.targetSeqDict = targetSeqDict;
-	}//setTseqDict
-	
-	/**
- 	* Sets the targetInfoDict to the given parameter
- 	* @param targetInfoDict	 a Dictionary (Map<String, String>), where each
-	 * 		   				 entry stores  [Key: proteinID, Value: target protein information]
- 	*/
-	 public void setTinfoDict(Map<String ,String> targetInfoDict){
-		this.targetInfoDict = targetInfoDict;
-	}//setTseqDict
-	
-	/**
- 	* Sets the decoySeqDict to the given parameter
- 	* @param decoySeqDict	 a Dictionary (Map<String, String>), where each
-	 * 		   				 entry stores  [Key: proteinID, Value: decoy protein sequence]
- 	*/
-	 public void setDseqDict(Map<String ,String> decoySeqDict){
-		this.decoySeqDict = decoySeqDict;
-	}//setDseqDict
-
-	/**
- 	* Sets the decoyInfoDict to the given parameter
- 	* @param decoyInfoDict	 a Dictionary (Map<String, String>), where each
-	 * 		   				 entry stores  [Key: proteinID, Value: decoy protein information]
- 	*/
-	 public void setDinfoDict (Map<String ,String> decoyInfoDict){
-		this.decoyInfoDict = decoyInfoDict;
-	}//setDinfoDict
-
-	
-	
-}//end of class
+package target_decoy;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Helper(Parent) class for other decoy generator classes.
+ * @author junghyey
+ */
+public abstract class DecoyGenerator {
+	
+	/**
+	 * Variables for the given target protein data
+	 */
+	protected Map<String, String> targetSeqDict;
+	protected Map<String, String> targetInfoDict;
+	
+	// * rangeMap ex) 100 aminoacids total, A = 30 counts, B = 40 counts, C = 10 counts, D = 20 counts
+	//				  A range (out of 100 aminoacids):  1 -30, B range: 30-40 ...etc....
+	//				  minimun inclusive,maximum exclusive
+	
+	/**
+	 * Variables for the decoy protein data.
+	 */
+	protected Map<String, String> decoySeqDict;
+	protected Map<String, String> decoyInfoDict;
+	protected final static String DECOY_PREFIX = ">XXX_";
+	
+	/**
+	 * Variables for the decoy generation.
+	 * seed 	: master seed, every protein gets its own random number generator seeded from
+	 * 			  (seed, proteinID), so the result does not depend on the order or the number of threads.
+	 * parallel : generate decoy proteins on all cores (parallel stream) if true
+	 */
+	protected long seed;
+	protected boolean parallel;
+	
+	/**
+	 * Constructor for the class
+	 * Stores the target protein data information & update the class variables.
+	 * @param  targetSeqDict target sequence data (each entry's form: [proteinID : target protein sequence])	
+	 * @param  targetInfoDict	target info data (each entry's form: [proteinID : target protein info])
+	 */
+	public DecoyGenerator(Map<String, String> targetSeqDict, Map<String, String> targetInfoDict)
+	{
+		this.targetInfoDict  = targetInfoDict;
+		this.targetSeqDict   = targetSeqDict;
+		decoySeqDict         = new ProteinStore(Math.max(1, targetSeqDict.size()), 1 << 16);
+		decoyInfoDict 		 = new HashMap<String, String>();
+		seed				 = new SplittableRandom().nextLong(); //random unless setSeed is called
+		parallel			 = false;
+		
+	}//DecoyGenerator
+	
+	/**
+	 * Returns the sequence of a target protein, a view of the ProteinStore residues (no copy)
+	 * when the target data is one, for generators only reading the target protein.
+	 * @param proteinID	  a valid proteinID
+	 * @return the target protein sequence (read-only)
+	 * @throws IllegalArgumentException if the proteinID is not a target protein
+	 */
+	protected CharSequence getTargetSequence(String proteinID) {
+		if (targetSeqDict instanceof ProteinStore)
+			return ((ProteinStore) targetSeqDict).getResidues(indexOfTarget(proteinID));
+		String targetSeq = targetSeqDict.get(proteinID);
+		if (targetSeq == null)
+			throw new IllegalArgumentException("Invalid protein id: " + proteinID);
+		return targetSeq;
+	}//getTargetSequence
+	
+	/**
+	 * @param proteinID	  a valid proteinID
+	 * @return protein	  index of the target protein in the ProteinStore target data
+	 * @throws IllegalArgumentException if the proteinID is not a target protein
+	 */
+	private int indexOfTarget(String proteinID) {
+		int protein = ((ProteinStore) targetSeqDict).indexOf(proteinID);
+		if (protein < 0)
+			throw new IllegalArgumentException("Invalid protein id: " + proteinID);
+		return protein;
+	}//indexOfTarget
+	
+	/**
+	 * Generates a single decoy protein sequence from the target protein sequence
+	 * (every generateDecoy method ends here once the target protein is looked up).
+	 * @param proteinID	  target proteinID (seeds the random number generator of the protein, see getRandom)
+	 * @param targetSeq	  target protein sequence (read-only, ex: a ProteinStore view, a streamed FastaRecord)
+	 * @param attempt	  attempt number (0: the decoy protein of generateDecoy(proteinID), see canRegenerate)
+	 * @return a decoy protein corresponding to the target protein.
+	 */
+	protected abstract String generateDecoy(String proteinID, CharSequence targetSeq, int attempt);
+	
+	/**
+	 * Generates a single decoy protein sequence given the target proteinID.
+	 * (Looks the proteinID up once and goes on with generateDecoy(protein) when the target data is a ProteinStore)
+	 * @param proteinID	  a valid proteinID 
+	 * @return a decoy protein corresponding to the target protein with the given proteinID.
+	 * @throws IllegalArgumentException if the proteinID is not a target protein
+	 */
+	protected String generateDecoy(String proteinID) {
+		if (targetSeqDict instanceof ProteinStore)
+			return generateDecoy(indexOfTarget(proteinID));
+		return generateDecoy(proteinID, getTargetSequence(proteinID), 0);
+	}//generateDecoy
+	
+	/**
+	 * Generates a single decoy protein sequence given the index of the target protein
+	 * (no proteinID lookup: for callers walking the ProteinStore target data, ex: DecoyPipeline).
+	 * @param protein	  index of the target protein in the ProteinStore target data
+	 * @return a decoy protein corresponding to the target protein.
+	 * @throws IllegalStateException if the target data is not a ProteinStore
+	 * @throws IllegalArgumentException if the index is out of range
+	 */
+	protected String generateDecoy(int protein) {
+		if (!(targetSeqDict instanceof ProteinStore))
+			throw new IllegalStateException("The target data is not a ProteinStore");
+		ProteinStore targetStore = (ProteinStore) targetSeqDict;
+		
+		/*Enforce the precondition: 0 <= protein < number of target proteins*/
+		if (protein < 0 || protein >= targetStore.size())
+			throw new IllegalArgumentException("Invalid protein index: " + protein);
+		
+		return generateDecoy(targetStore.getProteinID(protein), targetStore.getResidues(protein), 0);
+	}//generateDecoy
+	
+	/**
+	 * @return true if generateDecoy(proteinID, targetSeq, attempt) gives a different decoy protein for every attempt
+	 * 		   (ex: when the first one shares peptides with the target, see CollisionDetector);
+	 * 		   generators without randomness give the same decoy protein for every attempt
+	 */
+	public boolean canRegenerate() {
+		return false;
+	}//canRegenerate
+	
+	/**
+	 * Generate decoy protein sequences corresponding to all target proteins from targetSeqDict.
+	 * Stores decoy protein sequences in the decoySeqDict where each entry is
+	 * [proteinID, decoy protein sequence]
+	 * Proteins are generated independently of each other, on all cores if parallel is set
+	 * (decoySeqDict follows the order of targetSeqDict either way).
+	 * A ProteinStore is walked by index (its keySet order), without proteinID lookups.
+	 */
+	public void generateDecoyDict() {
+		Set<String> idSet = targetSeqDict.keySet();
+		boolean byIndex = targetSeqDict instanceof ProteinStore; //position in idSet = protein index
+		
+		if (parallel) {
+			/*Generate into the positions of the proteinIDs, then store them in idSet order*/
+			String[] proteinIDs = idSet.toArray(new String[0]);
+			String[] decoySeqs  = new String[proteinIDs.length];
+			IntStream.range(0, proteinIDs.length).parallel()
+					 .forEach(position -> decoySeqs[position] = byIndex ? generateDecoy(position) : generateDecoy(proteinIDs[position]));
+			for (int position = 0; position < proteinIDs.length; position++) {
+				decoySeqDict.put(proteinIDs[position], decoySeqs[position]);
+				decoySeqs[position] = null; //stored in decoySeqDict
+			}//for position
+		}//if parallel
+		else {
+			int position = 0;
+			for (String proteinID: idSet) {
+				String decoyProtein = byIndex ? generateDecoy(position) : generateDecoy(proteinID);
+				decoySeqDict.put(proteinID, decoyProtein);
+				position++;
+			}// for proteinID
+		}//else
+		
+		/* Confirm postcondition: The decoy proteinIDs and target protein IDs are the same. 
+		 *						   i.e. Have the same key sets. 
+		 */
+		assert(decoySeqDict.keySet().equals(idSet));
+	}//generateDecoyDict
+	
+	/**
+	 * Creates the random number generator of a protein. The generator only depends on the
+	 * master seed and the proteinID, so a decoy protein is the same whichever thread
+	 * generates it and in whichever order.
+	 * @param proteinID	  a valid proteinID
+	 * @return random	  a random number generator for the protein
+	 */
+	protected SplittableRandom getRandom(String proteinID) {
+		return getRandom(proteinID, 0);
+	}//getRandom
+	
+	/**
+	 * Creates the random number generator of a protein for a regeneration attempt
+	 * (attempt 0 is the generator of getRandom(proteinID)).
+	 * @param proteinID	  a valid proteinID
+	 * @param attempt	  attempt number
+	 * @return random	  a random number generator for the protein & attempt
+	 */
+	protected SplittableRandom getRandom(String proteinID, int attempt) {
+		/* 64 bit FNV-1a hash of the proteinID (String.hashCode has only 32 bits)*/
+		long hash = 0xcbf29ce484222325L;
+		for (int position = 0; position < proteinID.length(); position++) {
+			hash ^= proteinID.charAt(position);
+			hash *= 0x100000001b3L;
+		}//for position
+		return new SplittableRandom(seed ^ hash ^ (attempt * 0x9e3779b97f4a7c15L));
+	}//getRandom
+	
+	/**
+	 * Prepares the generator before decoy proteins are generated one protein at a time
+	 * (ex: by DecoyPipeline). Generators that need statistics of the whole target data
+	 * compute them here. Does nothing by default.
+	 */
+	public void prepare() {
+	}//prepare
+	
+	/**
+	 * Prepares the generator from the given target protein sequences instead of targetSeqDict
+	 * (ex: StreamingDecoyPipeline, whose targetSeqDict only holds the proteins in flight).
+	 * Calls prepare() by default.
+	 * @param targetSeqs	all the target protein sequences
+	 */
+	public void prepare(Collection<? extends CharSequence> targetSeqs) {
+		prepare();
+	}//prepare
+	
+	/**
+	 * Checks a decoy protein generated by generateDecoy. Always true by default.
+	 * @param proteinID	  a valid proteinID
+	 * @param targetSeq	  target protein sequence the decoy protein was generated from
+	 * @param decoySeq	  decoy protein sequence generated for the proteinID
+	 * @return true if the decoy protein was properly generated, else false
+	 */
+	protected boolean isDecoyCorrect(String proteinID, CharSequence targetSeq, String decoySeq) {
+		return true;
+	}//isDecoyCorrect
+	
+	/**
+	 * Creates a decoy protein information heading ("XXX_" + target protein info heading)
+	 * @param targetInfo	target protein information heading (starts with ">")
+	 * @return decoyInfo	decoy protein information heading (starts with ">XXX_")
+	 */
+	protected static String toDecoyInfo(String targetInfo) {
+		return DECOY_PREFIX + targetInfo.substring(1); //get after ">"
+	}//toDecoyInfo
+	
+	
+	/**
+	 * Generate decoy protein information header ("XXX_" + target protein info heading) 
+	 * corresponding to all target proteins from targetInfoDict.
+	 * Stores decoy protein information in the decoyInfoDict where each entry is
+	 * [proteinID, decoy protein information]
+	 */
+ 	public void generateDecoyInfo () {
+ 		/*Get all the protein ids*/
+		Set<String> idSet = targetInfoDict.keySet();
+
+		/*Generate decoy information header for all decoy proteins*/
+		 for (String proteinID: idSet) {
+
+			 /* 1. Create decoy protein information heading ("XXX_" + target protein info heading)*/
+			 String decoyInfo = toDecoyInfo(targetInfoDict.get(proteinID));
+			 
+			 /* 2. Store it into the decoyInfoDict*/
+			 decoyInfoDict.put(proteinID, decoyInfo);
+		 }// for proteinID	 
+		 
+		 /* Confirm postcondition: The decoy proteinIDs and target protein IDs are the same. 
+		  *						   i.e. Have the same key sets. 
+		  */
+		 assert(targetInfoDict.keySet().equals(decoyInfoDict.keySet()));
+	}//decoyInfoGenerator()
+
+
+
+
+	//***********************************************Getters***********************************************
+ 	/**
+ 	 * Returns the current version of decoySeqDict
+ 	 * @return decoySeqDict		a Dictionary (Map<String, String>), where each
+	 * 		   					entry stores  [Key: proteinID, Value: decoy protein sequence]
+ 	 */
+ 	
+	public Map<String, String> getDseqDict(){
+		return decoySeqDict;
+	}//getDseqDict
+	
+	/**
+ 	 * Returns the current version of decoyInfoDict
+ 	 * @return decoySeqDict		a Dictionary (Map<String, String>), where each
+	 * 		   					entry stores  [Key: proteinID, Value: decoy protein information]
+ 	 */
+	public Map<String,String> getDinfoDict(){
+		return decoyInfoDict;
+	}//getDinfoDict
+	
+ 	/**
+ 	 * Returns the current version of targetSeqDict
+ 	 * @return decoySeqDict		a Dictionary (Map<String, String>), where each
+	 * 		   					entry stores  [Key: proteinID, Value: target protein sequence]
+ 	 */
+ 	
+	  public Map<String, String> getTseqDict(){
+		return targetSeqDict;
+	}//getTseqDict
+	
+		
+ 	/**
+ 	 * Returns the current version of targetInfoDict
+ 	 * @return targetInfoDict	a Dictionary (Map<String, String>), where each
+	 * 		   					entry stores  [Key: proteinID, Value: target protein information]
+ 	 */
+ 	
+	  public Map<String, String> getTinfoDict(){
+		return targetInfoDict;
+	}//getTinfoDict
+
+
+	/**
+	 * @return seed		master seed of the random number generators
+	 */
+	public long getSeed(){
+		return seed;
+	}//getSeed
+	
+	/**
+	 * @return parallel	true if decoy proteins are generated on all cores
+	 */
+	public boolean isParallel(){
+		return parallel;
+	}//isParallel
+
+	//***********************************************Setters***********************************************
+
+	/**
+	 * Sets the master seed (the same seed & target data always give the same decoy data)
+	 * @param seed		master seed of the random number generators
+	 */
+	public void setSeed(long seed){
+		this.seed = seed;
+	}//setSeed
+	
+	/**
+	 * @param parallel	true to generate decoy proteins on all cores
+	 */
+	public void setParallel(boolean parallel){
+		this.parallel = parallel;
+	}//setParallel
+
+	/**
+ 	* Sets the targetSeqDict to the given parameter
+ 	* @param targetSeqDict	 a Dictionary (Map<String, String>), where each
+	 * 		   				 entry stores  [Key: proteinID, Value: target protein sequence]
+ 	*/
+	 public void setTseqDict(Map<String ,String> targetSeqDict){
+		this.targetSeqDict = targetSeqDict;
+	}//setTseqDict
+	
+	/**
+ 	* Sets the targetInfoDict to the given parameter
+ 	* @param targetInfoDict	 a Dictionary (Map<String, String>), where each
+	 * 		   				 entry stores  [Key: proteinID, Value: target protein information]
+ 	*/
+	 public void setTinfoDict(Map<String ,String> targetInfoDict){
+		this.targetInfoDict = targetInfoDict;
+	}//setTseqDict
+	
+	/**
+ 	* Sets the decoySeqDict to the given parameter
+ 	* @param decoySeqDict	 a Dictionary (Map<String, String>), where each
+	 * 		   				 entry stores  [Key: proteinID, Value: decoy protein sequence]
+ 	*/
+	 public void setDseqDict(Map<String ,String> decoySeqDict){
+		this.decoySeqDict = decoySeqDict;
+	}//setDseqDict
+
+	/**
+ 	* Sets the decoyInfoDict to the given parameter
+ 	* @param decoyInfoDict	 a Dictionary (Map<String, String>), where each
+	 * 		   				 entry stores  [Key: proteinID, Value: decoy protein information]
+ 	*/
+	 public void setDinfoDict (Map<String ,String> decoyInfoDict){
+		this.decoyInfoDict = decoyInfoDict;
+	}//setDinfoDict
+
+	
+	
+}//end of class
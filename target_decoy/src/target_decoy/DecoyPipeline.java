@@ -0,0 +1,249 @@
+package target_decoy;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Generates decoy data for any number of decoy strategies (DecoyGenerator) in a single pass.
+ * The target file is parsed once, the target amino acid statistics are computed once,
+ * and every target protein is handed to each configured DecoyGenerator, whose decoy
+ * protein goes straight to that strategy's own DecoySink.
+ * @author junghyey
+ */
+public class DecoyPipeline {
+
+	/**
+	 * Target protein data shared by all strategies (dictionaries: views of the table)
+	 */
+	private final ProteinTable targetTable;
+	private final Map<String, String> targetSeqDict;
+	private final Map<String, String> targetInfoDict;
+	private final AminoAcidHistogram targetAminoCount; //count of each target amino acid
+
+	/**
+	 * Configured strategies (generators.get(i) writes into sinks.get(i))
+	 */
+	protected final List<DecoyGenerator> generators;
+	protected final List<DecoySink> sinks;
+	private final static int BATCH_SIZE = 4096; //proteins generated before being written
+
+	/**
+	 * Constructor for the class (parses the target file).
+	 * @param targetFileName	full file path (path + name) of the target protein file
+	 */
+	public DecoyPipeline(String targetFileName) {
+		this(new DictionaryGenerator(targetFileName));
+	}//DecoyPipeline
+
+	/**
+	 * Constructor for the class
+	 * @param targetData	already parsed target protein data
+	 */
+	public DecoyPipeline(DictionaryGenerator targetData) {
+		/*Target statistics are computed only once*/
+		this(targetData.getTable(), targetData.getSeqDict(), targetData.getInfoDict(),
+			 AminoAcidHistogram.count(targetData.getSeqDict(), true));
+	}//DecoyPipeline
+
+	/**
+	 * Constructor for subclasses holding the target data in another form (ex: StreamingDecoyPipeline)
+	 * @param targetTable		parsed target proteins (null if not held by the pipeline)
+	 * @param targetSeqDict		target sequence data handed to the generators
+	 * @param targetInfoDict	target info data handed to the generators
+	 * @param targetAminoCount	amino acid count of all the target proteins
+	 */
+	protected DecoyPipeline(ProteinTable targetTable, Map<String, String> targetSeqDict,
+							Map<String, String> targetInfoDict, AminoAcidHistogram targetAminoCount) {
+		this.targetTable	  = targetTable;
+		this.targetSeqDict	  = targetSeqDict;
+		this.targetInfoDict	  = targetInfoDict;
+		this.targetAminoCount = targetAminoCount;
+
+		generators = new ArrayList<DecoyGenerator>();
+		sinks      = new ArrayList<DecoySink>();
+	}//DecoyPipeline
+
+	/**
+	 * Adds a decoy strategy to the pipeline.
+	 * @param generator		a decoy generator created with this pipeline's target data (getTseqDict, getTinfoDict)
+	 * @param sink			output of the strategy
+	 */
+	public void addStrategy(DecoyGenerator generator, DecoySink sink) {
+		generators.add(generator);
+		sinks.add(sink);
+	}//addStrategy
+
+	/**
+	 * Generates the decoy proteins of all strategies in one pass over the target proteins
+	 * and closes every sink (writing its reports). The strategies are removed afterwards,
+	 * so the same pipeline (target data) can be reused for other strategies.
+	 * @throws IOException	if writing any output fails
+	 */
+	public void run() throws IOException {
+
+		/* 1. Prepare every strategy (ex: DeBruijn combination mapping), walking the table residues*/
+		prepare(targetTable.residues());
+
+		/* 2. Fan every target protein out to all strategies (BATCH_SIZE proteins at a time, in table order)*/
+		try {
+			for (int from = 0; from < targetTable.size(); from += BATCH_SIZE)
+				runBatch(from, Math.min(targetTable.size(), from + BATCH_SIZE));
+			
+			/* 3. Confirm the collision candidates against the target peptides*/
+			verify(targetTable.residues());
+		}//try
+		finally {
+			/* 4. Close all the outputs, even if one of them failed*/
+			closeAll();
+		}//finally
+
+	}//run
+
+	/**
+	 * Prepares every strategy and indexes the target peptides of the collision detectors.
+	 * @param targetSeqs	all the target protein sequences
+	 */
+	protected void prepare(Collection<? extends CharSequence> targetSeqs) {
+		for (DecoyGenerator generator: generators)
+			generator.prepare(targetSeqs);
+		for (DecoySink sink: sinks) {
+			if (sink.getCollisionDetector() != null && !sink.getCollisionDetector().isIndexed())
+				sink.getCollisionDetector().indexTargets(targetSeqs);
+		}//for sink
+	}//prepare
+
+	/**
+	 * Confirms the collision candidates of every strategy against the target peptides.
+	 * @param targetSeqs	all the target protein sequences
+	 */
+	protected void verify(Collection<? extends CharSequence> targetSeqs) {
+		for (DecoySink sink: sinks) {
+			if (sink.getCollisionDetector() != null)
+				sink.getCollisionDetector().verify(targetSeqs);
+		}//for sink
+	}//verify
+
+	/**
+	 * Closes all the outputs, even if one of them fails, and removes the strategies.
+	 * @throws IOException	if closing any output fails
+	 */
+	protected void closeAll() throws IOException {
+		IOException closeError = null;
+		for (DecoySink sink: sinks) {
+			try {
+				sink.close();
+			}//try
+			catch (IOException ioe) {
+				closeError = ioe;
+			}//catch
+		}// for sink
+		generators.clear();
+		sinks.clear();
+		if (closeError != null)
+			throw closeError;
+	}//closeAll
+
+	/**
+	 * Generates & writes the decoy proteins of a batch of target proteins for every strategy.
+	 * Generators set to parallel generate the batch on all cores; the proteins are still
+	 * written in the batch order. Generators of the target table generate by protein index
+	 * (no proteinID lookup).
+	 * @param from		index of the first target protein of the batch
+	 * @param to		index after the last target protein of the batch
+	 * @throws IOException	if writing fails
+	 */
+	private void runBatch(int from, int to) throws IOException {
+		String[] decoySeqs = new String[to - from];
+
+		for (int strategy = 0; strategy < generators.size(); strategy++) {
+			DecoyGenerator generator = generators.get(strategy);
+			boolean byIndex = generator.getTseqDict() == targetTable;
+
+			/* 1. Generate */
+			if (generator.isParallel())
+				IntStream.range(0, decoySeqs.length).parallel()
+						 .forEach(position -> decoySeqs[position] = generate(generator, byIndex, from + position));
+			else
+				for (int position = 0; position < decoySeqs.length; position++)
+					decoySeqs[position] = generate(generator, byIndex, from + position);
+
+			/* 2. Write in order */
+			for (int position = 0; position < decoySeqs.length; position++)
+				write(strategy, targetTable.getProteinID(from + position), targetTable.getProteinInfo(from + position),
+					  targetTable.getResidues(from + position), decoySeqs[position]);
+		}// for strategy
+	}//runBatch
+
+	/**
+	 * @param byIndex	true if the generator's target data is the target table
+	 * @param protein	index of the target protein in the target table
+	 * @return the decoy protein of the target protein
+	 */
+	private String generate(DecoyGenerator generator, boolean byIndex, int protein) {
+		return byIndex ? generator.generateDecoy(protein) : generator.generateDecoy(targetTable.getProteinID(protein));
+	}//generate
+
+	/**
+	 * Checks a decoy protein for collisions (possibly regenerating it) and writes it with its target protein.
+	 * Must be called in the output order of the strategy.
+	 * @param strategy		index of the strategy
+	 * @param proteinID		target proteinID
+	 * @param targetInfo	target protein info heading
+	 * @param targetSeq		target protein sequence
+	 * @param decoySeq		decoy protein sequence generated by the strategy
+	 * @throws IOException	if writing fails
+	 */
+	protected void write(int strategy, String proteinID, String targetInfo, CharSequence targetSeq, String decoySeq) throws IOException {
+		DecoyGenerator generator = generators.get(strategy);
+		DecoySink sink = sinks.get(strategy);
+
+		/* Check (and possibly regenerate) decoy proteins sharing peptides with the target */
+		if (sink.getCollisionDetector() != null)
+			decoySeq = sink.getCollisionDetector().check(generator, proteinID, targetSeq, decoySeq);
+
+		/* Confirm postcondition: The decoy protein was properly generated.*/
+		assert(generator.isDecoyCorrect(proteinID, targetSeq, decoySeq));
+
+		sink.write(targetInfo, targetSeq, DecoyGenerator.toDecoyInfo(targetInfo), decoySeq);
+	}//write
+
+	/**
+	 * Writes the target amino acid count & proportion reports (computed once).
+	 * @param countFileName			full file path of the target amino acid count report
+	 * @param proportionFileName	full file path of the target amino acid proportion report
+	 * @throws IOException			if a report cannot be written
+	 */
+	public void writeTargetReports(String countFileName, String proportionFileName) throws IOException {
+		Database.writeCSV(countFileName, targetAminoCount.toMap());
+		Database.writeCSV(proportionFileName, targetAminoCount.getProportion(6));
+	}//writeTargetReports
+
+	//***********************************************Getters***********************************************
+	/**
+	 * @return targetSeqDict	a Dictionary (Map<String, String>), where each
+	 * 		   					entry stores  [Key: proteinID, Value: target protein sequence]
+	 */
+	public Map<String, String> getTseqDict() {
+		return targetSeqDict;
+	}//getTseqDict
+
+	/**
+	 * @return targetInfoDict	a Dictionary (Map<String, String>), where each
+	 * 		   					entry stores  [Key: proteinID, Value: target protein information]
+	 */
+	public Map<String, String> getTinfoDict() {
+		return targetInfoDict;
+	}//getTinfoDict
+
+	/**
+	 * @return targetAminoCount	amino acid count of the target proteins
+	 */
+	public AminoAcidHistogram getTargetCount() {
+		return targetAminoCount;
+	}//getTargetCount
+
+}//end of class
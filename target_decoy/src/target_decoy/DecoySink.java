@@ -0,0 +1,126 @@
+package target_decoy;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Output of a single decoy strategy in DecoyPipeline.
+ * Receives target & decoy proteins one at a time and writes them to the concatenated
+ * target decoy database (and optionally to a decoy-only file) while counting the decoy
+ * amino acids. The proteins are formatted on all cores (ParallelFastaWriter), after write returns.
+ * The decoy reports are written when the sink is closed.
+ * @author junghyey
+ */
+public class DecoySink implements Closeable {
+
+	private final ParallelFastaWriter databaseWriter; //concatenated target decoy database
+	private final ParallelFastaWriter decoyWriter;    //decoy proteins only (null if not needed)
+	private final String countFileName;
+	private final String proportionFileName;
+	private final AminoAcidHistogram decoyAminoCount; //count of each decoy amino acid
+	private CollisionDetector collisionDetector; //target-decoy peptide collisions (null if not checked)
+	private String collisionSummaryFileName;
+	private String collisionProteinFileName;
+
+	/**
+	 * Constructor for the class (opens the output files).
+	 * @param databaseFileName		full file path (path + name) of the concatenated target decoy file
+	 * @param decoyFileName			full file path of the decoy-only FASTA file (null to skip)
+	 * @param countFileName			full file path of the decoy amino acid count report (null to skip)
+	 * @param proportionFileName	full file path of the decoy amino acid proportion report (null to skip)
+	 * @throws IOException			if an output file cannot be created
+	 */
+	public DecoySink(String databaseFileName, String decoyFileName,
+					 String countFileName, String proportionFileName) throws IOException {
+		databaseWriter = ParallelFastaWriter.open(databaseFileName);
+		decoyWriter    = (decoyFileName == null) ? null : ParallelFastaWriter.open(decoyFileName);
+		this.countFileName      = countFileName;
+		this.proportionFileName = proportionFileName;
+		decoyAminoCount = new AminoAcidHistogram();
+	}//DecoySink
+
+	/**
+	 * Writes a target protein followed by its decoy protein.
+	 * @param targetInfo	target protein info heading
+	 * @param targetSeq		target protein sequence, unchanged until close (ex: String, ProteinStore.getResidues)
+	 * @param decoyInfo		decoy protein info heading
+	 * @param decoySeq		decoy protein sequence
+	 * @throws IOException	if writing fails
+	 */
+	public void write(String targetInfo, CharSequence targetSeq, String decoyInfo, String decoySeq) throws IOException {
+		/*Concatenated database: > target info, target sequence, > decoy info, decoy sequence*/
+		databaseWriter.write(targetInfo, targetSeq);
+		databaseWriter.write(decoyInfo, decoySeq);
+
+		if (decoyWriter != null)
+			decoyWriter.write(decoyInfo, decoySeq);
+
+		/*Accumulate decoy statistics*/
+		decoyAminoCount.add(decoySeq);
+	}//write
+
+	/**
+	 * Closes the output files and writes the decoy amino acid reports.
+	 * Both files are closed even if closing the first one fails (the second failure is suppressed).
+	 * @throws IOException	if closing fails
+	 */
+	@Override
+	public void close() throws IOException {
+		Throwable failure = null;
+		try {
+			databaseWriter.close();
+		}//try
+		catch (Throwable t) {
+			failure = t;
+			throw t;
+		}//catch
+		finally {
+			try {
+				if (decoyWriter != null)
+					decoyWriter.close();
+			}//try
+			catch (IOException ioe) {
+				if (failure == null)
+					throw ioe;
+				failure.addSuppressed(ioe);
+			}//catch
+		}//finally
+
+		if (countFileName != null)
+			Database.writeCSV(countFileName, decoyAminoCount.toMap());
+		if (proportionFileName != null)
+			Database.writeCSV(proportionFileName, decoyAminoCount.getProportion(6));
+		if (collisionDetector != null && collisionDetector.isVerified())
+			collisionDetector.writeReports(collisionSummaryFileName, collisionProteinFileName);
+	}//close
+	
+	//***********************************************Setters***********************************************
+	/**
+	 * Checks the decoy proteins of this strategy for target-decoy peptide collisions
+	 * (DecoyPipeline runs the detector, the reports are written when the sink is closed).
+	 * @param collisionDetector	 	a detector
+	 * @param summaryFileName	 	full file path of the collision summary report
+	 * @param proteinFileName	 	full file path of the colliding decoy proteins report
+	 */
+	public void setCollisionDetector(CollisionDetector collisionDetector, String summaryFileName, String proteinFileName) {
+		this.collisionDetector		  = collisionDetector;
+		this.collisionSummaryFileName = summaryFileName;
+		this.collisionProteinFileName = proteinFileName;
+	}//setCollisionDetector
+
+	//***********************************************Getters***********************************************
+	/**
+	 * @return decoyAminoCount	amino acid count of the decoy proteins written so far
+	 */
+	public AminoAcidHistogram getDecoyCount() {
+		return decoyAminoCount;
+	}//getDecoyCount
+	
+	/**
+	 * @return collisionDetector	the collision detector of the strategy (null if not checked)
+	 */
+	public CollisionDetector getCollisionDetector() {
+		return collisionDetector;
+	}//getCollisionDetector
+
+}//end of class
@@ -0,0 +1,96 @@
+package target_decoy;
+
+/**
+ * KmerTable backed by flat arrays indexed by the packed combination
+ * (32^k slots, used up to 4 letters).
+ * @author junghyey
+ */
+public class DenseKmerTable extends KmerTable {
+
+	public final static int MAX_K = 4; //32^4 = 1M slots
+
+	private final int[]  counts;
+	private final char[] residues;
+	private int size;
+
+	/**
+	 * Constructor for the class
+	 * @param k		letters per combination (<= MAX_K)
+	 * @throws IllegalArgumentException if k > MAX_K
+	 */
+	public DenseKmerTable(int k) {
+		super(k);
+		if (k > MAX_K)
+			throw new IllegalArgumentException("A dense table supports at most " + MAX_K + " letters");
+
+		int slots = 1 << (KmerCodec.BITS_PER_RESIDUE * k);
+		counts   = new int[slots];
+		residues = new char[slots];
+	}//DenseKmerTable
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void increment(long key) {
+		if (counts[(int) key]++ == 0 && residues[(int) key] == 0)
+			size++;
+	}//increment
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setCount(long key, int count) {
+		if (counts[(int) key] == 0 && residues[(int) key] == 0 && count != 0)
+			size++;
+		counts[(int) key] = count;
+	}//setCount
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getCount(long key) {
+		return counts[(int) key];
+	}//getCount
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setResidue(long key, char residue) {
+		if (counts[(int) key] == 0 && residues[(int) key] == 0 && residue != 0)
+			size++;
+		residues[(int) key] = residue;
+	}//setResidue
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public char getResidue(long key) {
+		return residues[(int) key];
+	}//getResidue
+
+	/**
+	 * {@inheritDoc}
+	 * (packed key order)
+	 */
+	@Override
+	public void forEach(EntryVisitor visitor) {
+		for (int key = 0; key < counts.length; key++) {
+			if (counts[key] != 0 || residues[key] != 0)
+				visitor.visit(key, counts[key], residues[key]);
+		}//for key
+	}//forEach
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return size;
+	}//size
+
+}//end of class
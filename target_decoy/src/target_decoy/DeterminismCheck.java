@@ -0,0 +1,112 @@
+package target_decoy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Checks that a seed gives the same decoy data whatever the number of threads (see TargetDecoy.setSeed):
+ * the random, deBruijn, shuffle & reverse databases (with collision check & regeneration) of a synthetic
+ * proteome are generated serially, in parallel (parallel parsing & generation) and streamed
+ * (StreamingDecoyPipeline, STREAMING_THREADS generating threads), and must be identical byte for byte.
+ *
+ * Working directory: target_decoy>src
+ * java -ea target_decoy/DeterminismCheck [number of proteins (default 3000)] [seed (default 11)]
+ * @author junghyey
+ */
+public class DeterminismCheck {
+
+	public final static int DEFAULT_PROTEINS = 3000;
+	public final static long DEFAULT_SEED = 11;
+	private final static int STREAMING_THREADS = 4;
+	private final static String[] STRATEGIES = {"random", "deBruijn", "shuffle", "reverse"};
+	private final static String[] MODES = {"serial", "parallel", "streaming"};
+
+	/*main method starts here*/
+	public static void main(String[] args) throws IOException {
+		int proteinCount = (args.length > 0) ? Integer.parseInt(args[0]) : DEFAULT_PROTEINS;
+		long seed = (args.length > 1) ? Long.parseLong(args[1]) : DEFAULT_SEED;
+
+		/* 1. Synthetic proteome */
+		File directory = Files.createTempDirectory("determinism_check").toFile();
+		directory.deleteOnExit();
+		File targetFile = new File(directory, "target.fasta");
+		targetFile.deleteOnExit();
+		new File(targetFile.getPath() + FastaIndex.INDEX_SUFFIX).deleteOnExit(); //written by the streaming pipeline
+		Benchmark.writeProteome(targetFile.getPath(), proteinCount, seed);
+
+		/* 2. Decoy databases of every mode */
+		for (String mode: MODES) {
+			DecoyPipeline pipeline;
+			if (mode.equals("streaming"))
+				pipeline = new StreamingDecoyPipeline(targetFile.getPath(), STREAMING_THREADS);
+			else
+				pipeline = new DecoyPipeline(new DictionaryGenerator(targetFile.getPath(), mode.equals("parallel")));
+			for (String strategy: STRATEGIES)
+				pipeline.addStrategy(newGenerator(strategy, pipeline, seed, mode.equals("parallel")),
+									 newSink(directory, strategy, mode));
+			pipeline.run();
+		}//for mode
+
+		/* 3. Compare with the serial output */
+		for (String strategy: STRATEGIES) {
+			for (int mode = 1; mode < MODES.length; mode++) {
+				for (String output: new String[] {"database.fasta", "collision_summary.csv"}) {
+					File expected = new File(directory, strategy + "_" + MODES[0] + "_" + output);
+					File actual   = new File(directory, strategy + "_" + MODES[mode] + "_" + output);
+					check(Files.mismatch(expected.toPath(), actual.toPath()) == -1,
+						  strategy + ": " + MODES[mode] + " " + output + " differs from " + MODES[0]);
+				}//for output
+			}//for mode
+		}//for strategy
+
+		System.out.println("Same decoy data serially, in parallel & streamed (" + proteinCount + " proteins, seed " + seed + "): ok");
+	}//main
+
+	/**
+	 * Creates a generator of the pipeline's target data, configured like TargetDecoy does.
+	 */
+	private static DecoyGenerator newGenerator(String strategy, DecoyPipeline pipeline, long seed, boolean parallel) {
+		DecoyGenerator generator;
+		if (strategy.equals("random")) {
+			RandomDecoy random = new RandomDecoy(pipeline.getTseqDict(), pipeline.getTinfoDict());
+			random.setSampler(new AminoAcidSampler(pipeline.getTargetCount().toArray()));
+			generator = random;
+		}//if
+		else if (strategy.equals("deBruijn")) {
+			DeBruijnDecoy deBruijn = new DeBruijnDecoy(pipeline.getTseqDict(), pipeline.getTinfoDict());
+			deBruijn.setSampler(new AminoAcidSampler(pipeline.getTargetCount().toArray()));
+			generator = deBruijn;
+		}//else if
+		else if (strategy.equals("shuffle"))
+			generator = new ShuffleDecoy(pipeline.getTseqDict(), pipeline.getTinfoDict());
+		else
+			generator = new ReverseDecoy(pipeline.getTseqDict(), pipeline.getTinfoDict());
+		generator.setSeed(seed);
+		generator.setParallel(parallel);
+		return generator;
+	}//newGenerator
+
+	/**
+	 * Creates the sink of a strategy & mode (concatenated database & collision summary, regenerating collisions).
+	 */
+	private static DecoySink newSink(File directory, String strategy, String mode) throws IOException {
+		String prefix = new File(directory, strategy + "_" + mode + "_").getPath();
+		DecoySink sink = new DecoySink(prefix + "database.fasta", null, null, null);
+		CollisionDetector collisionDetector = new CollisionDetector();
+		collisionDetector.setMaxAttempts(3);
+		sink.setCollisionDetector(collisionDetector, prefix + "collision_summary.csv", prefix + "collision_proteins.csv");
+		for (String output: new String[] {"database.fasta", "collision_summary.csv", "collision_proteins.csv"})
+			new File(prefix + output).deleteOnExit();
+		return sink;
+	}//newSink
+
+	/**
+	 * @throws AssertionError if the condition is false (with or without -ea)
+	 */
+	private static void check(boolean condition, String message) {
+		if (!condition)
+			throw new AssertionError(message);
+	}//check
+
+}//end of class
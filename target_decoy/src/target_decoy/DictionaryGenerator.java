@@ -1,137 +1,111 @@
-package target_decoy;
-
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Scanner;
-
-/**
- * Represents target protein data in dictionary form
- * @author   junghyey 
- */
-public class DictionaryGenerator {
-	
-	/**
-	 * proteinSeqDict stores [proteinID, protein sequence] ([K,V] pair)
-	 * proteinInfoDict stores [proteinID, protein information heading] ([K,V] pair)
-	 */
-	private Map<String, String> proteinSeqDict  = new HashMap<String, String>();
-	private Map<String, String> proteinInfoDict = new HashMap<String, String>();
-	private static char HEADING_SIGNATURE= '>';
-	
-	
-	/**
-	 * Constructor for the class: 
-	 * Generates dictionaries for protein sequences and protein information.
-	 * @param file_name	  String (full file path (path + name))
-	 */
-	public DictionaryGenerator(String fileName) {
-
-		proteinSeqDict  = new HashMap<String, String>();
-		proteinInfoDict = new HashMap<String, String>();
-
-		Scanner fileReader = null; 
-		StringBuilder proteinSeqBuilder = new StringBuilder();
-		String proteinId = null;
-		
-		try {
-			/*Read a file*/
-			File fastaFile = new File(fileName);
-			fileReader = new Scanner(fastaFile);
-			
-			/*Read one line in the file */
-			while (fileReader.hasNextLine()) {
-				
-				String data = fileReader.nextLine(); 
-				char [] char_array = data.toCharArray(); // to check for HEADING_SIGNATURE
-					
-					/* Store the protein information heading in proteinInfoDict*/
-					if (char_array[0] == HEADING_SIGNATURE) {
-						/*Protein info heading indicates the start of the new protein.*/
-						/* 1. Initialize proteinSeqBuilder for a new protein. */
-						proteinSeqBuilder.setLength(0); 
-						
-						/* 2. Find protein id in the protein info heading.*/
-						proteinId = idFinder(char_array);
-						
-						/* 3. Update proteinInfoDict with [K,V] =>  [protein id, protein info]*/
-						proteinInfoDict.put(proteinId, data); // information of the protein
-					}//if
-					
-					/* Store the protein amino acid sequence in proteinSeqDict*/
-					else {
-						/*1. Obtain full amino acid sequence for the according protein*/
-						proteinSeqBuilder = proteinSeqBuilder.append(data); //Append each line of the sequence to get the full sequence
-						String protein_seq = proteinSeqBuilder.toString(); 
-						
-						/* 2. Update proteinSeqDict with [K,V] =>  [protein id, protein sequence]*/ 
-						proteinSeqDict.put(proteinId, protein_seq); //amino acid sequence of the protein
-						}//else 		
-					}//while
-			}//try
-		
-		catch (FileNotFoundException fne) { //catch error
-				System.err.println("File Not Found");
-				System.exit(1);
-			}// catch
-			
-		finally {// if read was successful, close the file.
-				if (fileReader != null) 
-					fileReader.close();	
-			}// finally
-	}// TargetDictionary
-				
-
-	/**
-	 * Finds a proteinID (ex: "Q9NXB0") from a given protein information heading.
-	 * @param charArray   protein information heading in char array form 
-	 * @return proteinID  String
-	 */
-	private String idFinder (char [] charArray) {
-		
-		StringBuilder sb = new StringBuilder();
-		int idIndex = 0;
-		
-		for (; idIndex < charArray.length; idIndex ++) {
-			
-			if(charArray[idIndex] != '|')
-				continue;
-			else
-				break;
-			
-		}// for idIndex
-
-		for (int i = idIndex + 1; i < charArray.length; i++){
-			if(charArray[i] != '|')
-				sb.append(charArray[i]);
-			else
-				break;
-		}//for i
-		
-		String protein_id = new String(sb);
-		
-		return protein_id;
-		
-	}
-	
-	//***********************************************Getters***********************************************
-	/**
-	 * @return proteinSeqDict 	a Dictionary (Map<String, String>), where each
-	 * 		   					entry stores  [Key: proteinID, Value: target protein sequence]
-	 * 
-	 */
-	public Map<String,String> getSeqDict() {
-		return proteinSeqDict;
-	}//getSeqDict
-	
-	/**
-	 * @return proteinSeqDict	a Dictionary (Map<String, String>), where each
-	 * 		   					entry stores  [Key: proteinID, Value: target protein information heading]
-	 * 
-	 */
-	public Map<String,String> getInfoDict() {
-		return proteinInfoDict;
-	}//getInfoDict
-	
-}//end of class
+package target_decoy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.NoSuchFileException;
+import java.util.Map;
+
+/**
+ * Represents target protein data in dictionary form
+ * @author   junghyey 
+ */
+public class DictionaryGenerator {
+	
+	/**
+	 * proteinTable stores every protein once, under a dense int index (file order)
+	 * proteinSeqDict stores [proteinID, protein sequence] ([K,V] pair): the table itself
+	 * proteinInfoDict stores [proteinID, protein information heading] ([K,V] pair): a view of the table
+	 */
+	private ProteinTable proteinTable = new ProteinTable();
+	private Map<String, String> proteinSeqDict;
+	private Map<String, String> proteinInfoDict;
+
+	/**
+	 * Constructor for the class: 
+	 * Generates dictionaries for protein sequences and protein information.
+	 * (Streams the file with FastaReader, one protein at a time)
+	 * @param file_name	  String (full file path (path + name))
+	 */
+	public DictionaryGenerator(String fileName) {
+		this(fileName, false);
+	}// TargetDictionary
+	
+	/**
+	 * Constructor for the class: 
+	 * Generates dictionaries for protein sequences and protein information.
+	 * @param file_name	  String (full file path (path + name))
+	 * @param parallel	  true to parse the file on all cores (memory mapped chunks, see ParallelFastaParser);
+	 * 					  compressed files are always streamed with FastaReader
+	 * Either way the file may hold at most ProteinStore.MAX_RESIDUES residues (about 2 GB of sequence):
+	 * larger files end the program with an error message.
+	 */
+	public DictionaryGenerator(String fileName, boolean parallel) {
+
+		try {
+			if (parallel && !CompressedIO.isCompressed(fileName))
+				proteinTable = ParallelFastaParser.parse(fileName);
+			else
+				readProteins(fileName);
+		}//try
+		
+		catch (NoSuchFileException fne) { //catch error
+			System.err.println("File Not Found");
+			System.exit(1);
+		}// catch
+		catch (IOException | UncheckedIOException ioe) {
+			System.err.println("File Error");
+			System.exit(1);
+		}// catch
+		catch (IllegalArgumentException iae) { //more residues than a ProteinTable holds
+			System.err.println("File Too Large: " + iae.getMessage());
+			System.exit(1);
+		}// catch
+		
+		proteinSeqDict	= proteinTable;
+		proteinInfoDict = proteinTable.asInfoDict();
+	}// TargetDictionary
+	
+	/**
+	 * Streams the file with FastaReader, one protein at a time.
+	 */
+	private void readProteins(String fileName) throws IOException {
+		try (FastaReader fileReader = FastaReader.open(fileName)) {
+			
+			/*Read one protein in the file */
+			while (fileReader.hasNext()) {
+				FastaRecord record = fileReader.next();
+				
+				/*Intern the protein id: [index] =>  [protein id, protein info, protein sequence]*/
+				proteinTable.add(record.getProteinID(), record.getProteinInfo(), record.getProteinSeq());
+			}//while
+		}//try
+	}//readProteins
+	
+	//***********************************************Getters***********************************************
+	/**
+	 * @return proteinSeqDict 	a Dictionary (Map<String, String>), where each
+	 * 		   					entry stores  [Key: proteinID, Value: target protein sequence]
+	 * 
+	 */
+	public Map<String,String> getSeqDict() {
+		return proteinSeqDict;
+	}//getSeqDict
+	
+	/**
+	 * @return proteinSeqDict	a Dictionary (Map<String, String>), where each
+	 * 		   					entry stores  [Key: proteinID, Value: target protein information heading]
+	 * 
+	 */
+	public Map<String,String> getInfoDict() {
+		return proteinInfoDict;
+	}//getInfoDict
+	
+	/**
+	 * @return proteinTable		the protein table behind both dictionaries
+	 * 							[index: proteinID, protein information heading, protein sequence]
+	 */
+	public ProteinTable getTable() {
+		return proteinTable;
+	}//getTable
+	
+}//end of class
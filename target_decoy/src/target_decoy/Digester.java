@@ -0,0 +1,245 @@
+package target_decoy;
+
+import java.util.Arrays;
+
+/**
+ * In-silico digestion of proteins with a Protease.
+ * Peptides are reported as (protein index, start, end) offsets into the protein sequence
+ * (end exclusive) to a PeptideVisitor: no peptide String is created.
+ * Options:
+ * missed cleavages	peptides can contain up to missedCleavages cleavage sites (0 by default)
+ * semi-specific	only one of the two termini has to be a cleavage site (fully specific by default)
+ * length filter	minLength <= peptide length <= maxLength
+ * mass filter		minMass <= neutral peptide mass <= maxMass (see MassTable, monoisotopic by default)
+ * A digester reuses its work arrays between proteins: use one digester per thread.
+ * @author junghyey
+ */
+public class Digester {
+
+	/**
+	 * Receives the peptides of a digestion.
+	 */
+	public interface PeptideVisitor {
+		/**
+		 * @param proteinIndex	index of the protein (given to digest)
+		 * @param start			position of the first residue of the peptide
+		 * @param end			position after the last residue of the peptide
+		 */
+		void visit(int proteinIndex, int start, int end);
+	}//PeptideVisitor
+
+	private final Protease protease;
+	private MassTable massTable = MassTable.MONOISOTOPIC;
+	private int 	missedCleavages = 0;
+	private boolean semiSpecific	= false;
+	private int 	minLength		= 1;
+	private int 	maxLength		= Integer.MAX_VALUE;
+	private double  minMass			= 0;
+	private double  maxMass			= Double.POSITIVE_INFINITY;
+
+	/**
+	 * Work arrays (grown as needed, reused between proteins)
+	 */
+	private boolean[] isSite = new boolean[1024]; //isSite[position]: a peptide can start/end at position
+	private double[]  prefixMass = new double[1024]; //prefixMass[position]: mass of residues [0, position)
+	private int[]	  prefixUnknown = new int[1024]; //prefixUnknown[position]: unknown residues in [0, position)
+
+	/**
+	 * Constructor for the class (fully specific, no missed cleavage, no filter)
+	 * @param protease	the protease to use to cleave proteins
+	 */
+	public Digester(Protease protease) {
+		this.protease = protease;
+	}//Digester
+
+	/**
+	 * Digests a single protein.
+	 * @param proteinIndex	index of the protein (passed to the visitor as is)
+	 * @param proteinSeq	protein amino acid sequence
+	 * @param visitor		receives every peptide passing the filters
+	 */
+	public void digest(int proteinIndex, CharSequence proteinSeq, PeptideVisitor visitor) {
+		int length = proteinSeq.length();
+		if (length == 0)
+			return;
+
+		/* 1. Find the cleavage sites (protein termini included) */
+		if (isSite.length < length + 1)
+			isSite = new boolean[Math.max(length + 1, isSite.length * 2)];
+		Arrays.fill(isSite, 0, length + 1, false);
+		isSite[0] = true;
+		isSite[length] = true;
+		for (int position = 0; position < length - 1; position++) {
+			if (protease.cleavesAfter(proteinSeq, position))
+				isSite[position + 1] = true;
+		}//for position
+
+		/* 2. Masses of all prefixes (only for the mass filter): mass of [start, end) = prefix[end] - prefix[start] */
+		boolean massFilter = minMass > 0 || maxMass != Double.POSITIVE_INFINITY;
+		if (massFilter) {
+			prefixMass	  = massTable.fillPrefixMasses(proteinSeq, prefixMass);
+			prefixUnknown = massTable.fillUnknownCounts(proteinSeq, prefixUnknown);
+		}//if
+
+		/* 3. Peptides starting at a cleavage site (ending at a cleavage site unless semi-specific) */
+		for (int start = 0; start < length; start++) {
+			if (!isSite[start])
+				continue;
+			int missed = 0;
+			for (int end = start + 1; end <= length && end - start <= maxLength; end++) {
+				if (isSite[end] || semiSpecific)
+					report(proteinIndex, start, end, massFilter, visitor);
+				if (isSite[end] && ++missed > missedCleavages)
+					break;
+			}//for end
+		}//for start
+
+		/* 4. Semi-specific only: peptides ending at a cleavage site, starting anywhere else */
+		if (!semiSpecific)
+			return;
+		for (int end = 1; end <= length; end++) {
+			if (!isSite[end])
+				continue;
+			int missed = 0;
+			for (int start = end - 1; start >= 0 && end - start <= maxLength; start--) {
+				if (isSite[start]) { //already reported in 3., the site becomes a missed cleavage
+					if (++missed > missedCleavages)
+						break;
+					continue;
+				}//if
+				report(proteinIndex, start, end, massFilter, visitor);
+			}//for start
+		}//for end
+	}//digest
+
+	/**
+	 * Checks if the peptides of a protein are disjoint and cover the whole protein
+	 * (fully specific, no missed cleavage, no filter).
+	 * @return true if the digestion partitions every protein
+	 */
+	public boolean isPartitioning() {
+		return missedCleavages == 0 && !semiSpecific && minLength <= 1 && maxLength == Integer.MAX_VALUE
+			   && minMass <= 0 && maxMass == Double.POSITIVE_INFINITY;
+	}//isPartitioning
+
+	/**
+	 * Reports a peptide to the visitor if it passes the length & mass filters.
+	 */
+	private void report(int proteinIndex, int start, int end, boolean massFilter, PeptideVisitor visitor) {
+		if (end - start < minLength)
+			return;
+		if (massFilter) {
+			double mass = massTable.getPeptideMass(prefixMass, prefixUnknown, start, end);
+			if (!(mass >= minMass && mass <= maxMass)) //peptides with an unknown residue (NaN) never pass
+				return;
+		}//if
+		visitor.visit(proteinIndex, start, end);
+	}//report
+
+	//***********************************************Setters***********************************************
+	/**
+	 * @param missedCleavages	maximum number of missed cleavages per peptide (>= 0)
+	 * @throws IllegalArgumentException if missedCleavages < 0
+	 */
+	public void setMissedCleavages(int missedCleavages) {
+		if (missedCleavages < 0)
+			throw new IllegalArgumentException("The number of missed cleavages is < 0: " + missedCleavages);
+		this.missedCleavages = missedCleavages;
+	}//setMissedCleavages
+
+	/**
+	 * @param semiSpecific	true to report peptides with a single specific terminus too
+	 */
+	public void setSemiSpecific(boolean semiSpecific) {
+		this.semiSpecific = semiSpecific;
+	}//setSemiSpecific
+
+	/**
+	 * @param minLength		minimum peptide length (>= 1)
+	 * @param maxLength		maximum peptide length (>= minLength)
+	 * @throws IllegalArgumentException if the range is invalid
+	 */
+	public void setLengthRange(int minLength, int maxLength) {
+		if (minLength < 1 || maxLength < minLength)
+			throw new IllegalArgumentException("Invalid peptide length range: [" + minLength + ", " + maxLength + "]");
+		this.minLength = minLength;
+		this.maxLength = maxLength;
+	}//setLengthRange
+
+	/**
+	 * @param minMass		minimum neutral peptide mass in Da (>= 0)
+	 * @param maxMass		maximum neutral peptide mass in Da (>= minMass)
+	 * @throws IllegalArgumentException if the range is invalid
+	 */
+	public void setMassRange(double minMass, double maxMass) {
+		if (minMass < 0 || maxMass < minMass)
+			throw new IllegalArgumentException("Invalid peptide mass range: [" + minMass + ", " + maxMass + "]");
+		this.minMass = minMass;
+		this.maxMass = maxMass;
+	}//setMassRange
+
+	/**
+	 * @param massTable		masses used by the mass filter (MassTable.MONOISOTOPIC or MassTable.AVERAGE)
+	 */
+	public void setMassTable(MassTable massTable) {
+		this.massTable = massTable;
+	}//setMassTable
+
+	//***********************************************Getters***********************************************
+	/**
+	 * @return massTable	masses used by the mass filter
+	 */
+	public MassTable getMassTable() {
+		return massTable;
+	}//getMassTable
+
+	/**
+	 * @return protease		the protease of the digester
+	 */
+	public Protease getProtease() {
+		return protease;
+	}//getProtease
+
+	/**
+	 * @return missedCleavages	maximum number of missed cleavages per peptide
+	 */
+	public int getMissedCleavages() {
+		return missedCleavages;
+	}//getMissedCleavages
+
+	/**
+	 * @return true if peptides with a single specific terminus are reported
+	 */
+	public boolean isSemiSpecific() {
+		return semiSpecific;
+	}//isSemiSpecific
+
+	/**
+	 * @return minLength	minimum peptide length
+	 */
+	public int getMinLength() {
+		return minLength;
+	}//getMinLength
+
+	/**
+	 * @return maxLength	maximum peptide length
+	 */
+	public int getMaxLength() {
+		return maxLength;
+	}//getMaxLength
+
+	/**
+	 * @return minMass		minimum neutral peptide mass (Da)
+	 */
+	public double getMinMass() {
+		return minMass;
+	}//getMinMass
+
+	/**
+	 * @return maxMass		maximum neutral peptide mass (Da)
+	 */
+	public double getMaxMass() {
+		return maxMass;
+	}//getMaxMass
+
+}//end of class
@@ -0,0 +1,337 @@
+package target_decoy;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Represents a .fai style index of a FASTA file (used by IndexedFastaReader).
+ * Each entry stores [proteinID, heading offset, sequence offset, sequence length,
+ * residues per line, bytes per line], so that a protein can be located in the file
+ * without parsing the proteins before it.
+ * The index file is a tab separated text file (FASTA file name + ".tdidx", not a samtools .fai:
+ * the proteinID is the accession found by FastaRecord.idFinder) starting with the INDEX_HEADER
+ * line, then one line per protein:
+ * proteinID	length	sequence offset	residues per line	bytes per line	heading offset
+ * Only FASTA files whose proteins have even line widths can be indexed (as with samtools faidx),
+ * other files have to be read with FastaReader.
+ * @author junghyey
+ */
+public final class FastaIndex {
+
+	public final static String INDEX_SUFFIX = ".tdidx";
+	public final static String INDEX_HEADER = "#target_decoy FASTA index\t1";
+	private final static int BUFFER_SIZE = 1 << 20;
+
+	/**
+	 * Columns of the index (one element per protein, file order)
+	 */
+	private final List<String> proteinIDs;
+	private final long[] infoOffset;
+	private final long[] seqOffset;
+	private final int[]  seqLength;
+	private final int[]  lineBases;
+	private final int[]  lineBytes;
+	private final Map<String, Integer> idIndex; //[Key: proteinID, Value: position in the columns]
+
+	private FastaIndex(List<String> proteinIDs, long[] infoOffset, long[] seqOffset,
+					   int[] seqLength, int[] lineBases, int[] lineBytes) {
+		this.proteinIDs = proteinIDs;
+		this.infoOffset = infoOffset;
+		this.seqOffset  = seqOffset;
+		this.seqLength  = seqLength;
+		this.lineBases  = lineBases;
+		this.lineBytes  = lineBytes;
+
+		idIndex = new HashMap<String, Integer>(proteinIDs.size() * 2);
+		for (int index = 0; index < proteinIDs.size(); index++)
+			idIndex.put(proteinIDs.get(index), index);
+	}//FastaIndex
+
+	/**
+	 * Loads the index of a FASTA file. Reads (FASTA file name + ".tdidx") if it exists and
+	 * is not older than the FASTA file, otherwise (or if it is not a valid index) builds the index and saves it.
+	 * @param fastaFileName		full file path (path + name) of the FASTA file
+	 * @return index			index of the given FASTA file
+	 * @throws IllegalArgumentException if the FASTA file is compressed (offsets would not match)
+	 * @throws IOException		if a file cannot be read or written, or a protein has lines of different widths
+	 */
+	public static FastaIndex load(String fastaFileName) throws IOException {
+		
+		/*Enforce the precondition: The FASTA file is not compressed*/
+		if (CompressedIO.isCompressed(fastaFileName))
+			throw new IllegalArgumentException("A compressed file cannot be indexed: " + fastaFileName);
+		
+		Path fastaPath = Paths.get(fastaFileName);
+		Path indexPath = Paths.get(fastaFileName + INDEX_SUFFIX);
+
+		if (Files.exists(indexPath) &&
+			Files.getLastModifiedTime(indexPath).compareTo(Files.getLastModifiedTime(fastaPath)) >= 0) {
+			try {
+				return read(indexPath);
+			}//try
+			catch (IOException ioe) {
+				/*Foreign or damaged index file: rebuild it*/
+			}//catch
+		}//if
+
+		FastaIndex index = build(fastaPath);
+		index.write(indexPath);
+		return index;
+	}//load
+
+	/**
+	 * Builds the index by scanning a FASTA file once.
+	 * @param fastaPath			the FASTA file
+	 * @return index			index of the given FASTA file
+	 * @throws IOException		if the file cannot be read or a protein has lines of different widths
+	 */
+	public static FastaIndex build(Path fastaPath) throws IOException {
+
+		List<String> ids = new ArrayList<String>();
+		long[] infoOffset = new long[1024];
+		long[] seqOffset  = new long[1024];
+		int[]  seqLength  = new int[1024];
+		int[]  lineBases  = new int[1024];
+		int[]  lineBytes  = new int[1024];
+
+		ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		StringBuilder infoBuilder = new StringBuilder();
+		long position = 0;       //absolute position of the current byte
+		long lineStart = 0;      //absolute position of the current line
+		int  count = -1;         //index of the current protein
+		boolean inHeading = false;
+		int  bases = 0;          //residues of the current line
+		boolean shortLine = false; //a line shorter than the first line was seen
+
+		try (FileChannel channel = FileChannel.open(fastaPath, StandardOpenOption.READ)) {
+			while (true) {
+				buffer.clear();
+				int read = channel.read(buffer);
+				if (read < 0)
+					break;
+				buffer.flip();
+
+				while (buffer.hasRemaining()) {
+					byte b = buffer.get();
+
+					if (inHeading) {
+						if (b == '\n') {
+							inHeading = false;
+							ids.add(FastaRecord.idFinder(infoBuilder.toString()));
+							seqOffset[count] = position + 1;
+							lineStart = position + 1;
+						}//if end of heading
+						else if (b != '\r')
+							infoBuilder.append((char) b);
+					}//if heading
+					else if (b == '>' && position == lineStart) {
+						/* Start of a new protein, grow the columns if needed */
+						count++;
+						if (count == seqLength.length) {
+							int newSize = count * 2;
+							infoOffset = Arrays.copyOf(infoOffset, newSize);
+							seqOffset  = Arrays.copyOf(seqOffset, newSize);
+							seqLength  = Arrays.copyOf(seqLength, newSize);
+							lineBases  = Arrays.copyOf(lineBases, newSize);
+							lineBytes  = Arrays.copyOf(lineBytes, newSize);
+						}//if grow
+						infoOffset[count] = position;
+						inHeading = true;
+						shortLine = false;
+						infoBuilder.setLength(0);
+					}//else if heading start
+					else if (b == '\n') {
+						if (count >= 0 && bases > 0) {
+							int bytes = (int) (position + 1 - lineStart);
+							if (lineBases[count] == 0) { //first line decides the width
+								lineBases[count] = bases;
+								lineBytes[count] = bytes;
+							}//if
+							else if (shortLine || bases > lineBases[count] ||
+									 (bases == lineBases[count] && bytes != lineBytes[count]))
+								throw new IOException("Different line length in sequence: " + ids.get(count));
+
+							if (bases < lineBases[count])
+								shortLine = true;
+							seqLength[count] += bases;
+						}//if sequence line
+						else if (count >= 0 && seqLength[count] > 0)
+							shortLine = true; //blank line inside a sequence
+
+						bases = 0;
+						lineStart = position + 1;
+					}//else if end of line
+					else if (b != '\r' && count >= 0)
+						bases++;
+
+					position++;
+				}//while buffer
+			}//while channel
+		}//try
+
+		/* Last line without a new line character */
+		if (inHeading) {
+			ids.add(FastaRecord.idFinder(infoBuilder.toString()));
+			seqOffset[count] = position;
+		}//if
+		else if (count >= 0 && bases > 0) {
+			if (shortLine || (lineBases[count] != 0 && bases > lineBases[count]))
+				throw new IOException("Different line length in sequence: " + ids.get(count));
+			if (lineBases[count] == 0) {
+				lineBases[count] = bases;
+				lineBytes[count] = (int) (position - lineStart) + 1; //as if it ended with '\n'
+			}//if
+			seqLength[count] += bases;
+		}//else if
+
+		int size = count + 1;
+		return new FastaIndex(ids, Arrays.copyOf(infoOffset, size), Arrays.copyOf(seqOffset, size),
+							  Arrays.copyOf(seqLength, size), Arrays.copyOf(lineBases, size),
+							  Arrays.copyOf(lineBytes, size));
+	}//build
+
+	/**
+	 * Reads a saved index file.
+	 * @param indexPath			the index file (FASTA file name + ".tdidx")
+	 * @return index			the index stored in the file
+	 * @throws IOException		if the file cannot be read or is not a valid index
+	 */
+	public static FastaIndex read(Path indexPath) throws IOException {
+		List<String> ids = new ArrayList<String>();
+		List<long[]> rows = new ArrayList<long[]>();
+
+		try (BufferedReader reader = Files.newBufferedReader(indexPath, StandardCharsets.UTF_8)) {
+			String line = reader.readLine();
+			if (!INDEX_HEADER.equals(line))
+				throw new IOException("Not a target_decoy FASTA index: " + indexPath);
+			while ((line = reader.readLine()) != null) {
+				String[] columns = line.split("\t");
+				if (columns.length != 6)
+					throw new IOException("Invalid index line: " + line);
+				ids.add(columns[0]);
+				long[] row = new long[5];
+				try {
+					for (int column = 1; column < 6; column++)
+						row[column - 1] = Long.parseLong(columns[column]);
+				}//try
+				catch (NumberFormatException nfe) {
+					throw new IOException("Invalid index line: " + line, nfe);
+				}//catch
+				rows.add(row);
+			}//while
+		}//try
+
+		int size = ids.size();
+		long[] infoOffset = new long[size];
+		long[] seqOffset  = new long[size];
+		int[]  seqLength  = new int[size];
+		int[]  lineBases  = new int[size];
+		int[]  lineBytes  = new int[size];
+		for (int index = 0; index < size; index++) {
+			long[] row = rows.get(index);
+			seqLength[index]  = (int) row[0];
+			seqOffset[index]  = row[1];
+			lineBases[index]  = (int) row[2];
+			lineBytes[index]  = (int) row[3];
+			infoOffset[index] = row[4];
+		}//for index
+		return new FastaIndex(ids, infoOffset, seqOffset, seqLength, lineBases, lineBytes);
+	}//read
+
+	/**
+	 * Saves the index as a tab separated file.
+	 * @param indexPath		the index file to create (or overwrite)
+	 * @throws IOException	if the file cannot be written
+	 */
+	public void write(Path indexPath) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(indexPath, StandardCharsets.UTF_8)) {
+			writer.write(INDEX_HEADER);
+			writer.write('\n');
+			for (int index = 0; index < proteinIDs.size(); index++) {
+				writer.write(proteinIDs.get(index) + "\t" + seqLength[index] + "\t" + seqOffset[index] + "\t" +
+							 lineBases[index] + "\t" + lineBytes[index] + "\t" + infoOffset[index]);
+				writer.write('\n');
+			}//for index
+		}//try
+	}//write
+
+	/**
+	 * Finds the position of a protein in the index.
+	 * @param proteinID		protein id (ex: "Q9NXB0")
+	 * @return index		position of the protein (file order), -1 if the protein is not in the index
+	 */
+	public int indexOf(String proteinID) {
+		Integer index = idIndex.get(proteinID);
+		return (index == null) ? -1 : index;
+	}//indexOf
+
+	/**
+	 * @return the number of proteins in the index
+	 */
+	public int size() {
+		return proteinIDs.size();
+	}//size
+
+	//***********************************************Getters***********************************************
+	/**
+	 * @return proteinIDs	protein ids in file order (unmodifiable)
+	 */
+	public List<String> getProteinIDs() {
+		return Collections.unmodifiableList(proteinIDs);
+	}//getProteinIDs
+
+	/**
+	 * @param index		position of the protein
+	 * @return the file offset of the protein's heading ('>')
+	 */
+	public long getInfoOffset(int index) {
+		return infoOffset[index];
+	}//getInfoOffset
+
+	/**
+	 * @param index		position of the protein
+	 * @return the file offset of the first residue of the protein
+	 */
+	public long getSeqOffset(int index) {
+		return seqOffset[index];
+	}//getSeqOffset
+
+	/**
+	 * @param index		position of the protein
+	 * @return the number of residues of the protein
+	 */
+	public int getSeqLength(int index) {
+		return seqLength[index];
+	}//getSeqLength
+
+	/**
+	 * @param index		position of the protein
+	 * @return the number of residues per sequence line
+	 */
+	public int getLineBases(int index) {
+		return lineBases[index];
+	}//getLineBases
+
+	/**
+	 * @param index		position of the protein
+	 * @return the number of bytes per sequence line (residues + line separator)
+	 */
+	public int getLineBytes(int index) {
+		return lineBytes[index];
+	}//getLineBytes
+
+}//end of class
@@ -0,0 +1,209 @@
+package target_decoy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Streams the proteins of a FASTA file one record (FastaRecord) at a time.
+ * The file is read through a channel into a fixed size buffer, and each protein
+ * sequence is built exactly once (lines are appended to a reusable byte array).
+ * @author junghyey
+ */
+public class FastaReader implements Iterator<FastaRecord>, Closeable {
+
+	private final static int BUFFER_SIZE = 1 << 20; //1 MB read buffer
+	private final static byte HEADING_SIGNATURE = '>';
+
+	private final ReadableByteChannel channel;
+	private final ByteBuffer buffer;
+
+	/**
+	 * Reusable storage for the heading & the sequence of the record being read.
+	 */
+	private byte[] infoBytes = new byte[256];
+	private int    infoLength;
+	private byte[] seqBytes  = new byte[4096];
+	private int    seqLength;
+
+	private boolean headingPending; //'>' of the next record was already consumed
+	private boolean endOfFile;
+	private FastaRecord nextRecord;  //record returned by the following next()
+
+	/**
+	 * Constructor for the class
+	 * @param channel	a channel to read FASTA formatted bytes from
+	 */
+	public FastaReader(ReadableByteChannel channel) {
+		this.channel = channel;
+		buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		buffer.flip(); //start empty
+	}//FastaReader
+
+	/**
+	 * Opens a FASTA file for streaming (.gz files are decompressed on the fly, see CompressedIO).
+	 * @param fileName		full file path (path + name)
+	 * @return reader		FastaReader positioned at the first protein of the file
+	 * @throws IOException	if the file cannot be opened
+	 */
+	public static FastaReader open(String fileName) throws IOException {
+		return new FastaReader(CompressedIO.openRead(fileName));
+	}//open
+
+	/**
+	 * {@inheritDoc}
+	 * @throws UncheckedIOException if reading the underlying file fails
+	 */
+	@Override
+	public boolean hasNext() {
+		if (nextRecord == null && !endOfFile) {
+			try {
+				nextRecord = readRecord();
+			}//try
+			catch (IOException ioe) {
+				throw new UncheckedIOException(ioe);
+			}//catch
+		}//if
+		return nextRecord != null;
+	}//hasNext
+
+	/**
+	 * {@inheritDoc}
+	 * @throws UncheckedIOException if reading the underlying file fails
+	 */
+	@Override
+	public FastaRecord next() {
+		if (!hasNext())
+			throw new NoSuchElementException("No more proteins in the file");
+
+		FastaRecord record = nextRecord;
+		nextRecord = null;
+		return record;
+	}//next
+
+	/**
+	 * Returns the remaining records as a sequential Stream.
+	 * Closing the stream closes this reader.
+	 * @return stream of FastaRecord (file order)
+	 */
+	public Stream<FastaRecord> stream() {
+		Spliterator<FastaRecord> spliterator = Spliterators.spliteratorUnknownSize(this,
+				Spliterator.ORDERED | Spliterator.NONNULL);
+		return StreamSupport.stream(spliterator, false).onClose(() -> {
+			try {
+				close();
+			}//try
+			catch (IOException ioe) {
+				throw new UncheckedIOException(ioe);
+			}//catch
+		});
+	}//stream
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}//close
+
+	/**
+	 * Reads the next protein (heading line + all of its sequence lines).
+	 * @return record		the next protein, null if there is no more protein
+	 * @throws IOException	if reading the underlying file fails
+	 */
+	private FastaRecord readRecord() throws IOException {
+
+		/* 1. Find the start of the heading (skip anything before the first '>')*/
+		if (!headingPending && !skipToHeading()) {
+			endOfFile = true;
+			return null;
+		}//if
+
+		/* 2. Read the heading line */
+		infoLength = 0;
+		appendInfo(HEADING_SIGNATURE);
+		int b;
+		while ((b = nextByte()) != -1 && b != '\n') {
+			if (b != '\r')
+				appendInfo((byte) b);
+		}//while
+
+		/* 3. Read sequence lines until the next heading or the end of the file */
+		seqLength = 0;
+		headingPending = false;
+		boolean lineStart = true;
+		while ((b = nextByte()) != -1) {
+			if (b == '\n') {
+				lineStart = true;
+				continue;
+			}//if new line
+			if (lineStart && b == HEADING_SIGNATURE) {
+				headingPending = true;
+				break;
+			}//if next heading
+			lineStart = false;
+			if (b > ' ') //ignore '\r' and other white spaces
+				appendSeq((byte) b);
+		}//while
+
+		String proteinInfo = new String(infoBytes, 0, infoLength, StandardCharsets.UTF_8);
+		String proteinSeq  = new String(seqBytes, 0, seqLength, StandardCharsets.ISO_8859_1);
+		return new FastaRecord(FastaRecord.idFinder(proteinInfo), proteinInfo, proteinSeq);
+	}//readRecord
+
+	/**
+	 * Consumes bytes until a '>' at the start of a line.
+	 * @return true if a heading was found, false at the end of the file
+	 */
+	private boolean skipToHeading() throws IOException {
+		boolean lineStart = true;
+		int b;
+		while ((b = nextByte()) != -1) {
+			if (lineStart && b == HEADING_SIGNATURE)
+				return true;
+			lineStart = (b == '\n');
+		}//while
+		return false;
+	}//skipToHeading
+
+	/**
+	 * @return the next byte of the channel (0-255), -1 at the end of the file
+	 */
+	private int nextByte() throws IOException {
+		if (!buffer.hasRemaining()) {
+			buffer.clear();
+			int read;
+			do {
+				read = channel.read(buffer);
+			} while (read == 0);
+			buffer.flip();
+			if (read < 0)
+				return -1;
+		}//if refill
+		return buffer.get() & 0xFF;
+	}//nextByte
+
+	private void appendInfo(byte b) {
+		if (infoLength == infoBytes.length)
+			infoBytes = Arrays.copyOf(infoBytes, infoLength * 2);
+		infoBytes[infoLength++] = b;
+	}//appendInfo
+
+	private void appendSeq(byte b) {
+		if (seqLength == seqBytes.length)
+			seqBytes = Arrays.copyOf(seqBytes, seqLength * 2);
+		seqBytes[seqLength++] = b;
+	}//appendSeq
+
+}//end of class
@@ -0,0 +1,69 @@
+package target_decoy;
+
+/**
+ * Represents a single protein entry of a FASTA file.
+ * (protein id, protein information heading, protein amino acid sequence)
+ * @author junghyey
+ */
+public final class FastaRecord {
+
+	private final String proteinID;   //ex: "Q9NXB0"
+	private final String proteinInfo; //ex: ">sp|Q9NXB0|MKS1_HUMAN Tectonic-like complex member MKS1 ..."
+	private final String proteinSeq;  //full amino acid sequence (no line breaks)
+
+	/**
+	 * Constructor for the class
+	 * @param proteinID		protein id found in the protein information heading
+	 * @param proteinInfo	protein information heading (starts with ">")
+	 * @param proteinSeq	protein amino acid sequence
+	 */
+	public FastaRecord(String proteinID, String proteinInfo, String proteinSeq) {
+		this.proteinID   = proteinID;
+		this.proteinInfo = proteinInfo;
+		this.proteinSeq  = proteinSeq;
+	}//FastaRecord
+
+	/**
+	 * Finds a proteinID (ex: "Q9NXB0") from a given protein information heading.
+	 * The proteinID is the text between the first and the second '|'.
+	 * @param proteinInfo	protein information heading (ex: ">sp|Q9NXB0|MKS1_HUMAN ...")
+	 * @return proteinID	String (empty if the heading does not contain '|')
+	 */
+	public static String idFinder(String proteinInfo) {
+
+		int idStart = proteinInfo.indexOf('|');
+
+		/*No '|' in the heading*/
+		if (idStart < 0)
+			return "";
+
+		int idEnd = proteinInfo.indexOf('|', idStart + 1);
+		if (idEnd < 0) //id runs until the end of the heading
+			idEnd = proteinInfo.length();
+
+		return proteinInfo.substring(idStart + 1, idEnd);
+	}//idFinder
+
+	//***********************************************Getters***********************************************
+	/**
+	 * @return proteinID	protein id (ex: "Q9NXB0")
+	 */
+	public String getProteinID() {
+		return proteinID;
+	}//getProteinID
+
+	/**
+	 * @return proteinInfo	protein information heading (starts with ">")
+	 */
+	public String getProteinInfo() {
+		return proteinInfo;
+	}//getProteinInfo
+
+	/**
+	 * @return proteinSeq	protein amino acid sequence
+	 */
+	public String getProteinSeq() {
+		return proteinSeq;
+	}//getProteinSeq
+
+}//end of class
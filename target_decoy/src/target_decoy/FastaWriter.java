@@ -0,0 +1,144 @@
+package target_decoy;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes proteins in FASTA format:
+ * > protein info
+ * protein sequence (lineWidth amino acids per line, 60 by default)
+ * Sequences are copied straight from the source CharSequence into a fixed size buffer,
+ * a line separator is written every lineWidth amino acids, and the buffer is written to
+ * the channel only when it is full. Write errors are thrown (IOException), never swallowed.
+ * @author junghyey
+ */
+public class FastaWriter implements Closeable, Flushable {
+
+	public  final static int DEFAULT_LINE_WIDTH = 60;
+	private final static int BUFFER_SIZE = 1 << 20; //1 MB write buffer
+	private final static byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer;
+	private final int lineWidth;
+
+	/**
+	 * Constructor for the class
+	 * @param channel		a channel to write FASTA formatted bytes to
+	 * @param lineWidth		amino acids per sequence line (> 0)
+	 * @throws IllegalArgumentException if lineWidth <= 0
+	 */
+	public FastaWriter(WritableByteChannel channel, int lineWidth) {
+
+		/*Enforce the precondition: lineWidth > 0*/
+		if (lineWidth <= 0)
+			throw new IllegalArgumentException("The line width is <= 0: " + lineWidth);
+
+		this.channel   = channel;
+		this.lineWidth = lineWidth;
+		buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	}//FastaWriter
+
+	/**
+	 * Creates (or overwrites) a FASTA file with 60 amino acids per line.
+	 * @param fileName		full file path (path + name)
+	 * @return writer		FastaWriter of the file
+	 * @throws IOException	if the file cannot be created
+	 */
+	public static FastaWriter open(String fileName) throws IOException {
+		return open(fileName, DEFAULT_LINE_WIDTH);
+	}//open
+
+	/**
+	 * Creates (or overwrites) a FASTA file (.gz files are compressed on the fly, see CompressedIO).
+	 * @param fileName		full file path (path + name)
+	 * @param lineWidth		amino acids per sequence line (> 0)
+	 * @return writer		FastaWriter of the file
+	 * @throws IOException	if the file cannot be created
+	 */
+	public static FastaWriter open(String fileName, int lineWidth) throws IOException {
+		return new FastaWriter(CompressedIO.openWrite(fileName), lineWidth);
+	}//open
+
+	/**
+	 * Writes a single protein.
+	 * @param proteinInfo	protein information heading (starts with ">")
+	 * @param proteinSeq	protein amino acid sequence (length > 0)
+	 * @throws IllegalArgumentException if the sequence is empty
+	 * @throws IOException	if writing fails
+	 */
+	public void write(String proteinInfo, CharSequence proteinSeq) throws IOException {
+		int length = proteinSeq.length();
+
+		/*Enforce the precondition: The given amino acid sequence's length should be > 0*/
+		if (length <= 0)
+			throw new IllegalArgumentException("The length of the amino acid sequence is <= 0");
+
+		/* 1. Heading line */
+		put(proteinInfo.getBytes(StandardCharsets.UTF_8));
+		put(LINE_SEPARATOR);
+
+		/* 2. Sequence lines: copy lineWidth amino acids, then a line separator */
+		for (int lineStart = 0; lineStart < length; lineStart += lineWidth) {
+			int lineEnd = Math.min(lineStart + lineWidth, length);
+			for (int position = lineStart; position < lineEnd; position++) {
+				if (!buffer.hasRemaining())
+					drain();
+				buffer.put((byte) proteinSeq.charAt(position));
+			}//for position
+			put(LINE_SEPARATOR);
+		}//for lineStart
+	}//write
+
+	/**
+	 * Writes the buffered bytes to the channel.
+	 * @throws IOException	if writing fails
+	 */
+	@Override
+	public void flush() throws IOException {
+		drain();
+	}//flush
+
+	/**
+	 * Writes the buffered bytes and closes the channel.
+	 * @throws IOException	if writing or closing fails
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			drain();
+		}//try
+		finally {
+			channel.close();
+		}//finally
+	}//close
+
+	/**
+	 * Copies bytes into the buffer (draining it whenever it is full).
+	 */
+	private void put(byte[] bytes) throws IOException {
+		int offset = 0;
+		while (offset < bytes.length) {
+			if (!buffer.hasRemaining())
+				drain();
+			int chunk = Math.min(buffer.remaining(), bytes.length - offset);
+			buffer.put(bytes, offset, chunk);
+			offset += chunk;
+		}//while
+	}//put
+
+	/**
+	 * Writes the whole buffer content to the channel and empties the buffer.
+	 */
+	private void drain() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}//drain
+
+}//end of class
@@ -0,0 +1,407 @@
+package target_decoy;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Target-decoy FDR & q-values of Comet search results (the FDR of the comet_*.ipynb notebooks).
+ * Comet output (tab separated .txt, or the CSV written by the notebooks) is streamed line by line;
+ * a PSM is a decoy if all its proteins start with "XXX_" (DecoyGenerator.DECOY_PREFIX).
+ * Only rank 1 PSMs are kept, one per scan: ties of a scan matching both target and decoy proteins
+ * are removed. Each kept PSM costs 16 bytes (sort key, peptide id, protein id), the peptide and
+ * protein strings are stored once each.
+ * q-values are computed with a single sort of the PSMs by score and a linear sweep per level:
+ * 1. PSM		 every PSM
+ * 2. PEPTIDE	 the best PSM of each peptide
+ * 3. PROTEIN	 the best PSM of each protein (first target protein of the PSM, first decoy protein for decoys)
+ * FDR = decoys / targets above the score (as in the notebooks), q-value = lowest FDR at or below the score.
+ * @author junghyey
+ */
+public class FdrCalculator {
+
+	/**
+	 * Levels of the q-values
+	 */
+	public enum Level { PSM, PEPTIDE, PROTEIN }
+
+	public final static String DEFAULT_SCORE = "xcorr";
+	private final static int MAX_PSMS = Integer.MAX_VALUE >>> 1; //index & decoy bit share 32 bits of the sort key
+
+	private String scoreColumn = DEFAULT_SCORE;
+	private boolean higherIsBetter = true; //xcorr: true, e-value: false
+	private final String decoyPrefix = DecoyGenerator.DECOY_PREFIX.substring(1);
+
+	/**
+	 * PSM columns (index: PSM)
+	 */
+	private long[] keys	  = new long[1024]; //[~sortable score: 32 bits][PSM << 1 | decoy: 32 bits]
+	private int[] peptide = new int[1024];
+	private int[] protein = new int[1024];
+	private int size;
+	private int removedTies; //scans removed for matching both target & decoy
+
+	/**
+	 * Peptide & protein dictionaries (string -> id, id -> string)
+	 */
+	private final Map<String, Integer> peptideIds = new HashMap<String, Integer>();
+	private final List<String> peptides = new ArrayList<String>();
+	private final Map<String, Integer> proteinIds = new HashMap<String, Integer>();
+	private final List<String> proteins = new ArrayList<String>();
+
+	/**
+	 * Results per level (index: Level.ordinal()): PSMs in score order & their q-values
+	 */
+	private final int[][] ranked = new int[Level.values().length][];
+	private final float[][] qValues = new float[Level.values().length][];
+
+	/**
+	 * Streams the PSMs of a Comet result file (may be called for several files before compute).
+	 * The header is the first line having the score column; lines above it are skipped
+	 * (ex: the Comet version line).
+	 * @param fileName	full file path of a Comet .txt (tab) or .csv file (may be gzip compressed)
+	 * @throws IOException	if reading fails
+	 * @throws IllegalArgumentException if a column is missing or a score is not a number
+	 */
+	public void read(String fileName) throws IOException {
+		try (BufferedReader reader = new BufferedReader(Channels.newReader(CompressedIO.openRead(fileName),
+																		 StandardCharsets.ISO_8859_1), 1 << 16)) {
+
+			/* 1. Find the header & the columns */
+			String line;
+			while ((line = reader.readLine()) != null && !line.contains(scoreColumn)) {
+				//skip
+			}//while
+			if (line == null)
+				throw new IllegalArgumentException("No header with the score column " + scoreColumn + ": " + fileName);
+			char delimiter = (line.indexOf('\t') >= 0) ? '\t' : ',';
+			List<String> header = split(line, delimiter, new ArrayList<String>());
+			int scanColumn	  = requireColumn(header, "scan", fileName);
+			int scoreIndex	  = requireColumn(header, scoreColumn, fileName);
+			int peptideColumn = requireColumn(header, "plain_peptide", fileName);
+			int proteinColumn = requireColumn(header, "protein", fileName);
+			int rankColumn	  = header.indexOf("num"); //-1: every line is rank 1
+
+			/* 2. Stream the rank 1 PSMs, merging the ties of a scan (consecutive lines) */
+			List<String> fields = new ArrayList<String>();
+			String pendingScan = null;
+			boolean mixed = false;
+			while ((line = reader.readLine()) != null) {
+				if (line.isEmpty())
+					continue;
+				split(line, delimiter, fields);
+				if (rankColumn >= 0 && !fields.get(rankColumn).equals("1"))
+					continue;
+
+				String scan = fields.get(scanColumn);
+				boolean decoy = isDecoy(fields.get(proteinColumn));
+				if (scan.equals(pendingScan)) {
+					mixed |= isDecoyPsm(size - 1) != decoy; //tie: keep the first line, unless target & decoy
+					continue;
+				}//if
+				if (mixed) {
+					size--;
+					removedTies++;
+				}//if
+				pendingScan = scan;
+				mixed = false;
+				addPsm(parseScore(fields.get(scoreIndex)), decoy, fields.get(peptideColumn), fields.get(proteinColumn));
+			}//while
+			if (mixed) {
+				size--;
+				removedTies++;
+			}//if
+		}//try
+	}//read
+
+	/**
+	 * Sorts the PSMs by score (once) and computes the q-values of every level.
+	 */
+	public void compute() {
+		long[] sorted = Arrays.copyOf(keys, size);
+		Arrays.parallelSort(sorted); //best score first
+
+		int[] order = new int[size];
+		for (int rank = 0; rank < size; rank++)
+			order[rank] = (int) (sorted[rank] & 0xffffffffL) >>> 1;
+
+		boolean[] peptideSeen = new boolean[peptides.size()];
+		boolean[] proteinSeen = new boolean[proteins.size()];
+		int[] peptideOrder = new int[peptides.size()];
+		int[] proteinOrder = new int[proteins.size()];
+		int peptideCount = 0, proteinCount = 0;
+		for (int psm: order) {
+			if (!peptideSeen[peptide[psm]]) {
+				peptideSeen[peptide[psm]] = true;
+				peptideOrder[peptideCount++] = psm;
+			}//if
+			if (!proteinSeen[protein[psm]]) {
+				proteinSeen[protein[psm]] = true;
+				proteinOrder[proteinCount++] = psm;
+			}//if
+		}//for psm
+
+		store(Level.PSM, order);
+		store(Level.PEPTIDE, Arrays.copyOf(peptideOrder, peptideCount));
+		store(Level.PROTEIN, Arrays.copyOf(proteinOrder, proteinCount));
+	}//compute
+
+	/**
+	 * Linear sweep: FDR from the top (a tie group shares the FDR at its end),
+	 * then q-values as the running minimum from the bottom.
+	 */
+	private void store(Level level, int[] order) {
+		float[] qValue = new float[order.length];
+		long targets = 0, decoys = 0;
+		for (int rank = 0; rank < order.length; rank++) {
+			if (isDecoyPsm(order[rank]))
+				decoys++;
+			else
+				targets++;
+			boolean tieEnd = rank + 1 == order.length || scoreBits(order[rank + 1]) != scoreBits(order[rank]);
+			if (tieEnd) {
+				float fdr = (targets == 0) ? 1f : Math.min(1f, (float) decoys / targets);
+				for (int tie = rank; tie >= 0 && scoreBits(order[tie]) == scoreBits(order[rank]); tie--)
+					qValue[tie] = fdr;
+			}//if
+		}//for rank
+
+		float lowest = 1f;
+		for (int rank = order.length - 1; rank >= 0; rank--) {
+			lowest = Math.min(lowest, qValue[rank]);
+			qValue[rank] = lowest;
+		}//for rank
+
+		ranked[level.ordinal()]	 = order;
+		qValues[level.ordinal()] = qValue;
+	}//store
+
+	/**
+	 * @param level		PSM, PEPTIDE or PROTEIN
+	 * @param threshold	q-value threshold (ex: 0.01)
+	 * @return the number of target PSMs/peptides/proteins with a q-value <= threshold
+	 * @throws IllegalStateException if compute was not called
+	 */
+	public int countAccepted(Level level, double threshold) {
+		float[] qValue = requireComputed(level);
+		int[] order = ranked[level.ordinal()];
+		int count = 0;
+		for (int rank = 0; rank < order.length && qValue[rank] <= threshold; rank++) {
+			if (!isDecoyPsm(order[rank]))
+				count++;
+		}//for rank
+		return count;
+	}//countAccepted
+
+	/**
+	 * Summarizes the PSMs & the accepted targets at a q-value threshold (for reports).
+	 * @param threshold		q-value threshold (ex: 0.01)
+	 * @return summaryDict	a dictionary [Key: statistic, Value: number]
+	 * @throws IllegalStateException if compute was not called
+	 */
+	public Map<String, Number> getSummary(double threshold) {
+		int decoys = 0;
+		for (int psm = 0; psm < size; psm++) {
+			if (isDecoyPsm(psm))
+				decoys++;
+		}//for psm
+
+		Map<String, Number> summaryDict = new HashMap<String, Number>();
+		summaryDict.put("psms", size);
+		summaryDict.put("target_psms", size - decoys);
+		summaryDict.put("decoy_psms", decoys);
+		summaryDict.put("removed_ties", removedTies);
+		summaryDict.put("q_value_threshold", threshold);
+		summaryDict.put("accepted_psms", countAccepted(Level.PSM, threshold));
+		summaryDict.put("accepted_peptides", countAccepted(Level.PEPTIDE, threshold));
+		summaryDict.put("accepted_proteins", countAccepted(Level.PROTEIN, threshold));
+		return summaryDict;
+	}//getSummary
+
+	/**
+	 * Writes the q-values of a level, best score first (CSV: peptide, protein, score, decoy, q_value).
+	 * @param fileName	full file path of the report (".gz": gzip compressed)
+	 * @param level		PSM, PEPTIDE or PROTEIN
+	 * @throws IOException	if writing fails
+	 * @throws IllegalStateException if compute was not called
+	 */
+	public void writeQValues(String fileName, Level level) throws IOException {
+		float[] qValue = requireComputed(level);
+		int[] order = ranked[level.ordinal()];
+		try (Writer writer = CompressedIO.newWriter(fileName)) {
+			writer.write("peptide,protein," + scoreColumn + ",decoy,q_value\n");
+			for (int rank = 0; rank < order.length; rank++) {
+				int psm = order[rank];
+				writer.write(peptides.get(peptide[psm]) + "," + proteins.get(protein[psm]) + ","
+							 + getScore(psm) + "," + (isDecoyPsm(psm) ? 1 : 0) + "," + qValue[rank] + "\n");
+			}//for rank
+		}//try
+	}//writeQValues
+
+	private void addPsm(float score, boolean decoy, String peptideSeq, String proteinList) {
+		if (size == MAX_PSMS)
+			throw new IllegalArgumentException("More than " + MAX_PSMS + " PSMs");
+		if (size == keys.length) {
+			int capacity = (int) Math.min(MAX_PSMS, size * 2L);
+			keys	= Arrays.copyOf(keys, capacity);
+			peptide = Arrays.copyOf(peptide, capacity);
+			protein = Arrays.copyOf(protein, capacity);
+		}//if
+
+		/* Sortable score: flip the float bits so that ints compare like the floats, then invert (best first) */
+		int bits = Float.floatToIntBits(higherIsBetter ? score : -score);
+		bits ^= (bits >> 31) & 0x7fffffff;
+		keys[size]	  = ((long) ~bits << 32) | ((size << 1 | (decoy ? 1 : 0)) & 0xffffffffL);
+		peptide[size] = id(peptideSeq, peptideIds, peptides);
+		protein[size] = id(getProtein(proteinList, decoy), proteinIds, proteins);
+		size++;
+	}//addPsm
+
+	private static int id(String name, Map<String, Integer> ids, List<String> names) {
+		Integer id = ids.get(name);
+		if (id == null) {
+			id = names.size();
+			ids.put(name, id);
+			names.add(name);
+		}//if
+		return id;
+	}//id
+
+	/**
+	 * @return true if every protein of the (comma separated) list is a decoy protein
+	 */
+	private boolean isDecoy(String proteinList) {
+		int start = 0;
+		while (start <= proteinList.length()) {
+			int end = proteinList.indexOf(',', start);
+			if (end < 0)
+				end = proteinList.length();
+			if (!proteinList.startsWith(decoyPrefix, start))
+				return false;
+			start = end + 1;
+		}//while
+		return true;
+	}//isDecoy
+
+	/**
+	 * @return the protein of a PSM: its first target protein (first protein for decoys)
+	 */
+	private String getProtein(String proteinList, boolean decoy) {
+		int start = 0;
+		while (start < proteinList.length()) {
+			int end = proteinList.indexOf(',', start);
+			if (end < 0)
+				end = proteinList.length();
+			if (decoy || !proteinList.startsWith(decoyPrefix, start))
+				return proteinList.substring(start, end);
+			start = end + 1;
+		}//while
+		return proteinList;
+	}//getProtein
+
+	private float parseScore(String field) {
+		try {
+			float score = Float.parseFloat(field);
+			if (Float.isNaN(score))
+				throw new IllegalArgumentException("The score is not a number: " + field);
+			return score;
+		}//try
+		catch (NumberFormatException nfe) {
+			throw new IllegalArgumentException("The score is not a number: " + field);
+		}//catch
+	}//parseScore
+
+	private float getScore(int psm) {
+		int bits = ~(int) (keys[psm] >> 32);
+		bits ^= (bits >> 31) & 0x7fffffff;
+		float score = Float.intBitsToFloat(bits);
+		return higherIsBetter ? score : -score;
+	}//getScore
+
+	private int scoreBits(int psm) {
+		return (int) (keys[psm] >> 32);
+	}//scoreBits
+
+	private boolean isDecoyPsm(int psm) {
+		return (keys[psm] & 1) != 0;
+	}//isDecoyPsm
+
+	private float[] requireComputed(Level level) {
+		float[] qValue = qValues[level.ordinal()];
+		if (qValue == null)
+			throw new IllegalStateException("The q-values are not computed");
+		return qValue;
+	}//requireComputed
+
+	private static int requireColumn(List<String> header, String column, String fileName) {
+		int index = header.indexOf(column);
+		if (index < 0)
+			throw new IllegalArgumentException("No " + column + " column: " + fileName);
+		return index;
+	}//requireColumn
+
+	/**
+	 * Splits a line into fields (double quoted fields may contain the delimiter, ex: protein lists).
+	 */
+	private static List<String> split(String line, char delimiter, List<String> fields) {
+		fields.clear();
+		int start = 0;
+		while (start <= line.length()) {
+			if (start < line.length() && line.charAt(start) == '"') {
+				int close = line.indexOf('"', start + 1);
+				if (close < 0)
+					close = line.length();
+				fields.add(line.substring(start + 1, close));
+				int next = line.indexOf(delimiter, close);
+				start = (next < 0) ? line.length() + 1 : next + 1;
+			}//if
+			else {
+				int end = line.indexOf(delimiter, start);
+				if (end < 0)
+					end = line.length();
+				fields.add(line.substring(start, end));
+				start = end + 1;
+			}//else
+		}//while
+		return fields;
+	}//split
+
+	//***********************************************Setters***********************************************
+	/**
+	 * Sets the score used to rank the PSMs (before read).
+	 * @param scoreColumn		column of the score (ex: "xcorr", "e-value")
+	 * @param higherIsBetter	true if higher scores are better (xcorr), false otherwise (e-value)
+	 * @throws IllegalStateException if PSMs were already read
+	 */
+	public void setScore(String scoreColumn, boolean higherIsBetter) {
+		if (size > 0)
+			throw new IllegalStateException("The score cannot change after reading PSMs");
+		this.scoreColumn	= scoreColumn;
+		this.higherIsBetter = higherIsBetter;
+	}//setScore
+
+	//***********************************************Getters***********************************************
+	/**
+	 * @return the number of PSMs kept (rank 1, one per scan)
+	 */
+	public int size() {
+		return size;
+	}//size
+
+	/**
+	 * @param level		PSM, PEPTIDE or PROTEIN
+	 * @return q-values of the level, best score first
+	 * @throws IllegalStateException if compute was not called
+	 */
+	public float[] getQValues(Level level) {
+		return requireComputed(level).clone();
+	}//getQValues
+
+}//end of class
@@ -0,0 +1,110 @@
+package target_decoy;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Checks FdrCalculator against q-values computed by hand on a small Comet result:
+ * sortable score packing (negative scores included), ties between scans (shared FDR),
+ * running minimum of the q-values, removal of scans tied between a target & a decoy,
+ * rank > 1 lines, e-value (lower is better) and the peptide & protein levels.
+ *
+ * Working directory: target_decoy>src
+ * java -ea target_decoy/FdrCalculatorCheck
+ * @author junghyey
+ */
+public class FdrCalculatorCheck {
+
+	/**
+	 * Comet result (tab separated). Best first: scan 1 (T), scans 2 (T) & 3 (D) tied, scan 4 (T, protein P2),
+	 * scan 5 (D), scan 7 (T, peptide AAA again), scan 8 (T, negative xcorr). Scan 6 matches a target & a decoy
+	 * (removed), the rank 2 line of scan 8 is skipped. e-value ranks the scans in the same order as xcorr.
+	 */
+	private final static String[] COMET_RESULT = {
+		"CometVersion 2019.01 rev. 5",
+		"scan\tnum\tcharge\txcorr\te-value\tplain_peptide\tprotein",
+		"1\t1\t2\t5.0\t0.001\tAAA\tP1",
+		"2\t1\t2\t4.0\t0.01\tBBB\tP2",
+		"3\t1\t2\t4.0\t0.01\tCCC\tXXX_P3",
+		"4\t1\t2\t3.0\t0.1\tDDD\tXXX_P9,P2",
+		"5\t1\t2\t2.0\t1.0\tEEE\tXXX_P5",
+		"6\t1\t2\t2.0\t1.0\tFFF\tP6",
+		"6\t1\t2\t2.0\t1.0\tGGG\tXXX_P7",
+		"7\t1\t2\t1.0\t2.0\tAAA\tP1",
+		"8\t1\t2\t-0.5\t5.0\tHHH\tP8",
+		"8\t2\t2\t9.0\t0.0001\tZZZ\tP9"
+	};
+
+	/**
+	 * q-values computed by hand (best first).
+	 * PSM	   : FDR 0, 1/2, 1/2 (tie of scans 2 & 3), 1/3, 2/3, 2/4, 2/5
+	 * PEPTIDE : scan 7 dropped (AAA)				FDR 0, 1/2, 1/2, 1/3, 2/3, 2/4
+	 * PROTEIN : scans 4 (P2) & 7 (P1) dropped	FDR 0, 1/2, 1/2, 2/2, 2/3
+	 * q-value = running minimum of the FDR from the bottom.
+	 */
+	private final static float[] PSM_Q_VALUES	  = {0f, 1f / 3, 1f / 3, 1f / 3, 2f / 5, 2f / 5, 2f / 5};
+	private final static float[] PEPTIDE_Q_VALUES = {0f, 1f / 3, 1f / 3, 1f / 3, 2f / 4, 2f / 4};
+	private final static float[] PROTEIN_Q_VALUES = {0f, 1f / 2, 1f / 2, 2f / 3, 2f / 3};
+
+	/*main method starts here*/
+	public static void main(String[] args) throws IOException {
+		File cometFile  = File.createTempFile("fdr_check", ".txt");
+		File reportFile = File.createTempFile("fdr_check_q_values", ".csv");
+		cometFile.deleteOnExit();
+		reportFile.deleteOnExit();
+		Files.write(cometFile.toPath(), Arrays.asList(COMET_RESULT), StandardCharsets.ISO_8859_1);
+
+		/* 1. xcorr (higher is better) */
+		FdrCalculator xcorr = new FdrCalculator();
+		xcorr.read(cometFile.getPath());
+		xcorr.compute();
+		checkQValues("xcorr", xcorr);
+		check(xcorr.countAccepted(FdrCalculator.Level.PSM, 0.35) == 3, "xcorr: 3 target PSMs at q <= 0.35");
+		check(xcorr.getSummary(0.01).get("removed_ties").intValue() == 1, "xcorr: scan 6 removed");
+
+		/* 2. Scores unpacked from the sort keys (negative score included) */
+		xcorr.writeQValues(reportFile.getPath(), FdrCalculator.Level.PSM);
+		List<String> report = Files.readAllLines(reportFile.toPath(), StandardCharsets.ISO_8859_1);
+		check(report.get(1).equals("AAA,P1,5.0,0,0.0"), "xcorr: first PSM " + report.get(1));
+		check(report.get(4).equals("DDD,P2,3.0,0," + (1f / 3)), "xcorr: protein of a target PSM " + report.get(4));
+		check(report.get(7).equals("HHH,P8,-0.5,0," + (2f / 5)), "xcorr: last PSM " + report.get(7));
+
+		/* 3. e-value (lower is better): same ranking, same q-values */
+		FdrCalculator eValue = new FdrCalculator();
+		eValue.setScore("e-value", false);
+		eValue.read(cometFile.getPath());
+		eValue.compute();
+		checkQValues("e-value", eValue);
+
+		System.out.println("FdrCalculator: ok");
+	}//main
+
+	/**
+	 * Checks the q-values of every level against the hand computed ones.
+	 */
+	private static void checkQValues(String score, FdrCalculator calculator) {
+		check(calculator.size() == PSM_Q_VALUES.length, score + ": " + calculator.size() + " PSMs");
+		checkQValues(score, FdrCalculator.Level.PSM, PSM_Q_VALUES, calculator);
+		checkQValues(score, FdrCalculator.Level.PEPTIDE, PEPTIDE_Q_VALUES, calculator);
+		checkQValues(score, FdrCalculator.Level.PROTEIN, PROTEIN_Q_VALUES, calculator);
+	}//checkQValues
+
+	private static void checkQValues(String score, FdrCalculator.Level level, float[] expected, FdrCalculator calculator) {
+		float[] qValues = calculator.getQValues(level);
+		check(Arrays.equals(qValues, expected), score + " " + level + " q-values: " + Arrays.toString(qValues)
+											   + ", expected " + Arrays.toString(expected));
+	}//checkQValues
+
+	/**
+	 * @throws AssertionError if the condition is false (with or without -ea)
+	 */
+	static void check(boolean condition, String message) {
+		if (!condition)
+			throw new AssertionError(message);
+	}//check
+
+}//end of class
@@ -0,0 +1,281 @@
+package target_decoy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Gives random access to the proteins of a FASTA file by protein id.
+ * The FASTA file is memory-mapped and located with its FastaIndex, so sequences
+ * are returned as CharSequence views on the mapped file (no copying, nothing
+ * held on the heap) and are only read when they are used.
+ * StreamingDecoyPipeline rereads the target proteins through it (sequences) when the target
+ * file can be indexed, instead of parsing the file again for every pass.
+ * @author junghyey
+ */
+public class IndexedFastaReader implements Closeable {
+
+	private final static int SEGMENT_SHIFT = 30; //map the file in 1 GB segments
+	private final static long SEGMENT_MASK = (1L << SEGMENT_SHIFT) - 1;
+
+	private final FileChannel channel;
+	private final FastaIndex index;
+	private final MappedByteBuffer[] segments;
+
+	/**
+	 * Constructor for the class
+	 * @param fastaFileName		full file path (path + name) of the FASTA file
+	 * @param index				index of the FASTA file
+	 * @throws IllegalArgumentException if the file is compressed (cannot be memory mapped)
+	 * @throws IOException		if the file cannot be mapped
+	 */
+	public IndexedFastaReader(String fastaFileName, FastaIndex index) throws IOException {
+		
+		/*Enforce the precondition: The file is not compressed*/
+		if (CompressedIO.isCompressed(fastaFileName))
+			throw new IllegalArgumentException("A compressed file cannot be memory mapped, use FastaReader: " + fastaFileName);
+		
+		this.index = index;
+		channel = FileChannel.open(Paths.get(fastaFileName), StandardOpenOption.READ);
+
+		long fileSize = channel.size();
+		int segmentCount = (int) ((fileSize + SEGMENT_MASK) >>> SEGMENT_SHIFT);
+		segments = new MappedByteBuffer[segmentCount];
+		for (int segment = 0; segment < segmentCount; segment++) {
+			long start = (long) segment << SEGMENT_SHIFT;
+			segments[segment] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+											Math.min(1L << SEGMENT_SHIFT, fileSize - start));
+		}//for segment
+	}//IndexedFastaReader
+
+	/**
+	 * Opens a FASTA file for random access, loading (or building) its FastaIndex (.tdidx).
+	 * @param fastaFileName		full file path (path + name) of the FASTA file
+	 * @return reader			IndexedFastaReader for the given file
+	 * @throws IOException		if the file or its index cannot be read
+	 */
+	public static IndexedFastaReader open(String fastaFileName) throws IOException {
+		return new IndexedFastaReader(fastaFileName, FastaIndex.load(fastaFileName));
+	}//open
+
+	/**
+	 * Returns a protein sequence as a view on the mapped file.
+	 * @param proteinID		protein id (ex: "Q9NXB0")
+	 * @return sequence		amino acid sequence (line breaks skipped), null if the protein is not in the file
+	 */
+	public CharSequence getSequence(String proteinID) {
+		int position = index.indexOf(proteinID);
+		if (position < 0)
+			return null;
+		return new MappedSequence(position, 0, index.getSeqLength(position));
+	}//getSequence
+
+	/**
+	 * Returns a protein sequence as a view on the mapped file.
+	 * @param position		position of the protein in the index (file order)
+	 * @return sequence		amino acid sequence (line breaks skipped)
+	 * @throws IndexOutOfBoundsException if there is no protein at the position
+	 */
+	public CharSequence getSequence(int position) {
+		if (position < 0 || position >= index.size())
+			throw new IndexOutOfBoundsException("Invalid protein position: " + position);
+		return new MappedSequence(position, 0, index.getSeqLength(position));
+	}//getSequence
+
+	/**
+	 * Returns every protein sequence of the file (file order, repeated proteinIDs included) as views
+	 * on the mapped file: one pass over all the target proteins without parsing or copying them.
+	 * @return sequences	read-only collection view
+	 */
+	public Collection<CharSequence> sequences() {
+		return new AbstractCollection<CharSequence>() {
+
+			@Override
+			public Iterator<CharSequence> iterator() {
+				return new Iterator<CharSequence>() {
+					private int position;
+
+					@Override
+					public boolean hasNext() {
+						return position < index.size();
+					}//hasNext
+
+					@Override
+					public CharSequence next() {
+						if (!hasNext())
+							throw new NoSuchElementException();
+						return getSequence(position++);
+					}//next
+				};
+			}//iterator
+
+			@Override
+			public int size() {
+				return index.size();
+			}//size
+		};
+	}//sequences
+
+	/**
+	 * Reads a protein information heading.
+	 * @param proteinID		protein id (ex: "Q9NXB0")
+	 * @return proteinInfo	protein information heading (starts with ">"), null if the protein is not in the file
+	 */
+	public String getInfo(String proteinID) {
+		int position = index.indexOf(proteinID);
+		if (position < 0)
+			return null;
+
+		long start = index.getInfoOffset(position);
+		long end   = start;
+		while (end < index.getSeqOffset(position) && byteAt(end) != '\n')
+			end++;
+		if (end > start && byteAt(end - 1) == '\r')
+			end--;
+
+		byte[] heading = new byte[(int) (end - start)];
+		for (int offset = 0; offset < heading.length; offset++)
+			heading[offset] = byteAt(start + offset);
+		return new String(heading, StandardCharsets.UTF_8);
+	}//getInfo
+
+	/**
+	 * Returns a read-only dictionary view of the file: [Key: proteinID, Value: protein sequence].
+	 * Sequences are read from the mapped file on every get, so the view can be handed to
+	 * code expecting a sequence dictionary without holding the proteome on the heap.
+	 * @return seqDict	lazy dictionary view (iteration follows file order)
+	 */
+	public Map<String, String> asSeqDict() {
+		return new AbstractMap<String, String>() {
+
+			@Override
+			public String get(Object key) {
+				if (!(key instanceof String))
+					return null;
+				CharSequence sequence = getSequence((String) key);
+				return (sequence == null) ? null : sequence.toString();
+			}//get
+
+			@Override
+			public boolean containsKey(Object key) {
+				return (key instanceof String) && index.indexOf((String) key) >= 0;
+			}//containsKey
+
+			@Override
+			public Set<Map.Entry<String, String>> entrySet() {
+				return new AbstractSet<Map.Entry<String, String>>() {
+
+					@Override
+					public Iterator<Map.Entry<String, String>> iterator() {
+						Iterator<String> ids = index.getProteinIDs().iterator();
+						return new Iterator<Map.Entry<String, String>>() {
+							@Override
+							public boolean hasNext() {
+								return ids.hasNext();
+							}//hasNext
+
+							@Override
+							public Map.Entry<String, String> next() {
+								String proteinID = ids.next();
+								return new AbstractMap.SimpleImmutableEntry<String, String>(
+										proteinID, getSequence(proteinID).toString());
+							}//next
+						};
+					}//iterator
+
+					@Override
+					public int size() {
+						return index.size();
+					}//size
+				};
+			}//entrySet
+		};
+	}//asSeqDict
+
+	/**
+	 * Closes the file channel. The mapped segments are not unmapped (Java cannot unmap them
+	 * explicitly): they, and the sequences read from them, stay valid until they are garbage collected.
+	 * @throws IOException	if closing the channel fails
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}//close
+
+	/**
+	 * @return index	index of the mapped FASTA file
+	 */
+	public FastaIndex getIndex() {
+		return index;
+	}//getIndex
+
+	/**
+	 * @param position	absolute file offset
+	 * @return the byte at the given offset
+	 */
+	private byte byteAt(long position) {
+		return segments[(int) (position >>> SEGMENT_SHIFT)].get((int) (position & SEGMENT_MASK));
+	}//byteAt
+
+	/**
+	 * Amino acid sequence (or part of it) of a protein, read directly from the mapped file.
+	 */
+	private final class MappedSequence implements CharSequence {
+
+		private final int protein; //position of the protein in the index
+		private final int start;   //first residue of this view
+		private final int length;
+
+		private MappedSequence(int protein, int start, int length) {
+			this.protein = protein;
+			this.start   = start;
+			this.length  = length;
+		}//MappedSequence
+
+		@Override
+		public int length() {
+			return length;
+		}//length
+
+		@Override
+		public char charAt(int position) {
+			if (position < 0 || position >= length)
+				throw new IndexOutOfBoundsException("Invalid residue position: " + position);
+
+			/* Skip the line separators: residue -> (line, column) -> file offset */
+			int residue = start + position;
+			int bases = index.getLineBases(protein);
+			long offset = index.getSeqOffset(protein) + (long) (residue / bases) * index.getLineBytes(protein)
+						  + residue % bases;
+			return (char) (byteAt(offset) & 0xFF);
+		}//charAt
+
+		@Override
+		public CharSequence subSequence(int from, int to) {
+			if (from < 0 || to > length || from > to)
+				throw new IndexOutOfBoundsException("Invalid range: " + from + " - " + to);
+			return new MappedSequence(protein, start + from, to - from);
+		}//subSequence
+
+		@Override
+		public String toString() {
+			byte[] residues = new byte[length];
+			for (int position = 0; position < length; position++)
+				residues[position] = (byte) charAt(position);
+			return new String(residues, StandardCharsets.ISO_8859_1);
+		}//toString
+	}//MappedSequence
+
+}//end of class
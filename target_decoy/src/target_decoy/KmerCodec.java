@@ -0,0 +1,88 @@
+package target_decoy;
+
+/**
+ * Encodes amino acid combinations (k-mers) as packed integers over a 5 bit alphabet:
+ * '_' (dummy) = 0, 'A' = 1 ... 'Z' = 26, any other character = 31.
+ * A k-mer uses 5 * k bits, the first letter in the highest bits
+ * (ex: "ABC" = (1 << 10) | (2 << 5) | 3), so a rolling window is updated with
+ * ((key << 5) | encode(next letter)) & mask, without creating any String.
+ * @author junghyey
+ */
+public final class KmerCodec {
+
+	public final static int  BITS_PER_RESIDUE = 5;
+	public final static int  DUMMY_CODE = 0;   //code of the dummy character '_'
+	public final static int  OTHER_CODE = 31;  //code of any character other than '_' and letters
+	public final static char DUMMY = '_';
+	public final static char OTHER = '?';      //decoded form of OTHER_CODE
+
+	private KmerCodec() {
+	}//KmerCodec
+
+	/**
+	 * @param aminoAcid		a single amino acid (lowercase letters are treated as uppercase)
+	 * @return code			5 bit code of the amino acid
+	 */
+	public static int encode(char aminoAcid) {
+		if (aminoAcid == DUMMY)
+			return DUMMY_CODE;
+		int index = (aminoAcid | 0x20) - 'a';
+		return (index >= 0 && index < 26) ? index + 1 : OTHER_CODE;
+	}//encode
+
+	/**
+	 * @param code			5 bit code of an amino acid
+	 * @return aminoAcid	the amino acid ('_' for the dummy, '?' for other characters)
+	 */
+	public static char decode(int code) {
+		if (code == DUMMY_CODE)
+			return DUMMY;
+		if (code > 26)
+			return OTHER;
+		return (char) ('A' + code - 1);
+	}//decode
+
+	/**
+	 * @param k		number of letters of the combination
+	 * @return mask	bit mask keeping the last k letters of a rolling key
+	 */
+	public static long mask(int k) {
+		return (1L << (BITS_PER_RESIDUE * k)) - 1;
+	}//mask
+
+	/**
+	 * Packs a combination of letters into a key.
+	 * @param kmer		combination (ex: "_AB", "ABC")
+	 * @return key		packed key
+	 */
+	public static long pack(CharSequence kmer) {
+		long key = 0;
+		for (int position = 0; position < kmer.length(); position++)
+			key = (key << BITS_PER_RESIDUE) | encode(kmer.charAt(position));
+		return key;
+	}//pack
+
+	/**
+	 * Unpacks a key into its combination of letters.
+	 * @param key		packed key
+	 * @param k			number of letters of the combination
+	 * @return kmer		combination (ex: "ABC")
+	 */
+	public static String unpack(long key, int k) {
+		char[] kmer = new char[k];
+		for (int position = k - 1; position >= 0; position--) {
+			kmer[position] = decode((int) (key & OTHER_CODE));
+			key >>>= BITS_PER_RESIDUE;
+		}//for position
+		return new String(kmer);
+	}//unpack
+
+	/**
+	 * @param key		packed key
+	 * @return the code of the last letter of the combination
+	 */
+	public static int lastCode(long key) {
+		return (int) (key & OTHER_CODE);
+	}//lastCode
+
+}//end of class
@@ -0,0 +1,95 @@
+package target_decoy;
+
+/**
+ * Represents a table of amino acid combinations (k-mers packed by KmerCodec).
+ * Each combination stores two values: its count and the amino acid it is mapped to
+ * (0 if not mapped). Values are primitives, no boxing.
+ * @author junghyey
+ */
+public abstract class KmerTable {
+
+	/**
+	 * Receives the entries of a table (see forEach).
+	 */
+	public interface EntryVisitor {
+		/**
+		 * @param key		packed combination
+		 * @param count		count of the combination
+		 * @param residue	amino acid the combination is mapped to (0 if not mapped)
+		 */
+		void visit(long key, int count, char residue);
+	}//EntryVisitor
+
+	protected final int k; //letters per combination
+
+	/**
+	 * Constructor for the class
+	 * @param k		letters per combination
+	 */
+	protected KmerTable(int k) {
+		this.k = k;
+	}//KmerTable
+
+	/**
+	 * Creates the most compact table for combinations of k letters:
+	 * a dense array (DenseKmerTable) up to 4 letters (32^4 slots),
+	 * an open addressing hash table (SparseKmerTable) above.
+	 * @param k			letters per combination
+	 * @return table	an empty table
+	 */
+	public static KmerTable create(int k) {
+		if (k <= DenseKmerTable.MAX_K)
+			return new DenseKmerTable(k);
+		return new SparseKmerTable(k);
+	}//create
+
+	/**
+	 * Adds 1 to the count of a combination.
+	 * @param key	packed combination
+	 */
+	public abstract void increment(long key);
+
+	/**
+	 * @param key	packed combination
+	 * @param count	new count of the combination
+	 */
+	public abstract void setCount(long key, int count);
+
+	/**
+	 * @param key	packed combination
+	 * @return count of the combination (0 if not in the table)
+	 */
+	public abstract int getCount(long key);
+
+	/**
+	 * @param key		packed combination
+	 * @param residue	amino acid the combination is mapped to
+	 */
+	public abstract void setResidue(long key, char residue);
+
+	/**
+	 * @param key	packed combination
+	 * @return the amino acid the combination is mapped to (0 if not mapped)
+	 */
+	public abstract char getResidue(long key);
+
+	/**
+	 * Visits every combination of the table with a count or a mapped amino acid.
+	 * The order only depends on the combinations added to the table and their order.
+	 * @param visitor	receives the entries
+	 */
+	public abstract void forEach(EntryVisitor visitor);
+
+	/**
+	 * @return the number of combinations in the table
+	 */
+	public abstract int size();
+
+	/**
+	 * @return k	letters per combination
+	 */
+	public int getK() {
+		return k;
+	}//getK
+
+}//end of class
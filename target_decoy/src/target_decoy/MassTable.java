@@ -0,0 +1,185 @@
+package target_decoy;
+
+import java.util.Arrays;
+
+/**
+ * Residue mass lookup tables (double[128], indexed by the amino acid character) with the
+ * water & proton terms needed for peptide masses, in monoisotopic or average mode.
+ * Peptide mass = sum of its residue masses + water.
+ * Prefix mass arrays (prefix[position] = mass of residues [0, position)) give the mass of
+ * any peptide of a protein in O(1): prefix[end] - prefix[start] + water.
+ * Unknown residues (B, J, O, X, Z...etc..) have no mass: the mass of a peptide containing one is NaN
+ * (prefix masses count them separately, see fillUnknownCounts).
+ * NaN fails every mass comparison, so mass filters must be written to reject it
+ * (ex: !(mass >= minMass && mass <= maxMass)). Callers can check residues with hasMass.
+ * @author junghyey
+ */
+public final class MassTable {
+
+	public final static double PROTON = 1.007276466; //mass of a proton (Da)
+
+	private final static double MASS_SCALE = 1e5; //5 decimal places
+	private final static String RESIDUES = "ACDEFGHIKLMNPQRSTUVWY";
+
+	/*Monoisotopic masses*/
+	public final static MassTable MONOISOTOPIC = new MassTable("monoisotopic", 18.0105647, new double[] {
+		71.03711, 103.00919, 115.02694, 129.04259, 147.06841, 57.02146, 137.05891,
+		113.08406, 128.09496, 113.08406, 131.04049, 114.04293, 97.05276, 128.05858,
+		156.10111, 87.03203, 101.04768, 150.95364, 99.06841, 186.07931, 163.06333});
+
+	/*Average masses*/
+	public final static MassTable AVERAGE = new MassTable("average", 18.01528, new double[] {
+		71.0788, 103.1388, 115.0886, 129.1155, 147.1766, 57.0519, 137.1411,
+		113.1594, 128.1741, 113.1594, 131.1926, 114.1038, 97.1167, 128.1307,
+		156.1875, 87.0782, 101.1051, 150.0388, 99.1326, 186.2132, 163.1760});
+
+	private final String name;
+	private final double water;
+	private final double[] residueMass = new double[128];
+	private final boolean[] known = new boolean[128];
+
+	/**
+	 * @param name		name of the mass mode
+	 * @param water		mass of H2O
+	 * @param masses	masses of the residues of RESIDUES (same order)
+	 */
+	private MassTable(String name, double water, double[] masses) {
+		this.name  = name;
+		this.water = water;
+		Arrays.fill(residueMass, Double.NaN);
+		for (int index = 0; index < masses.length; index++) {
+			char residue = RESIDUES.charAt(index);
+			residueMass[residue] = masses[index];
+			residueMass[Character.toLowerCase(residue)] = masses[index];
+			known[residue] = true;
+			known[Character.toLowerCase(residue)] = true;
+		}//for index
+	}//MassTable
+
+	/**
+	 * @param aminoAcid		a single amino acid
+	 * @return true if the amino acid has a mass in the table
+	 */
+	public boolean hasMass(char aminoAcid) {
+		return aminoAcid < 128 && known[aminoAcid];
+	}//hasMass
+
+	/**
+	 * @param aminoAcid		a single amino acid
+	 * @return mass			the residue mass of the amino acid, NaN if unknown
+	 */
+	public double getResidueMass(char aminoAcid) {
+		return (aminoAcid < 128) ? residueMass[aminoAcid] : Double.NaN;
+	}//getResidueMass
+
+	/**
+	 * @param peptide		peptide amino acid sequence
+	 * @return mass			neutral mass of the peptide (residues + water), NaN if it has an unknown residue
+	 */
+	public double getPeptideMass(CharSequence peptide) {
+		return getPeptideMass(peptide, 0, peptide.length());
+	}//getPeptideMass
+
+	/**
+	 * @param proteinSeq	protein amino acid sequence
+	 * @param start			position of the first residue of the peptide
+	 * @param end			position after the last residue of the peptide
+	 * @return mass			neutral mass of the peptide [start, end) (residues + water), NaN if it has an unknown residue
+	 */
+	public double getPeptideMass(CharSequence proteinSeq, int start, int end) {
+		double mass = water;
+		for (int position = start; position < end; position++)
+			mass += getResidueMass(proteinSeq.charAt(position));
+		return mass;
+	}//getPeptideMass
+
+	/**
+	 * Fills the prefix masses of a protein: prefix[position] = mass of the residues [0, position).
+	 * Unknown residues add 0 here (so that they do not spoil the following prefixes), use
+	 * fillUnknownCounts to find the peptides containing one.
+	 * @param proteinSeq	protein amino acid sequence
+	 * @param prefix		array to reuse (null or too short: a new array is created)
+	 * @return prefix		array of (at least) length + 1 prefix masses
+	 */
+	public double[] fillPrefixMasses(CharSequence proteinSeq, double[] prefix) {
+		int length = proteinSeq.length();
+		if (prefix == null || prefix.length < length + 1)
+			prefix = new double[Math.max(length + 1, (prefix == null) ? 0 : prefix.length * 2)];
+
+		prefix[0] = 0;
+		for (int position = 0; position < length; position++) {
+			char residue = proteinSeq.charAt(position);
+			prefix[position + 1] = prefix[position] + (hasMass(residue) ? residueMass[residue] : 0);
+		}//for position
+		return prefix;
+	}//fillPrefixMasses
+
+	/**
+	 * Fills the prefix counts of unknown residues of a protein: unknown[position] = number of
+	 * unknown residues in [0, position).
+	 * @param proteinSeq	protein amino acid sequence
+	 * @param unknown		array to reuse (null or too short: a new array is created)
+	 * @return unknown		array of (at least) length + 1 prefix counts
+	 */
+	public int[] fillUnknownCounts(CharSequence proteinSeq, int[] unknown) {
+		int length = proteinSeq.length();
+		if (unknown == null || unknown.length < length + 1)
+			unknown = new int[Math.max(length + 1, (unknown == null) ? 0 : unknown.length * 2)];
+
+		unknown[0] = 0;
+		for (int position = 0; position < length; position++)
+			unknown[position + 1] = unknown[position] + (hasMass(proteinSeq.charAt(position)) ? 0 : 1);
+		return unknown;
+	}//fillUnknownCounts
+
+	/**
+	 * @param prefix		prefix masses of a protein (see fillPrefixMasses)
+	 * @param unknown		prefix counts of unknown residues of the protein (see fillUnknownCounts)
+	 * @param start			position of the first residue of the peptide
+	 * @param end			position after the last residue of the peptide
+	 * @return mass			neutral mass of the peptide [start, end) (residues + water), NaN if it has an unknown residue
+	 */
+	public double getPeptideMass(double[] prefix, int[] unknown, int start, int end) {
+		if (unknown[end] != unknown[start])
+			return Double.NaN;
+		return prefix[end] - prefix[start] + water;
+	}//getPeptideMass
+
+	/**
+	 * Rounds a mass to the precision of the tables (5 decimal places), so that masses summed
+	 * in a different order (or from prefix masses) compare equal.
+	 * @param mass			a mass (Da)
+	 * @return the rounded mass
+	 */
+	public static double round(double mass) {
+		return Math.round(mass * MASS_SCALE) / MASS_SCALE;
+	}//round
+
+	/**
+	 * @param neutralMass	neutral mass of a peptide
+	 * @param charge		charge state (> 0)
+	 * @return mz			m/z of the [M + charge H] ion
+	 * @throws IllegalArgumentException if charge <= 0
+	 */
+	public static double toMz(double neutralMass, int charge) {
+		if (charge <= 0)
+			throw new IllegalArgumentException("The charge is <= 0: " + charge);
+		return (neutralMass + charge * PROTON) / charge;
+	}//toMz
+
+	//***********************************************Getters***********************************************
+	/**
+	 * @return water	mass of H2O in this mode
+	 */
+	public double getWater() {
+		return water;
+	}//getWater
+
+	/**
+	 * @return name		name of the mass mode ("monoisotopic" or "average")
+	 */
+	public String getName() {
+		return name;
+	}//getName
+
+}//end of class
@@ -0,0 +1,92 @@
+package target_decoy;
+
+/**
+ * A post-translational modification: a mass shift applied to one or more residues,
+ * either on every occurrence (fixed) or optionally (variable, see ModificationEnumerator).
+ * @author junghyey
+ */
+public final class Modification {
+
+	/*Modifications used by our Comet searches*/
+	public final static Modification CARBAMIDOMETHYL_C = new Modification("Carbamidomethyl", "C", 57.021464, 57.0513, true);
+	public final static Modification OXIDATION_M	   = new Modification("Oxidation", 		 "M", 15.994915, 15.9994, false);
+	public final static Modification PHOSPHO_STY	   = new Modification("Phospho", 		 "STY", 79.966331, 79.9799, false);
+
+	private final String  name;
+	private final String  residues;
+	private final double  monoDelta;    //monoisotopic mass shift
+	private final double  averageDelta; //average mass shift
+	private final boolean fixed;
+	private final boolean[] targets = new boolean[128]; //targets[residue]: the residue can carry it
+
+	/**
+	 * Constructor for the class
+	 * @param name			name of the modification (ex: "Oxidation")
+	 * @param residues		residues the modification applies to (ex: "STY")
+	 * @param monoDelta		monoisotopic mass shift (Da)
+	 * @param averageDelta	average mass shift (Da)
+	 * @param fixed			true if every occurrence of the residues is modified
+	 * @throws IllegalArgumentException if residues is empty or contains a non ASCII character
+	 */
+	public Modification(String name, String residues, double monoDelta, double averageDelta, boolean fixed) {
+
+		/*Enforce the precondition: at least one (ASCII) residue*/
+		if (residues.isEmpty())
+			throw new IllegalArgumentException("The modification " + name + " has no residue");
+
+		this.name = name;
+		this.residues = residues;
+		this.monoDelta = monoDelta;
+		this.averageDelta = averageDelta;
+		this.fixed = fixed;
+		for (char residue: residues.toCharArray()) {
+			if (residue >= 128)
+				throw new IllegalArgumentException("Invalid residue for " + name + ": " + residue);
+			targets[residue] = true;
+		}//for residue
+	}//Modification
+
+	/**
+	 * @param aminoAcid		a single amino acid
+	 * @return true if the modification applies to the amino acid
+	 */
+	public boolean appliesTo(char aminoAcid) {
+		return aminoAcid < 128 && targets[aminoAcid];
+	}//appliesTo
+
+	/**
+	 * @param massTable		MassTable.MONOISOTOPIC or MassTable.AVERAGE
+	 * @return mass shift in the mode of the given table
+	 */
+	public double getMassDelta(MassTable massTable) {
+		return (massTable == MassTable.AVERAGE) ? averageDelta : monoDelta;
+	}//getMassDelta
+
+	@Override
+	public String toString() {
+		return name + " (" + residues + ", " + (fixed ? "fixed" : "variable") + ")";
+	}//toString
+
+	//***********************************************Getters***********************************************
+	/**
+	 * @return name		name of the modification
+	 */
+	public String getName() {
+		return name;
+	}//getName
+
+	/**
+	 * @return residues the modification applies to
+	 */
+	public String getResidues() {
+		return residues;
+	}//getResidues
+
+	/**
+	 * @return true if every occurrence of the residues is modified
+	 */
+	public boolean isFixed() {
+		return fixed;
+	}//isFixed
+
+}//end of class
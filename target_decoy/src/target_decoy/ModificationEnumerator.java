@@ -0,0 +1,181 @@
+package target_decoy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Enumerates the modified forms (variants) of digested peptides.
+ * Fixed modifications are applied to every matching residue. Variable modifications are
+ * combined over the matching residues: every subset of at most maxVariableMods modified
+ * residues is a variant (the unmodified form included), and at most maxVariants variants are
+ * reported per peptide. Variant masses are computed incrementally (mass of the parent subset
+ * + one mass shift), never by summing the residues again.
+ * An enumerator reuses its work arrays between peptides: use one enumerator per thread.
+ * @author junghyey
+ */
+public class ModificationEnumerator {
+
+	/**
+	 * Receives the variants of a peptide.
+	 */
+	public interface VariantVisitor {
+		/**
+		 * @param mass				neutral mass of the variant
+		 * @param variableModCount	number of variable modifications of the variant
+		 */
+		void visit(double mass, int variableModCount);
+	}//VariantVisitor
+
+	public final static int DEFAULT_MAX_VARIABLE_MODS = 3;   //per peptide
+	public final static int DEFAULT_MAX_VARIANTS	  = 128; //per peptide
+
+	private final MassTable massTable;
+	private final double[] fixedDelta	 = new double[128]; //total fixed mass shift per residue
+	private final double[] variableDelta = new double[128]; //variable mass shift per residue (0: none)
+	private final List<Modification> modifications = new ArrayList<Modification>();
+	private int maxVariableMods = DEFAULT_MAX_VARIABLE_MODS;
+	private int maxVariants		= DEFAULT_MAX_VARIANTS;
+
+	/**
+	 * Work state of the peptide being enumerated
+	 */
+	private double[] siteDelta = new double[64]; //mass shift of each variable site of the peptide
+	private int siteCount;
+	private int variantCount;
+	private VariantVisitor visitor;
+
+	/**
+	 * Constructor for the class (no modification)
+	 * @param massTable		masses of the peptides (the modification shifts use the same mode)
+	 */
+	public ModificationEnumerator(MassTable massTable) {
+		this.massTable = massTable;
+	}//ModificationEnumerator
+
+	/**
+	 * Adds a modification.
+	 * @param modification	a fixed or variable modification
+	 * @throws IllegalArgumentException if a residue already carries a variable modification
+	 */
+	public void add(Modification modification) {
+		double delta = modification.getMassDelta(massTable);
+		for (char residue: modification.getResidues().toCharArray()) {
+			if (modification.isFixed())
+				fixedDelta[residue] += delta;
+			else {
+				if (variableDelta[residue] != 0)
+					throw new IllegalArgumentException("The residue " + residue + " already has a variable modification");
+				variableDelta[residue] = delta;
+			}//else
+		}//for residue
+		modifications.add(modification);
+	}//add
+
+	/**
+	 * Enumerates the variants of the peptide [start, end) of a protein.
+	 * @param proteinSeq	protein amino acid sequence
+	 * @param start			position of the first residue of the peptide
+	 * @param end			position after the last residue of the peptide
+	 * @param peptideMass	neutral mass of the unmodified peptide (ex: from prefix masses)
+	 * @param visitor		receives every variant
+	 * @return the number of variants reported (>= 1)
+	 */
+	public int enumerate(CharSequence proteinSeq, int start, int end, double peptideMass, VariantVisitor visitor) {
+
+		/* 1. Fixed modifications & variable sites of the peptide */
+		double mass = peptideMass;
+		siteCount = 0;
+		for (int position = start; position < end; position++) {
+			char residue = proteinSeq.charAt(position);
+			if (residue >= 128)
+				continue;
+			mass += fixedDelta[residue];
+			if (variableDelta[residue] != 0) {
+				if (siteCount == siteDelta.length)
+					siteDelta = Arrays.copyOf(siteDelta, siteCount * 2);
+				siteDelta[siteCount++] = variableDelta[residue];
+			}//if
+		}//for position
+
+		/* 2. Every subset of at most maxVariableMods sites (depth first, capped at maxVariants) */
+		this.visitor = visitor;
+		variantCount = 0;
+		visit(mass, 0, 0);
+		this.visitor = null;
+		return variantCount;
+	}//enumerate
+
+	/**
+	 * Reports a variant, then extends it with each of the following sites.
+	 * @param mass			mass of the current variant
+	 * @param firstSite		first site that can still be modified
+	 * @param modCount		variable modifications of the current variant
+	 */
+	private void visit(double mass, int firstSite, int modCount) {
+		visitor.visit(mass, modCount);
+		variantCount++;
+		if (modCount == maxVariableMods)
+			return;
+		for (int site = firstSite; site < siteCount && variantCount < maxVariants; site++)
+			visit(mass + siteDelta[site], site + 1, modCount + 1);
+	}//visit
+
+	/**
+	 * @return true if at least one modification was added
+	 */
+	public boolean hasModifications() {
+		return !modifications.isEmpty();
+	}//hasModifications
+
+	//***********************************************Setters***********************************************
+	/**
+	 * @param maxVariableMods	maximum number of variable modifications per peptide (>= 0)
+	 * @throws IllegalArgumentException if maxVariableMods < 0
+	 */
+	public void setMaxVariableMods(int maxVariableMods) {
+		if (maxVariableMods < 0)
+			throw new IllegalArgumentException("The maximum number of variable modifications is < 0: " + maxVariableMods);
+		this.maxVariableMods = maxVariableMods;
+	}//setMaxVariableMods
+
+	/**
+	 * @param maxVariants	maximum number of variants per peptide, unmodified form included (>= 1)
+	 * @throws IllegalArgumentException if maxVariants < 1
+	 */
+	public void setMaxVariants(int maxVariants) {
+		if (maxVariants < 1)
+			throw new IllegalArgumentException("The maximum number of variants is < 1: " + maxVariants);
+		this.maxVariants = maxVariants;
+	}//setMaxVariants
+
+	//***********************************************Getters***********************************************
+	/**
+	 * @return modifications	the modifications added so far
+	 */
+	public List<Modification> getModifications() {
+		return modifications;
+	}//getModifications
+
+	/**
+	 * @return massTable	masses of the peptides
+	 */
+	public MassTable getMassTable() {
+		return massTable;
+	}//getMassTable
+
+	/**
+	 * @return maxVariableMods	maximum number of variable modifications per peptide
+	 */
+	public int getMaxVariableMods() {
+		return maxVariableMods;
+	}//getMaxVariableMods
+
+	/**
+	 * @return maxVariants	maximum number of variants per peptide
+	 */
+	public int getMaxVariants() {
+		return maxVariants;
+	}//getMaxVariants
+
+}//end of class
@@ -0,0 +1,248 @@
+package target_decoy;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Parses a (uncompressed) FASTA file on all cores. The file is memory mapped and split into chunks,
+ * each chunk boundary moved forward to the next '>' at the start of a line, so that every chunk
+ * holds whole proteins. The chunks are read twice, concurrently:
+ * 		1. count the proteins & residues of each chunk (nothing is allocated)
+ * 		2. parse each chunk, copying its residues straight into its own reserved range of the table
+ * then the proteins are added in chunk order: the result is the same as parsing the file with FastaReader,
+ * and the residues are held once (no per-chunk tables merged into a second copy).
+ * A ProteinTable holds at most ProteinStore.MAX_RESIDUES residues (about 2 GB of sequence): larger
+ * files are rejected after the counting pass, before anything is allocated.
+ * @author junghyey
+ */
+public final class ParallelFastaParser {
+
+	private final static long MIN_CHUNK_SIZE = 1L << 24; //16 MB: smaller files are not worth splitting
+	private final static long MAX_CHUNK_SIZE = 1L << 30; //1 GB: a mapping is limited to 2 GB
+	private final static int CHUNKS_PER_CORE = 4;		 //balances chunks of uneven parsing cost
+	private final static int SCAN_SIZE = 1 << 16;		 //bytes read at a time to align a boundary
+
+	/**
+	 * Proteins of a chunk [start, end) of the file: counted by the first pass, parsed by the second
+	 */
+	private static final class Chunk {
+		private final long start;
+		private final long end;
+		private int proteinCount;
+		private int residueCount;
+		private int residueStart;	   //first residue of the chunk in the table
+		private String[] proteinIDs;   //filled by the second pass
+		private String[] proteinInfos;
+		private int[] seqLengths;
+
+		private Chunk(long start, long end) {
+			this.start = start;
+			this.end   = end;
+		}//Chunk
+	}//Chunk
+
+	private ParallelFastaParser() {
+	}//ParallelFastaParser
+
+	/**
+	 * Parses a FASTA file on all cores.
+	 * @param fileName		full file path (path + name) of the FASTA file
+	 * @return table		the proteins of the file (file order)
+	 * @throws IllegalArgumentException if the file is compressed (cannot be memory mapped)
+	 * 									or has more than ProteinStore.MAX_RESIDUES residues
+	 * @throws IOException	if reading the file fails
+	 */
+	public static ProteinTable parse(String fileName) throws IOException {
+
+		/*Enforce the precondition: The file is not compressed*/
+		if (CompressedIO.isCompressed(fileName))
+			throw new IllegalArgumentException("A compressed file cannot be memory mapped, use FastaReader: " + fileName);
+
+		try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+
+			/* 1. Chunk boundaries, aligned to the proteins */
+			long[] boundaries = split(channel);
+			Chunk[] chunks = new Chunk[boundaries.length - 1];
+			for (int chunk = 0; chunk < chunks.length; chunk++)
+				chunks[chunk] = new Chunk(boundaries[chunk], boundaries[chunk + 1]);
+
+			try {
+				/* 2. Count the proteins & residues of the chunks concurrently */
+				Arrays.stream(chunks).parallel().forEach(chunk -> scanChunk(channel, chunk, null));
+				long proteinCount = 0;
+				long residueCount = 0;
+				for (Chunk chunk: chunks) {
+					proteinCount += chunk.proteinCount;
+					residueCount += chunk.residueCount;
+				}//for chunk
+
+				/*Enforce the precondition: The proteins fit in a single table (checked before allocating it)*/
+				if (residueCount > ProteinStore.MAX_RESIDUES)
+					throw new IllegalArgumentException(fileName + " has " + residueCount + " residues, a protein table holds at most "
+													   + ProteinStore.MAX_RESIDUES);
+
+				/* 3. Reserve the residues of every chunk, in file order */
+				ProteinTable table = new ProteinTable((int) Math.max(1, proteinCount), (int) Math.max(1, residueCount));
+				for (Chunk chunk: chunks)
+					chunk.residueStart = table.reserveResidues(chunk.residueCount);
+
+				/* 4. Parse the chunks concurrently into their reserved residues */
+				Arrays.stream(chunks).parallel().forEach(chunk -> scanChunk(channel, chunk, table));
+
+				/* 5. Add the proteins in file order (a repeated proteinID replaces the earlier protein) */
+				for (int index = 0; index < chunks.length; index++) {
+					Chunk chunk = chunks[index];
+					int start = chunk.residueStart;
+					for (int protein = 0; protein < chunk.proteinCount; protein++) {
+						table.addReserved(chunk.proteinIDs[protein], chunk.proteinInfos[protein], start, chunk.seqLengths[protein]);
+						start += chunk.seqLengths[protein];
+					}//for protein
+					chunks[index] = null; //headings are held by the table now
+				}//for index
+				return table;
+			}//try
+			catch (UncheckedIOException uioe) {
+				throw uioe.getCause();
+			}//catch
+		}//try
+	}//parse
+
+	/**
+	 * Splits the file into chunks starting at a heading (or at the start of the file).
+	 * @return boundaries	chunk i is [boundaries[i], boundaries[i + 1])
+	 */
+	private static long[] split(FileChannel channel) throws IOException {
+		long fileSize = channel.size();
+		int cores = Runtime.getRuntime().availableProcessors();
+		long chunkSize = Math.min(MAX_CHUNK_SIZE, Math.max(MIN_CHUNK_SIZE, fileSize / ((long) cores * CHUNKS_PER_CORE) + 1));
+		int chunkCount = (int) Math.max(1, (fileSize + chunkSize - 1) / chunkSize);
+
+		long[] boundaries = new long[chunkCount + 1];
+		int count = 1; //boundaries[0] = 0
+		for (int chunk = 1; chunk < chunkCount; chunk++) {
+			long boundary = nextHeading(channel, Math.max(chunk * chunkSize, boundaries[count - 1] + 1));
+			if (boundary >= fileSize)
+				break;
+			if (boundary > boundaries[count - 1])
+				boundaries[count++] = boundary;
+		}//for chunk
+		boundaries[count++] = fileSize;
+		return Arrays.copyOf(boundaries, count);
+	}//split
+
+	/**
+	 * @return the offset of the first '>' at the start of a line at or after position (file size if none)
+	 */
+	private static long nextHeading(FileChannel channel, long position) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(SCAN_SIZE);
+		long offset = position - 1; //the byte before position tells if position starts a line
+		byte previous = '\n';
+		while (true) {
+			buffer.clear();
+			int read = channel.read(buffer, offset);
+			if (read <= 0)
+				return channel.size();
+			for (int index = 0; index < read; index++) {
+				byte b = buffer.get(index);
+				if (b == '>' && previous == '\n' && offset + index >= position)
+					return offset + index;
+				previous = b;
+			}//for index
+			offset += read;
+		}//while
+	}//nextHeading
+
+	/**
+	 * Counts (table == null) or parses the proteins of a chunk (starting at a heading or at the start of the file).
+	 * Same rules as FastaReader: headings are lines starting with '>', anything before the first
+	 * heading is skipped, and white spaces of the sequence lines are dropped.
+	 * @param chunk		the chunk (counts set by the first pass, proteins by the second)
+	 * @param table		the table holding the reserved residues of the chunk, null to count only
+	 */
+	private static void scanChunk(FileChannel channel, Chunk chunk, ProteinTable table) {
+		MappedByteBuffer buffer;
+		try {
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk.start, chunk.end - chunk.start);
+		}//try
+		catch (IOException ioe) {
+			throw new UncheckedIOException(ioe);
+		}//catch
+
+		int chunkLength = (int) (chunk.end - chunk.start);
+		boolean parsing = (table != null);
+		if (parsing) {
+			chunk.proteinIDs   = new String[chunk.proteinCount];
+			chunk.proteinInfos = new String[chunk.proteinCount];
+			chunk.seqLengths   = new int[chunk.proteinCount];
+		}//if
+		byte[] seqBytes = parsing ? new byte[1 << 16] : null;
+		int protein = 0;
+		int residue = chunk.residueStart; //next residue of the chunk in the table
+		int position = 0;
+
+		/* 1. Skip anything before the first heading */
+		boolean lineStart = true;
+		while (position < chunkLength && !(lineStart && buffer.get(position) == '>')) {
+			lineStart = buffer.get(position) == '\n';
+			position++;
+		}//while
+
+		while (position < chunkLength) {
+
+			/* 2. Heading line (without '\r') */
+			int infoStart = position;
+			while (position < chunkLength && buffer.get(position) != '\n')
+				position++;
+			int infoEnd = position;
+			if (infoEnd > infoStart && buffer.get(infoEnd - 1) == '\r')
+				infoEnd--;
+			if (parsing) {
+				byte[] infoBytes = new byte[infoEnd - infoStart];
+				buffer.get(infoStart, infoBytes);
+				chunk.proteinInfos[protein] = new String(infoBytes, StandardCharsets.UTF_8);
+				chunk.proteinIDs[protein]	= FastaRecord.idFinder(chunk.proteinInfos[protein]);
+			}//if
+			position++;
+
+			/* 3. Sequence lines until the next heading */
+			int seqLength = 0;
+			lineStart = true;
+			while (position < chunkLength) {
+				byte b = buffer.get(position);
+				if (lineStart && b == '>')
+					break;
+				lineStart = (b == '\n');
+				if (b > ' ') {
+					if (parsing) {
+						if (seqLength == seqBytes.length)
+							seqBytes = Arrays.copyOf(seqBytes, seqLength * 2);
+						seqBytes[seqLength] = b;
+					}//if
+					seqLength++;
+				}//if
+				position++;
+			}//while
+
+			/* 4. Copy the residues into the table (second pass) */
+			if (parsing) {
+				table.setResidues(residue, seqBytes, 0, seqLength);
+				chunk.seqLengths[protein] = seqLength;
+			}//if
+			residue += seqLength;
+			protein++;
+		}//while
+
+		if (!parsing) {
+			chunk.proteinCount = protein;
+			chunk.residueCount = residue;
+		}//if
+	}//scanChunk
+
+}//end of class
@@ -0,0 +1,237 @@
+package target_decoy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes proteins in FASTA format (same output as FastaWriter) on all cores.
+ * Proteins are collected into chunks of about CHUNK_SIZE bytes, each chunk is formatted
+ * (heading line, lineWidth amino acids per line) by a worker thread into a pooled byte buffer,
+ * and the chunks are written to the channel by the calling thread in the order of the write calls.
+ * At most 2 chunks per core are in flight, which bounds memory use; a written buffer is reused
+ * for a later chunk.
+ * Sequences are formatted after write returns: they must not change until the writer is closed
+ * (ex: String, ProteinStore.getResidues, but not a reused StringBuilder).
+ * @author junghyey
+ */
+public class ParallelFastaWriter implements Closeable {
+
+	private final static int CHUNK_SIZE = 1 << 20; //1 MB of formatted proteins per chunk
+	private final static int THREADS = Runtime.getRuntime().availableProcessors();
+	private final static int MAX_PENDING = 2 * THREADS;
+	private final static byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+	/*Formatting workers shared by every writer (daemon threads: never keep the JVM alive)*/
+	private final static ExecutorService WORKERS = Executors.newFixedThreadPool(THREADS, task -> {
+		Thread worker = new Thread(task, "fasta-writer");
+		worker.setDaemon(true);
+		return worker;
+	});
+
+	private final WritableByteChannel channel;
+	private final int lineWidth;
+	private final ArrayDeque<Future<ByteBuffer>> pending; //formatted chunks, in write order
+	private final ArrayDeque<byte[]> bufferPool;		  //buffers of written chunks
+	private List<String> proteinInfos;					  //proteins of the current chunk
+	private List<CharSequence> proteinSeqs;
+	private long chunkSize;								  //estimated formatted size of the current chunk
+	private boolean open;
+
+	/**
+	 * Constructor for the class
+	 * @param channel		a channel to write FASTA formatted bytes to (closed with this writer)
+	 * @param lineWidth		amino acids per sequence line (> 0)
+	 * @throws IllegalArgumentException if lineWidth <= 0
+	 */
+	public ParallelFastaWriter(WritableByteChannel channel, int lineWidth) {
+
+		/*Enforce the precondition: lineWidth > 0*/
+		if (lineWidth <= 0)
+			throw new IllegalArgumentException("The line width is <= 0: " + lineWidth);
+
+		this.channel   = channel;
+		this.lineWidth = lineWidth;
+		pending		 = new ArrayDeque<Future<ByteBuffer>>();
+		bufferPool	 = new ArrayDeque<byte[]>();
+		proteinInfos = new ArrayList<String>();
+		proteinSeqs	 = new ArrayList<CharSequence>();
+		open		 = true;
+	}//ParallelFastaWriter
+
+	/**
+	 * Creates (or overwrites) a FASTA file with 60 amino acids per line.
+	 * @param fileName		full file path (path + name)
+	 * @return writer		ParallelFastaWriter of the file
+	 * @throws IOException	if the file cannot be created
+	 */
+	public static ParallelFastaWriter open(String fileName) throws IOException {
+		return open(fileName, FastaWriter.DEFAULT_LINE_WIDTH);
+	}//open
+
+	/**
+	 * Creates (or overwrites) a FASTA file (.gz files are compressed on the fly, see CompressedIO).
+	 * @param fileName		full file path (path + name)
+	 * @param lineWidth		amino acids per sequence line (> 0)
+	 * @return writer		ParallelFastaWriter of the file
+	 * @throws IOException	if the file cannot be created
+	 */
+	public static ParallelFastaWriter open(String fileName, int lineWidth) throws IOException {
+		return new ParallelFastaWriter(CompressedIO.openWrite(fileName), lineWidth);
+	}//open
+
+	/**
+	 * Writes a single protein (formatted later by a worker thread).
+	 * @param proteinInfo	protein information heading (starts with ">")
+	 * @param proteinSeq	protein amino acid sequence (length > 0), unchanged until close
+	 * @throws IllegalArgumentException if the sequence is empty
+	 * @throws IOException	if writing an earlier chunk fails
+	 */
+	public void write(String proteinInfo, CharSequence proteinSeq) throws IOException {
+		if (!open)
+			throw new ClosedChannelException();
+
+		int length = proteinSeq.length();
+
+		/*Enforce the precondition: The given amino acid sequence's length should be > 0*/
+		if (length <= 0)
+			throw new IllegalArgumentException("The length of the amino acid sequence is <= 0");
+
+		proteinInfos.add(proteinInfo);
+		proteinSeqs.add(proteinSeq);
+		chunkSize += proteinInfo.length() + length + (length / lineWidth + 2) * LINE_SEPARATOR.length;
+		if (chunkSize >= CHUNK_SIZE)
+			submitChunk();
+	}//write
+
+	/**
+	 * Formats the last chunk, writes all the pending chunks and closes the channel.
+	 * If formatting or writing failed, a failure to close the channel is added to that
+	 * (first) failure as a suppressed exception instead of replacing it.
+	 * @throws IOException	if formatting, writing or closing fails
+	 */
+	@Override
+	public void close() throws IOException {
+		if (!open)
+			return;
+		open = false;
+
+		Throwable failure = null;
+		try {
+			if (!proteinInfos.isEmpty())
+				submitChunk();
+			while (!pending.isEmpty())
+				writeChunk();
+		}//try
+		catch (Throwable t) {
+			failure = t;
+			throw t;
+		}//catch
+		finally {
+			while (!pending.isEmpty())
+				pending.poll().cancel(true);
+			try {
+				channel.close();
+			}//try
+			catch (IOException ioe) {
+				if (failure == null)
+					throw ioe;
+				failure.addSuppressed(ioe);
+			}//catch
+		}//finally
+	}//close
+
+	/**
+	 * Hands the current chunk to a worker (waits for the oldest chunk when too many are in flight).
+	 */
+	private void submitChunk() throws IOException {
+		List<String> infos = proteinInfos;
+		List<CharSequence> seqs = proteinSeqs;
+		byte[] buffer = bufferPool.isEmpty() ? new byte[CHUNK_SIZE + (CHUNK_SIZE >> 4)] : bufferPool.poll();
+		pending.add(WORKERS.submit(() -> format(infos, seqs, buffer)));
+
+		proteinInfos = new ArrayList<String>();
+		proteinSeqs	 = new ArrayList<CharSequence>();
+		chunkSize	 = 0;
+		if (pending.size() >= MAX_PENDING)
+			writeChunk();
+	}//submitChunk
+
+	/**
+	 * Waits for the oldest pending chunk, writes it to the channel and puts its buffer back in the pool.
+	 */
+	private void writeChunk() throws IOException {
+		ByteBuffer chunk;
+		try {
+			chunk = pending.poll().get();
+		}//try
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while formatting");
+		}//catch
+		catch (ExecutionException ee) {
+			throw new IOException("Formatting failed", ee.getCause());
+		}//catch
+
+		while (chunk.hasRemaining())
+			channel.write(chunk);
+		bufferPool.add(chunk.array());
+	}//writeChunk
+
+	/**
+	 * Formats the proteins of a chunk.
+	 * @param proteinInfos	protein information headings
+	 * @param proteinSeqs	protein amino acid sequences
+	 * @param buffer		a pooled buffer (replaced by a larger one if the chunk does not fit)
+	 * @return chunk		the formatted proteins (backed by the buffer)
+	 */
+	private ByteBuffer format(List<String> proteinInfos, List<CharSequence> proteinSeqs, byte[] buffer) {
+		int position = 0;
+		for (int protein = 0; protein < proteinInfos.size(); protein++) {
+			byte[] infoBytes = proteinInfos.get(protein).getBytes(StandardCharsets.UTF_8);
+			CharSequence proteinSeq = proteinSeqs.get(protein);
+			int length = proteinSeq.length();
+			int lines  = (length + lineWidth - 1) / lineWidth;
+
+			/* 1. Make room for the whole protein */
+			int needed = position + infoBytes.length + length + (lines + 1) * LINE_SEPARATOR.length;
+			if (needed > buffer.length) {
+				byte[] larger = new byte[Math.max(needed, buffer.length + (buffer.length >> 1))];
+				System.arraycopy(buffer, 0, larger, 0, position);
+				buffer = larger;
+			}//if
+
+			/* 2. Heading line */
+			System.arraycopy(infoBytes, 0, buffer, position, infoBytes.length);
+			position += infoBytes.length;
+			position = putSeparator(buffer, position);
+
+			/* 3. Sequence lines: copy lineWidth amino acids, then a line separator */
+			for (int lineStart = 0; lineStart < length; lineStart += lineWidth) {
+				int lineEnd = Math.min(lineStart + lineWidth, length);
+				for (int residue = lineStart; residue < lineEnd; residue++)
+					buffer[position++] = (byte) proteinSeq.charAt(residue);
+				position = putSeparator(buffer, position);
+			}//for lineStart
+		}//for protein
+		return ByteBuffer.wrap(buffer, 0, position);
+	}//format
+
+	private static int putSeparator(byte[] buffer, int position) {
+		for (byte b: LINE_SEPARATOR)
+			buffer[position++] = b;
+		return position;
+	}//putSeparator
+
+}//end of class
@@ -0,0 +1,169 @@
+package target_decoy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip compresses the bytes written to it on all cores.
+ * The input is cut into fixed size blocks, each block is compressed as an independent gzip
+ * member by a worker thread, and the members are written to the underlying channel in order.
+ * A concatenation of gzip members is a valid gzip file (read back by gzip, zcat,
+ * GZIPInputStream...etc..). At most 2 blocks per core are in flight, which bounds memory use.
+ * @author junghyey
+ */
+public class ParallelGzipChannel implements WritableByteChannel {
+
+	private final static int BLOCK_SIZE = 1 << 20; //1 MB of input per gzip member
+	private final static int THREADS = Runtime.getRuntime().availableProcessors();
+	private final static int MAX_PENDING = 2 * THREADS;
+
+	/*Compression workers shared by every channel (daemon threads: never keep the JVM alive)*/
+	private final static ExecutorService WORKERS = Executors.newFixedThreadPool(THREADS, task -> {
+		Thread worker = new Thread(task, "gzip-worker");
+		worker.setDaemon(true);
+		return worker;
+	});
+
+	private final WritableByteChannel channel;
+	private final ArrayDeque<Future<byte[]>> pending; //compressed members, in file order
+	private byte[] block;
+	private int blockLength;
+	private boolean written; //at least one member was submitted
+	private boolean open;
+
+	/**
+	 * Constructor for the class
+	 * @param channel	a channel to write the compressed bytes to (closed with this channel)
+	 */
+	public ParallelGzipChannel(WritableByteChannel channel) {
+		this.channel = channel;
+		pending = new ArrayDeque<Future<byte[]>>();
+		block   = new byte[BLOCK_SIZE];
+		open    = true;
+	}//ParallelGzipChannel
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int write(ByteBuffer source) throws IOException {
+		if (!open)
+			throw new ClosedChannelException();
+
+		int length = source.remaining();
+		while (source.hasRemaining()) {
+			int chunk = Math.min(source.remaining(), BLOCK_SIZE - blockLength);
+			source.get(block, blockLength, chunk);
+			blockLength += chunk;
+			if (blockLength == BLOCK_SIZE)
+				submitBlock();
+		}//while
+		return length;
+	}//write
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean isOpen() {
+		return open;
+	}//isOpen
+
+	/**
+	 * Compresses the last block, writes all the pending members and closes the underlying channel.
+	 * If compressing or writing failed, a failure to close the channel is added to that
+	 * (first) failure as a suppressed exception instead of replacing it.
+	 * @throws IOException	if compressing, writing or closing fails
+	 */
+	@Override
+	public void close() throws IOException {
+		if (!open)
+			return;
+		open = false;
+
+		Throwable failure = null;
+		try {
+			/*An empty input still gives a valid (empty) gzip file*/
+			if (blockLength > 0 || !written)
+				submitBlock();
+			while (!pending.isEmpty())
+				writeMember();
+		}//try
+		catch (Throwable t) {
+			failure = t;
+			throw t;
+		}//catch
+		finally {
+			while (!pending.isEmpty())
+				pending.poll().cancel(true);
+			try {
+				channel.close();
+			}//try
+			catch (IOException ioe) {
+				if (failure == null)
+					throw ioe;
+				failure.addSuppressed(ioe);
+			}//catch
+		}//finally
+	}//close
+
+	/**
+	 * Hands the current block to a worker (waits for the oldest member when too many are in flight).
+	 */
+	private void submitBlock() throws IOException {
+		byte[] data   = block;
+		int    length = blockLength;
+		pending.add(WORKERS.submit(() -> compress(data, length)));
+		written = true;
+
+		block = new byte[BLOCK_SIZE];
+		blockLength = 0;
+		if (pending.size() >= MAX_PENDING)
+			writeMember();
+	}//submitBlock
+
+	/**
+	 * Waits for the oldest pending member and writes it to the underlying channel.
+	 */
+	private void writeMember() throws IOException {
+		byte[] member;
+		try {
+			member = pending.poll().get();
+		}//try
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while compressing");
+		}//catch
+		catch (ExecutionException ee) {
+			throw new IOException("Compression failed", ee.getCause());
+		}//catch
+
+		ByteBuffer buffer = ByteBuffer.wrap(member);
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+	}//writeMember
+
+	/**
+	 * @param data		uncompressed bytes
+	 * @param length	number of bytes of data to compress
+	 * @return member	a complete gzip member (header + deflated data + trailer)
+	 */
+	private static byte[] compress(byte[] data, int length) throws IOException {
+		ByteArrayOutputStream member = new ByteArrayOutputStream(length / 3 + 64);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(member, 1 << 16)) {
+			gzip.write(data, 0, length);
+		}//try
+		return member.toByteArray();
+	}//compress
+
+}//end of class
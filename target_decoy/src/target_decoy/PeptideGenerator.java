@@ -1,93 +1,128 @@
-package target_decoy;
-
-/**
- * This class contains methods for generating peptides and
- * storing those peptides into files.
- * @author junghyey
- */
-public class PeptideGenerator {
-    
-    /**
-	 * proteinSeqDict stores [proteinID, protein sequence] ([K,V] pair)
-	 * proteinInfoDict stores [proteinID, protein information heading] ([K,V] pair)
-	 */
-	private DictionaryGenerator data;
-    private Peptide peptide;
-
-    /**
-     * Constructor for the class.
-     * @param fileName  A full file path (file path + file name) of
-     *                  the protein file to generate peptides of.
-     */
-	public PeptideGenerator(String fileName) {
-        data = new DictionaryGenerator(fileName);
-        
-		
-	}// PeptideGenerator
-
-  /**
-   * Generates a peptide using an enzyme.
-   * @param peptide     any child class of Peptide class
-   */
-    public void generatePeptide(Peptide peptide){
-		/*Generate peptides */
-        this.peptide = peptide;
-		peptide.cleaveAllProtein();
-        peptide.countLength();
-		peptide.countAllMass();
-    }//generatePeptide;
-
-
-    /**
-     * Saves the generated peptide in txt, saves each peptide's mass in csv, 
-     * and saves each peptide's length in csv.
-     * @param fileAddress   a user designated file path to save these files (only path, no file name)
-     * @param prefix        a user designated prefix for a file name
-     * @param suffix        a user designated suffix for a file name
-     * prefix+"peptides"+suffix+".txt" (generated peptide), prefix+"peptide_mass"+suffix+".csv" (peptide mass), 
-     * and prefix+"peptide_length"+suffix+".csv"(pepetide length) are generated.
-     */
-    public void writePeptide(String fileAddress, String prefix, String suffix){
-		Database.writeDictionary( fileAddress + prefix + "peptides" + suffix+ ".txt", peptide.getPeptideDict());
-		Database.writeCSV( fileAddress + prefix + "peptide_mass" + suffix+ ".csv", peptide.getMassDict());
-		Database.writeCSV( fileAddress + prefix +"peptide_length" + suffix + ".csv", peptide.getLengthDict());
-    }//writePeptide
-
-    //***********************************************Setters***********************************************
-    /**
-     * @param peptide   any child class of Peptide class
-     */
-    public void setPeptide(Peptide peptide){
-        this.peptide = peptide;
-    }
-    
-    /**
-     * @param data     a DictionaryGenerator that stores 
-     *                 [Key: ProteinID] and [Value:Protein Sequence]
-     */
-    public void setData (DictionaryGenerator data){
-        this.data = data;
-    }//setData
-
-    //***********************************************Getters***********************************************
-    /**
-     * @return data    a DictionaryGenerator that stores 
-     *                 [Key: ProteinID] and [Value:Protein Sequence]
-     */
-    public DictionaryGenerator getData (){
-
-        return data;
-
-    }//getData
-
-    /**
-     * @return peptide  a type of Peptide class
-     */
-    public Peptide getPeptide(){
-        return peptide;
-    }//getPeptide
-
-
-}//end of class
-
-
+package target_decoy;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * This class contains methods for generating peptides and
+ * storing those peptides into files.
+ * @author junghyey
+ */
+public class PeptideGenerator {
+    
+    /**
+	 * proteinSeqDict stores [proteinID, protein sequence] ([K,V] pair)
+	 * proteinInfoDict stores [proteinID, protein information heading] ([K,V] pair)
+	 */
+	private DictionaryGenerator data;
+    private Peptide peptide;
+
+    /**
+     * Constructor for the class.
+     * @param fileName  A full file path (file path + file name) of
+     *                  the protein file to generate peptides of.
+     */
+	public PeptideGenerator(String fileName) {
+        data = new DictionaryGenerator(fileName);
+        
+		
+	}// PeptideGenerator
+
+  /**
+   * Generates a peptide using an enzyme.
+   * @param peptide     any child class of Peptide class
+   */
+    public void generatePeptide(Peptide peptide){
+		/*Generate peptides */
+        this.peptide = peptide;
+		peptide.cleaveAllProtein();
+        peptide.countLength();
+		peptide.countAllMass();
+    }//generatePeptide;
+
+
+    /**
+     * Saves the generated peptide in txt, saves each peptide's mass in csv, 
+     * and saves each peptide's length in csv.
+     * @param fileAddress   a user designated file path to save these files (only path, no file name)
+     * @param prefix        a user designated prefix for a file name
+     * @param suffix        a user designated suffix for a file name
+     * prefix+"peptides"+suffix+".txt" (generated peptide), prefix+"peptide_mass"+suffix+".csv" (peptide mass), 
+     * and prefix+"peptide_length"+suffix+".csv"(pepetide length) are generated.
+     * @throws IOException  if a file cannot be written
+     */
+    public void writePeptide(String fileAddress, String prefix, String suffix) throws IOException {
+		Database.writeDictionary( fileAddress + prefix + "peptides" + suffix+ ".txt", peptide.getPeptideDict());
+		Database.writeCSV( fileAddress + prefix + "peptide_mass" + suffix+ ".csv", peptide.getMassDict());
+		Database.writeCSV( fileAddress + prefix +"peptide_length" + suffix + ".csv", peptide.getLengthDict());
+    }//writePeptide
+
+    /**
+     * Digests the target proteins (and the given decoy proteins) with the digester of the peptide
+     * and saves the peptides as a mass sorted, memory-mappable peptide index (see PeptideIndex).
+     * @param fileName      full file path (path + name) of the index to create
+     * @param decoySeqDict  decoy sequence data [proteinID : decoy protein sequence] (null: targets only)
+     * @throws IOException  if the file cannot be written
+     */
+    public void writePeptideIndex(String fileName, Map<String, String> decoySeqDict) throws IOException {
+        PeptideIndex.write(fileName, data.getSeqDict(), decoySeqDict, peptide.getDigester(), peptide.getMassTable());
+    }//writePeptideIndex
+
+    /**
+     * Digests the target proteins (and the given decoy proteins) with the digester of the peptide
+     * into a deduplicated PeptideStore (each distinct peptide once, with the proteins it maps to).
+     * @param decoySeqDict  decoy sequence data [proteinID : decoy protein sequence] (null: targets only)
+     * @return store        the deduplicated peptides
+     */
+    public PeptideStore storePeptides(Map<String, String> decoySeqDict) {
+        return PeptideStore.build(data.getSeqDict(), decoySeqDict, peptide.getDigester());
+    }//storePeptides
+
+    /**
+     * Saves the summary of a PeptideStore (unique, shared peptides, target-decoy collisions...etc..) in csv.
+     * @param fileName      full file path (path + name)
+     * @param store         deduplicated peptides (see storePeptides)
+     * @throws IOException  if the file cannot be written
+     */
+    public void writePeptideSummary(String fileName, PeptideStore store) throws IOException {
+        Database.writeCSV(fileName, store.getSummary());
+    }//writePeptideSummary
+
+    //***********************************************Setters***********************************************
+    /**
+     * @param peptide   any child class of Peptide class
+     */
+    public void setPeptide(Peptide peptide){
+        this.peptide = peptide;
+    }
+    
+    /**
+     * @param data     a DictionaryGenerator that stores 
+     *                 [Key: ProteinID] and [Value:Protein Sequence]
+     */
+    public void setData (DictionaryGenerator data){
+        this.data = data;
+    }//setData
+
+    //***********************************************Getters***********************************************
+    /**
+     * @return data    a DictionaryGenerator that stores 
+     *                 [Key: ProteinID] and [Value:Protein Sequence]
+     */
+    public DictionaryGenerator getData (){
+
+        return data;
+
+    }//getData
+
+    /**
+     * @return peptide  a type of Peptide class
+     */
+    public Peptide getPeptide(){
+        return peptide;
+    }//getPeptide
+
+
+}//end of class
+
+
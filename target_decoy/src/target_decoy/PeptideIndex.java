@@ -0,0 +1,436 @@
+package target_decoy;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary, memory-mapped peptide database sorted by neutral peptide mass.
+ * Every peptide entry stores its mass, its protein (index), its offsets in the protein and
+ * a target/decoy flag. Precursor lookups ([mass - tolerance, mass + tolerance]) jump to a
+ * 1 Da mass bucket and binary search inside it, without reading the rest of the file.
+ * File layout (big endian):
+ * header	 MAGIC, peptideCount, proteinCount, minMass, bucketWidth, bucketCount
+ * entries	 peptideCount * [double mass, int protein, int start, int length, int flags] (sorted by mass)
+ * buckets	 (bucketCount + 1) * int: first entry of each bucket
+ * proteins	 (proteinCount + 1) * long residue offsets, (proteinCount + 1) * int id offsets
+ * ids		 protein ids (UTF-8, decoy ids start with "XXX_")
+ * residues	 protein sequences (ASCII), concatenated (at most 2^31 - 1, checked by write)
+ * @author junghyey
+ */
+public class PeptideIndex implements Closeable {
+
+	public  final static int	FLAG_DECOY  = 1;
+	private final static long   MAGIC		= 0x5045505449445831L; //"PEPTIDX1"
+	private final static int	HEADER_SIZE = 40;
+	private final static int	ENTRY_SIZE  = 24;
+	private final static double BUCKET_WIDTH = 1.0; //Da
+	private final static int	SEGMENT_ENTRIES = 1 << 25; //entries per mapped segment (768 MB)
+	private final static double SORT_SCALE = 1e3; //mass resolution of the sort key (1 mDa)
+	private final static int	SORT_INDEX_BITS = 29; //at most 2^29 peptides
+	private final static long	SORT_MAX_KEY = (1L << (63 - SORT_INDEX_BITS)) - 1;
+
+	/**
+	 * Receives the entries of a mass range query.
+	 */
+	public interface EntryVisitor {
+		/**
+		 * @param entry		position of the peptide in the index (sorted by mass)
+		 */
+		void visit(int entry);
+	}//EntryVisitor
+
+	private final FileChannel channel;
+	private final int peptideCount;
+	private final int proteinCount;
+	private final double minMass;
+	private final double bucketWidth;
+	private final int bucketCount;
+	private final MappedByteBuffer[] entrySegments;
+	private final MappedByteBuffer buckets;
+	private final MappedByteBuffer proteins;
+	private final MappedByteBuffer ids;
+	private final MappedByteBuffer residues;
+
+	/**
+	 * Constructor for the class (maps the file)
+	 * @param fileName		full file path (path + name) of the peptide index
+	 * @throws IOException	if the file cannot be mapped or is not a peptide index
+	 */
+	public PeptideIndex(String fileName) throws IOException {
+		channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ);
+
+		/* 1. Header */
+		MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+		if (header.getLong(0) != MAGIC) {
+			channel.close();
+			throw new IOException("Not a peptide index: " + fileName);
+		}//if
+		peptideCount = header.getInt(8);
+		proteinCount = header.getInt(12);
+		minMass		 = header.getDouble(16);
+		bucketWidth  = header.getDouble(24);
+		bucketCount  = header.getInt(32);
+
+		/* 2. Entries (in segments: can be larger than 2 GB) */
+		long offset = HEADER_SIZE;
+		entrySegments = new MappedByteBuffer[(peptideCount + SEGMENT_ENTRIES - 1) / SEGMENT_ENTRIES];
+		for (int segment = 0; segment < entrySegments.length; segment++) {
+			int entries = Math.min(SEGMENT_ENTRIES, peptideCount - segment * SEGMENT_ENTRIES);
+			entrySegments[segment] = channel.map(FileChannel.MapMode.READ_ONLY, offset, (long) entries * ENTRY_SIZE);
+			offset += (long) entries * ENTRY_SIZE;
+		}//for segment
+
+		/* 3. Buckets, protein table, ids, residues */
+		buckets  = channel.map(FileChannel.MapMode.READ_ONLY, offset, 4L * (bucketCount + 1));
+		offset  += 4L * (bucketCount + 1);
+		proteins = channel.map(FileChannel.MapMode.READ_ONLY, offset, 12L * (proteinCount + 1));
+		offset  += 12L * (proteinCount + 1);
+		int idLength = proteins.getInt(8 * (proteinCount + 1) + 4 * proteinCount);
+		ids		 = channel.map(FileChannel.MapMode.READ_ONLY, offset, idLength);
+		offset  += idLength;
+		residues = channel.map(FileChannel.MapMode.READ_ONLY, offset, channel.size() - offset);
+	}//PeptideIndex
+
+	/**
+	 * Digests target & decoy proteins and writes their peptides as a peptide index.
+	 * A ProteinStore (ex: ProteinTable, DecoyGenerator.getDseqDict) is walked by protein index
+	 * (getResidues views, no proteinID lookup, no sequence String).
+	 * @param fileName			full file path (path + name) of the index to create
+	 * @param targetSeqDict		target sequence data [proteinID : target protein sequence]
+	 * @param decoySeqDict		decoy sequence data  [proteinID : decoy protein sequence] (null: targets only)
+	 * @param digester			digestion rules (protease, missed cleavages, length & mass filters)
+	 * @param massTable			masses of the peptides
+	 * @throws IllegalArgumentException if there are too many peptides or residues (> 2^31 - 1, mapped as
+	 * 									a single buffer) for a single index
+	 * @throws IOException		if the file cannot be written
+	 */
+	public static void write(String fileName, Map<String, String> targetSeqDict, Map<String, String> decoySeqDict,
+							 Digester digester, MassTable massTable) throws IOException {
+
+		/* 1. Proteins: targets first, then decoys */
+		List<String> proteinIDs = new ArrayList<String>();
+		List<CharSequence> proteinSeqs = new ArrayList<CharSequence>();
+		addProteins(targetSeqDict, "", proteinIDs, proteinSeqs);
+		int targetCount = proteinIDs.size();
+		if (decoySeqDict != null)
+			addProteins(decoySeqDict, DecoyGenerator.DECOY_PREFIX.substring(1), proteinIDs, proteinSeqs);
+
+		/*Enforce the precondition: The residues fit in a single mapped buffer (checked before writing)*/
+		long residueCount = 0;
+		for (CharSequence proteinSeq: proteinSeqs)
+			residueCount += proteinSeq.length();
+		if (residueCount > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("Too many residues for a single index: " + residueCount);
+
+		/* 2. Digest every protein into primitive columns (peptides with an unknown residue have no mass: skipped) */
+		PeptideColumns peptides = new PeptideColumns();
+		double[] prefix = null;
+		int[] unknown = null;
+		for (int protein = 0; protein < proteinSeqs.size(); protein++) {
+			CharSequence proteinSeq = proteinSeqs.get(protein);
+			double[] proteinPrefix = prefix = massTable.fillPrefixMasses(proteinSeq, prefix);
+			int[] proteinUnknown = unknown = massTable.fillUnknownCounts(proteinSeq, unknown);
+			int flags = (protein >= targetCount) ? FLAG_DECOY : 0;
+			digester.digest(protein, proteinSeq, (proteinIndex, start, end) -> {
+				double mass = massTable.getPeptideMass(proteinPrefix, proteinUnknown, start, end);
+				if (!Double.isNaN(mass))
+					peptides.add(mass, proteinIndex, start, end - start, flags);
+			});
+		}//for protein
+
+		/* 3. Sort by mass: (fixed point mass << 29 | peptide) keys, a single primitive sort
+		 *    (masses above the key range share the last key, sortEqualKeys orders them) */
+		int count = peptides.size;
+		if (count >= (1 << SORT_INDEX_BITS))
+			throw new IllegalArgumentException("Too many peptides for a single index: " + count);
+		long[] order = new long[count];
+		for (int peptide = 0; peptide < count; peptide++)
+			order[peptide] = (Math.min((long) (peptides.mass[peptide] * SORT_SCALE), SORT_MAX_KEY) << SORT_INDEX_BITS) | peptide;
+		Arrays.parallelSort(order);
+		sortEqualKeys(order, peptides.mass);
+
+		/* 4. Write the file */
+		double minMass = (count == 0) ? 0 : Math.floor(peptides.mass[(int) (order[0] & ((1 << SORT_INDEX_BITS) - 1))]);
+		double maxMass = (count == 0) ? 0 : peptides.mass[(int) (order[count - 1] & ((1 << SORT_INDEX_BITS) - 1))];
+		int bucketCount = (int) ((maxMass - minMass) / BUCKET_WIDTH) + 1;
+
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(fileName)), 1 << 16))) {
+			out.writeLong(MAGIC);
+			out.writeInt(count);
+			out.writeInt(proteinIDs.size());
+			out.writeDouble(minMass);
+			out.writeDouble(BUCKET_WIDTH);
+			out.writeInt(bucketCount);
+			out.writeInt(0); //reserved
+
+			/*Entries (sorted) & first entry of each bucket*/
+			int[] bucketStart = new int[bucketCount + 1];
+			int bucket = 0;
+			for (int entry = 0; entry < count; entry++) {
+				int peptide = (int) (order[entry] & ((1 << SORT_INDEX_BITS) - 1));
+				double mass = peptides.mass[peptide];
+				int entryBucket = (int) ((mass - minMass) / BUCKET_WIDTH);
+				while (bucket < entryBucket)
+					bucketStart[++bucket] = entry;
+				out.writeDouble(mass);
+				out.writeInt(peptides.protein[peptide]);
+				out.writeInt(peptides.start[peptide]);
+				out.writeInt(peptides.length[peptide]);
+				out.writeInt(peptides.flags[peptide]);
+			}//for entry
+			while (bucket < bucketCount)
+				bucketStart[++bucket] = count;
+			for (int start: bucketStart)
+				out.writeInt(start);
+
+			/*Protein table: residue offsets, then id offsets*/
+			byte[][] idBytes = new byte[proteinIDs.size()][];
+			long residueOffset = 0;
+			for (int protein = 0; protein < proteinIDs.size(); protein++) {
+				idBytes[protein] = proteinIDs.get(protein).getBytes(StandardCharsets.UTF_8);
+				out.writeLong(residueOffset);
+				residueOffset += proteinSeqs.get(protein).length();
+			}//for protein
+			out.writeLong(residueOffset);
+			int idOffset = 0;
+			for (byte[] id: idBytes) {
+				out.writeInt(idOffset);
+				idOffset += id.length;
+			}//for id
+			out.writeInt(idOffset);
+
+			/*Ids & residues*/
+			for (byte[] id: idBytes)
+				out.write(id);
+			for (CharSequence proteinSeq: proteinSeqs)
+				out.write(ProteinStore.copyResidues(proteinSeq));
+		}//try
+	}//write
+
+	/**
+	 * Lists the proteins of a sequence dictionary (by index if it is a ProteinStore: residue views, no copy).
+	 * @param idPrefix	prefix of the proteinIDs in the index ("XXX_" for decoys)
+	 */
+	private static void addProteins(Map<String, String> seqDict, String idPrefix,
+									List<String> proteinIDs, List<CharSequence> proteinSeqs) {
+		if (seqDict instanceof ProteinStore) {
+			ProteinStore proteins = (ProteinStore) seqDict;
+			for (int protein = 0; protein < proteins.size(); protein++) {
+				proteinIDs.add(idPrefix + proteins.getProteinID(protein));
+				proteinSeqs.add(proteins.getResidues(protein));
+			}//for protein
+		}//if
+		else {
+			for (Map.Entry<String, String> entry: seqDict.entrySet()) {
+				proteinIDs.add(idPrefix + entry.getKey());
+				proteinSeqs.add(entry.getValue());
+			}//for entry
+		}//else
+	}//addProteins
+
+	/**
+	 * Finds the first entry with a mass >= the given mass.
+	 * @param mass		neutral mass (Da)
+	 * @return entry	position of the first entry with mass >= mass (peptideCount if none)
+	 */
+	public int lowerBound(double mass) {
+		int bucket = (int) Math.floor((mass - minMass) / bucketWidth);
+		if (bucket < 0)
+			return 0;
+		if (bucket >= bucketCount)
+			return peptideCount;
+
+		/*Binary search inside the bucket*/
+		int low  = buckets.getInt(4 * bucket);
+		int high = buckets.getInt(4 * (bucket + 1));
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (getMass(middle) < mass)
+				low = middle + 1;
+			else
+				high = middle;
+		}//while
+		return low;
+	}//lowerBound
+
+	/**
+	 * Finds the first entry with a mass > the given mass.
+	 * @param mass		neutral mass (Da)
+	 * @return entry	position of the first entry with mass > mass (peptideCount if none)
+	 */
+	public int upperBound(double mass) {
+		int entry = lowerBound(mass);
+		while (entry < peptideCount && getMass(entry) <= mass)
+			entry++;
+		return entry;
+	}//upperBound
+
+	/**
+	 * Visits every peptide with minMass <= mass <= maxMass (in mass order).
+	 * @param minMass		lower bound of the mass window (Da)
+	 * @param maxMass		upper bound of the mass window (Da)
+	 * @param visitor		receives the position of every matching entry
+	 * @return the number of matching entries
+	 */
+	public int query(double minMass, double maxMass, EntryVisitor visitor) {
+		int first = lowerBound(minMass);
+		int end   = upperBound(maxMass);
+		for (int entry = first; entry < end; entry++)
+			visitor.visit(entry);
+		return Math.max(0, end - first);
+	}//query
+
+	/**
+	 * @param entry		position of a peptide in the index
+	 * @return neutral mass of the peptide
+	 */
+	public double getMass(int entry) {
+		return segment(entry).getDouble(entryOffset(entry));
+	}//getMass
+
+	/**
+	 * @param entry		position of a peptide in the index
+	 * @return index of the protein of the peptide (see getProteinID)
+	 */
+	public int getProteinIndex(int entry) {
+		return segment(entry).getInt(entryOffset(entry) + 8);
+	}//getProteinIndex
+
+	/**
+	 * @param entry		position of a peptide in the index
+	 * @return position of the first residue of the peptide in its protein
+	 */
+	public int getStart(int entry) {
+		return segment(entry).getInt(entryOffset(entry) + 12);
+	}//getStart
+
+	/**
+	 * @param entry		position of a peptide in the index
+	 * @return length of the peptide
+	 */
+	public int getLength(int entry) {
+		return segment(entry).getInt(entryOffset(entry) + 16);
+	}//getLength
+
+	/**
+	 * @param entry		position of a peptide in the index
+	 * @return true if the peptide comes from a decoy protein
+	 */
+	public boolean isDecoy(int entry) {
+		return (segment(entry).getInt(entryOffset(entry) + 20) & FLAG_DECOY) != 0;
+	}//isDecoy
+
+	/**
+	 * @param entry		position of a peptide in the index
+	 * @return the amino acid sequence of the peptide
+	 */
+	public String getSequence(int entry) {
+		long offset = proteins.getLong(8 * getProteinIndex(entry)) + getStart(entry);
+		byte[] peptide = new byte[getLength(entry)];
+		residues.get((int) offset, peptide);
+		return new String(peptide, StandardCharsets.ISO_8859_1);
+	}//getSequence
+
+	/**
+	 * @param protein	index of a protein
+	 * @return the protein id (decoy ids start with "XXX_")
+	 */
+	public String getProteinID(int protein) {
+		int idTable = 8 * (proteinCount + 1);
+		int start = proteins.getInt(idTable + 4 * protein);
+		int end   = proteins.getInt(idTable + 4 * (protein + 1));
+		byte[] id = new byte[end - start];
+		ids.get(start, id);
+		return new String(id, StandardCharsets.UTF_8);
+	}//getProteinID
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}//close
+
+	/**
+	 * Orders (by exact mass) the entries whose fixed point masses are equal
+	 * (the sort key truncates the mass, so only those can be out of order).
+	 */
+	private static void sortEqualKeys(long[] order, double[] mass) {
+		int indexMask = (1 << SORT_INDEX_BITS) - 1;
+		for (int entry = 1; entry < order.length; entry++) {
+			for (int previous = entry; previous > 0
+				 && (order[previous - 1] >>> SORT_INDEX_BITS) == (order[previous] >>> SORT_INDEX_BITS)
+				 && mass[(int) (order[previous - 1] & indexMask)] > mass[(int) (order[previous] & indexMask)]; previous--) {
+				long swap = order[previous];
+				order[previous] = order[previous - 1];
+				order[previous - 1] = swap;
+			}//for previous
+		}//for entry
+	}//sortEqualKeys
+
+	private MappedByteBuffer segment(int entry) {
+		return entrySegments[entry / SEGMENT_ENTRIES];
+	}//segment
+
+	private static int entryOffset(int entry) {
+		return (entry % SEGMENT_ENTRIES) * ENTRY_SIZE;
+	}//entryOffset
+
+	//***********************************************Getters***********************************************
+	/**
+	 * @return peptideCount		number of peptides in the index
+	 */
+	public int size() {
+		return peptideCount;
+	}//size
+
+	/**
+	 * @return proteinCount		number of proteins (targets & decoys) in the index
+	 */
+	public int getProteinCount() {
+		return proteinCount;
+	}//getProteinCount
+
+	/**
+	 * Growable primitive columns of digested peptides (used while writing).
+	 */
+	private static final class PeptideColumns {
+		private double[] mass	 = new double[1024];
+		private int[]	 protein = new int[1024];
+		private int[]	 start	 = new int[1024];
+		private int[]	 length	 = new int[1024];
+		private int[]	 flags	 = new int[1024];
+		private int size;
+
+		private void add(double peptideMass, int proteinIndex, int peptideStart, int peptideLength, int peptideFlags) {
+			if (size == mass.length) {
+				int capacity = size * 2;
+				mass	= Arrays.copyOf(mass, capacity);
+				protein = Arrays.copyOf(protein, capacity);
+				start	= Arrays.copyOf(start, capacity);
+				length	= Arrays.copyOf(length, capacity);
+				flags	= Arrays.copyOf(flags, capacity);
+			}//if
+			mass[size]	  = peptideMass;
+			protein[size] = proteinIndex;
+			start[size]	  = peptideStart;
+			length[size]  = peptideLength;
+			flags[size]	  = peptideFlags;
+			size++;
+		}//add
+	}//PeptideColumns
+
+}//end of class
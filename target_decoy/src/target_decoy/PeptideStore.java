@@ -0,0 +1,356 @@
+package target_decoy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deduplicated peptides of a (target & decoy) protein set, with the proteins each peptide maps to.
+ * Every distinct peptide sequence is stored once in a byte arena and found again through an open
+ * addressing hash table of peptide ids (hash-consing): adding a peptide seen before only records
+ * the new protein. Peptides are flagged as target and/or decoy, so decoy peptides that are also
+ * target peptides (target-decoy collisions) can be counted.
+ * A store is not thread safe.
+ * @author junghyey
+ */
+public class PeptideStore {
+
+	public  final static int FLAG_TARGET = 1;
+	public  final static int FLAG_DECOY  = 2;
+	private final static float MAX_LOAD = 0.5f;
+
+	/**
+	 * Arena: residues of every distinct peptide, back to back
+	 */
+	private byte[] arena = new byte[1 << 16];
+	private int arenaLength;
+
+	/**
+	 * Peptide columns (index: peptide id)
+	 */
+	private int[] offset = new int[1024]; //first residue in the arena
+	private int[] length = new int[1024];
+	private int[] hash   = new int[1024];
+	private int[] flags  = new int[1024];
+	private int[] firstMapping = new int[1024]; //last added mapping of the peptide (-1: none)
+	private int size;
+
+	/**
+	 * Protein mappings: singly linked lists of [protein, next mapping]
+	 */
+	private int[] mappingProtein = new int[1024];
+	private int[] mappingNext	 = new int[1024];
+	private int mappingCount;
+
+	/**
+	 * Hash table: slots hold peptide id + 1 (0: empty)
+	 */
+	private int[] slots = new int[1 << 12];
+
+	/**
+	 * Proteins (index: protein index)
+	 */
+	private final List<String> proteinIDs = new ArrayList<String>();
+	private final BitSet proteinDecoy = new BitSet(); //bit set: decoy protein
+
+	/**
+	 * Digests target & decoy proteins into a new store.
+	 * A ProteinStore (ex: ProteinTable, DecoyGenerator.getDseqDict) is walked by protein index
+	 * (getResidues views, no proteinID lookup, no sequence String).
+	 * @param targetSeqDict		target sequence data [proteinID : target protein sequence]
+	 * @param decoySeqDict		decoy sequence data  [proteinID : decoy protein sequence] (null: targets only)
+	 * @param digester			digestion rules (protease, missed cleavages, length & mass filters)
+	 * @return store			the deduplicated peptides
+	 * @throws IllegalArgumentException if the distinct peptides have more than ProteinStore.MAX_RESIDUES residues
+	 */
+	public static PeptideStore build(Map<String, String> targetSeqDict, Map<String, String> decoySeqDict, Digester digester) {
+		PeptideStore store = new PeptideStore();
+		store.addProteins(targetSeqDict, "", false, digester);
+		if (decoySeqDict != null)
+			store.addProteins(decoySeqDict, DecoyGenerator.DECOY_PREFIX.substring(1), true, digester);
+		return store;
+	}//build
+
+	/**
+	 * Digests every protein of a sequence dictionary (by index if it is a ProteinStore).
+	 * @param idPrefix	prefix of the proteinIDs in the store ("XXX_" for decoys)
+	 */
+	private void addProteins(Map<String, String> seqDict, String idPrefix, boolean decoy, Digester digester) {
+		if (seqDict instanceof ProteinStore) {
+			ProteinStore proteins = (ProteinStore) seqDict;
+			for (int protein = 0; protein < proteins.size(); protein++)
+				addProtein(idPrefix + proteins.getProteinID(protein), proteins.getResidues(protein), decoy, digester);
+		}//if
+		else {
+			for (Map.Entry<String, String> entry: seqDict.entrySet())
+				addProtein(idPrefix + entry.getKey(), entry.getValue(), decoy, digester);
+		}//else
+	}//addProteins
+
+	/**
+	 * Digests a protein and adds all its peptides.
+	 * @param proteinID		protein id
+	 * @param proteinSeq	protein amino acid sequence
+	 * @param decoy			true if the protein is a decoy protein
+	 * @param digester		digestion rules
+	 * @return protein		index of the protein in the store
+	 * @throws IllegalArgumentException if the distinct peptides have more than ProteinStore.MAX_RESIDUES residues
+	 */
+	public int addProtein(String proteinID, CharSequence proteinSeq, boolean decoy, Digester digester) {
+		int protein = proteinIDs.size();
+		proteinIDs.add(proteinID);
+		proteinDecoy.set(protein, decoy);
+		digester.digest(protein, proteinSeq, (proteinIndex, start, end) -> add(proteinSeq, start, end, proteinIndex));
+		return protein;
+	}//addProtein
+
+	/**
+	 * Adds a peptide [start, end) of a protein already added with addProtein (or records the protein
+	 * if the peptide is already in the store).
+	 * @param proteinSeq	protein amino acid sequence
+	 * @param start			position of the first residue of the peptide
+	 * @param end			position after the last residue of the peptide
+	 * @param protein		index of the protein
+	 * @return peptide		id of the peptide
+	 * @throws IllegalArgumentException if the protein index is unknown, or if the distinct peptides
+	 *         have more than ProteinStore.MAX_RESIDUES residues
+	 */
+	public int add(CharSequence proteinSeq, int start, int end, int protein) {
+
+		/*Enforce the precondition: the protein was added*/
+		if (protein < 0 || protein >= proteinIDs.size())
+			throw new IllegalArgumentException("Unknown protein index: " + protein);
+
+		/* 1. Find the peptide (or its empty slot) */
+		int peptideHash = hash(proteinSeq, start, end);
+		int mask = slots.length - 1;
+		int slot = peptideHash & mask;
+		int peptide = -1;
+		while (slots[slot] != 0) {
+			int candidate = slots[slot] - 1;
+			if (hash[candidate] == peptideHash && matches(candidate, proteinSeq, start, end)) {
+				peptide = candidate;
+				break;
+			}//if
+			slot = (slot + 1) & mask;
+		}//while
+
+		/* 2. New peptide: copy its residues into the arena */
+		if (peptide < 0) {
+			peptide = newPeptide(proteinSeq, start, end, peptideHash);
+			slots[slot] = peptide + 1;
+			if (size > MAX_LOAD * slots.length)
+				rehash();
+		}//if
+
+		/* 3. Record the protein (once per protein) & the target/decoy flag */
+		flags[peptide] |= proteinDecoy.get(protein) ? FLAG_DECOY : FLAG_TARGET;
+		int last = firstMapping[peptide];
+		if (last < 0 || mappingProtein[last] != protein)
+			addMapping(peptide, protein);
+		return peptide;
+	}//add
+
+	/**
+	 * @param peptideSeq	peptide amino acid sequence
+	 * @return peptide		id of the peptide, -1 if it is not in the store
+	 */
+	public int find(CharSequence peptideSeq) {
+		int peptideHash = hash(peptideSeq, 0, peptideSeq.length());
+		int mask = slots.length - 1;
+		for (int slot = peptideHash & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+			int candidate = slots[slot] - 1;
+			if (hash[candidate] == peptideHash && matches(candidate, peptideSeq, 0, peptideSeq.length()))
+				return candidate;
+		}//for slot
+		return -1;
+	}//find
+
+	/**
+	 * @param peptide	id of a peptide
+	 * @return the amino acid sequence of the peptide
+	 */
+	public String getSequence(int peptide) {
+		return new String(arena, offset[peptide], length[peptide], StandardCharsets.ISO_8859_1);
+	}//getSequence
+
+	/**
+	 * @param peptide	id of a peptide
+	 * @return proteins	indexes of the proteins the peptide maps to (in the order they were added)
+	 */
+	public int[] getProteins(int peptide) {
+		int count = 0;
+		for (int mapping = firstMapping[peptide]; mapping >= 0; mapping = mappingNext[mapping])
+			count++;
+		int[] proteins = new int[count];
+		for (int mapping = firstMapping[peptide]; mapping >= 0; mapping = mappingNext[mapping])
+			proteins[--count] = mappingProtein[mapping];
+		return proteins;
+	}//getProteins
+
+	/**
+	 * @param peptide	id of a peptide
+	 * @return ids of the proteins the peptide maps to
+	 */
+	public List<String> getProteinIDs(int peptide) {
+		List<String> ids = new ArrayList<String>();
+		for (int protein: getProteins(peptide))
+			ids.add(proteinIDs.get(protein));
+		return ids;
+	}//getProteinIDs
+
+	/**
+	 * @param peptide	id of a peptide
+	 * @return true if the peptide is found in a target protein
+	 */
+	public boolean isTarget(int peptide) {
+		return (flags[peptide] & FLAG_TARGET) != 0;
+	}//isTarget
+
+	/**
+	 * @param peptide	id of a peptide
+	 * @return true if the peptide is found in a decoy protein
+	 */
+	public boolean isDecoy(int peptide) {
+		return (flags[peptide] & FLAG_DECOY) != 0;
+	}//isDecoy
+
+	/**
+	 * @param peptide	id of a peptide
+	 * @return true if the peptide is found in both a target and a decoy protein (target-decoy collision)
+	 */
+	public boolean isCollision(int peptide) {
+		return flags[peptide] == (FLAG_TARGET | FLAG_DECOY);
+	}//isCollision
+
+	/**
+	 * Summarizes the store (for reports).
+	 * @return summaryDict	a dictionary [Key: statistic, Value: count]:
+	 * 						proteins, peptide_mappings, unique_peptides, target_peptides, decoy_peptides,
+	 * 						shared_peptides (mapping to > 1 protein), target_decoy_collisions
+	 */
+	public Map<String, Long> getSummary() {
+		long target = 0, decoy = 0, shared = 0, collision = 0;
+		for (int peptide = 0; peptide < size; peptide++) {
+			if (isTarget(peptide))
+				target++;
+			if (isDecoy(peptide))
+				decoy++;
+			if (isCollision(peptide))
+				collision++;
+			if (firstMapping[peptide] >= 0 && mappingNext[firstMapping[peptide]] >= 0)
+				shared++;
+		}//for peptide
+
+		Map<String, Long> summaryDict = new HashMap<String, Long>();
+		summaryDict.put("proteins", (long) proteinIDs.size());
+		summaryDict.put("peptide_mappings", (long) mappingCount);
+		summaryDict.put("unique_peptides", (long) size);
+		summaryDict.put("target_peptides", target);
+		summaryDict.put("decoy_peptides", decoy);
+		summaryDict.put("shared_peptides", shared);
+		summaryDict.put("target_decoy_collisions", collision);
+		return summaryDict;
+	}//getSummary
+
+	/**
+	 * @return the number of distinct peptides
+	 */
+	public int size() {
+		return size;
+	}//size
+
+	/**
+	 * @param protein	index of a protein
+	 * @return the protein id (decoy ids start with "XXX_")
+	 */
+	public String getProteinID(int protein) {
+		return proteinIDs.get(protein);
+	}//getProteinID
+
+	/**
+	 * @return the number of proteins added
+	 */
+	public int getProteinCount() {
+		return proteinIDs.size();
+	}//getProteinCount
+
+	private int newPeptide(CharSequence proteinSeq, int start, int end, int peptideHash) {
+		int peptideLength = end - start;
+		if ((long) arenaLength + peptideLength > ProteinStore.MAX_RESIDUES)
+			throw new IllegalArgumentException("More than " + ProteinStore.MAX_RESIDUES + " residues of distinct peptides");
+		if (arenaLength + peptideLength > arena.length)
+			arena = Arrays.copyOf(arena, (int) Math.min(ProteinStore.MAX_RESIDUES,
+													   Math.max(arenaLength + peptideLength, arena.length * 2L)));
+		for (int position = start; position < end; position++)
+			arena[arenaLength++] = (byte) proteinSeq.charAt(position);
+
+		if (size == offset.length) {
+			int capacity = size * 2;
+			offset		 = Arrays.copyOf(offset, capacity);
+			length		 = Arrays.copyOf(length, capacity);
+			hash		 = Arrays.copyOf(hash, capacity);
+			flags		 = Arrays.copyOf(flags, capacity);
+			firstMapping = Arrays.copyOf(firstMapping, capacity);
+		}//if
+		offset[size] = arenaLength - peptideLength;
+		length[size] = peptideLength;
+		hash[size]	 = peptideHash;
+		flags[size]	 = 0;
+		firstMapping[size] = -1;
+		return size++;
+	}//newPeptide
+
+	private void addMapping(int peptide, int protein) {
+		if (mappingCount == mappingProtein.length) {
+			mappingProtein = Arrays.copyOf(mappingProtein, mappingCount * 2);
+			mappingNext	   = Arrays.copyOf(mappingNext, mappingCount * 2);
+		}//if
+		mappingProtein[mappingCount] = protein;
+		mappingNext[mappingCount]	 = firstMapping[peptide];
+		firstMapping[peptide] = mappingCount++;
+	}//addMapping
+
+	/**
+	 * Doubles the hash table (the stored hashes are reused, no peptide is hashed again).
+	 */
+	private void rehash() {
+		slots = new int[slots.length * 2];
+		int mask = slots.length - 1;
+		for (int peptide = 0; peptide < size; peptide++) {
+			int slot = hash[peptide] & mask;
+			while (slots[slot] != 0)
+				slot = (slot + 1) & mask;
+			slots[slot] = peptide + 1;
+		}//for peptide
+	}//rehash
+
+	/**
+	 * @return true if the stored peptide has the residues [start, end) of the sequence
+	 */
+	private boolean matches(int peptide, CharSequence sequence, int start, int end) {
+		if (length[peptide] != end - start)
+			return false;
+		int arenaPosition = offset[peptide];
+		for (int position = start; position < end; position++) {
+			if (arena[arenaPosition++] != (byte) sequence.charAt(position))
+				return false;
+		}//for position
+		return true;
+	}//matches
+
+	/**
+	 * FNV-1a hash of the residues [start, end) (spread for the power of 2 table).
+	 */
+	private static int hash(CharSequence sequence, int start, int end) {
+		int peptideHash = 0x811c9dc5;
+		for (int position = start; position < end; position++)
+			peptideHash = (peptideHash ^ (byte) sequence.charAt(position)) * 0x01000193;
+		return peptideHash ^ (peptideHash >>> 16);
+	}//hash
+
+}//end of class
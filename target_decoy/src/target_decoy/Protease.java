@@ -0,0 +1,91 @@
+package target_decoy;
+
+/**
+ * Cleavage rules of the proteases used for in-silico digestion (see Digester).
+ * Every protease here cleaves at the C-terminal side of its cleavage residues,
+ * unless the next residue is one of its restriction residues (ex: trypsin does not cut before P).
+ * @author junghyey
+ */
+public enum Protease {
+
+	TRYPSIN		 ("Trypsin", 	  "KR",   "P"),
+	TRYPSIN_P	 ("Trypsin/P",	  "KR",   ""),  //ignores the proline rule
+	LYS_C		 ("Lys-C",		  "K",    "P"),
+	GLU_C		 ("Glu-C",		  "E",    "P"), //bicarbonate buffer (cleaves after E only)
+	CHYMOTRYPSIN ("Chymotrypsin", "FWYL", "P");
+
+	private final String name;
+	private final String cleavageResidues;
+	private final String restrictionResidues;
+	private final boolean[] cleaves  = new boolean[128]; //cleaves[residue]: cut after residue
+	private final boolean[] restricts = new boolean[128]; //restricts[residue]: never cut before residue
+
+	/**
+	 * @param name					display name of the protease
+	 * @param cleavageResidues		residues after which the protease cleaves
+	 * @param restrictionResidues	residues before which the protease does not cleave
+	 */
+	private Protease(String name, String cleavageResidues, String restrictionResidues) {
+		this.name = name;
+		this.cleavageResidues    = cleavageResidues;
+		this.restrictionResidues = restrictionResidues;
+		for (char residue: cleavageResidues.toCharArray())
+			cleaves[residue] = true;
+		for (char residue: restrictionResidues.toCharArray())
+			restricts[residue] = true;
+	}//Protease
+
+	/**
+	 * Finds a protease by its name, ignoring case, '-', '_' and '/' (ex: "Trypsin", "Lys-C", "lysc").
+	 * @param name		name of the protease
+	 * @return protease	the matching protease
+	 * @throws IllegalArgumentException if there is no protease with the given name
+	 */
+	public static Protease fromName(String name) {
+		String key = normalize(name);
+		for (Protease protease: values()) {
+			if (normalize(protease.name).equals(key) || normalize(protease.name()).equals(key))
+				return protease;
+		}//for protease
+		throw new IllegalArgumentException("Unknown protease: " + name);
+	}//fromName
+
+	/**
+	 * Checks if the protease cleaves between position and position + 1.
+	 * @param proteinSeq	protein amino acid sequence
+	 * @param position		position of the residue before the bond (0 <= position < length - 1)
+	 * @return true if the bond after position is a cleavage site
+	 */
+	public boolean cleavesAfter(CharSequence proteinSeq, int position) {
+		char residue = proteinSeq.charAt(position);
+		char next    = proteinSeq.charAt(position + 1);
+		return residue < 128 && cleaves[residue] && !(next < 128 && restricts[next]);
+	}//cleavesAfter
+
+	private static String normalize(String name) {
+		return name.replaceAll("[-_/ ]", "").toLowerCase();
+	}//normalize
+
+	//***********************************************Getters***********************************************
+	/**
+	 * @return name		display name of the protease (ex: "Lys-C")
+	 */
+	public String getName() {
+		return name;
+	}//getName
+
+	/**
+	 * @return residues after which the protease cleaves (ex: "KR")
+	 */
+	public String getCleavageResidues() {
+		return cleavageResidues;
+	}//getCleavageResidues
+
+	/**
+	 * @return residues before which the protease does not cleave (ex: "P")
+	 */
+	public String getRestrictionResidues() {
+		return restrictionResidues;
+	}//getRestrictionResidues
+
+}//end of class
@@ -0,0 +1,521 @@
+package target_decoy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Compact protein sequence data: the residues of all proteins back to back in one byte[]
+ * (one byte per residue), an int offset & length per protein, and an open addressing table
+ * from proteinID to protein index. Proteins keep the order they were added in.
+ * The store is also a sequence dictionary [Key: proteinID, Value: protein sequence], so it can
+ * replace a HashMap<String, String> anywhere: sequence Strings are only created on get/iteration,
+ * while generators & counters can read the residues directly (getResidues, copyResidues, count).
+ * put appends the residues (replacing a protein leaves its old residues unused); remove is not supported.
+ * A store is not thread safe for put, any number of threads can read it.
+ * A store holds at most MAX_RESIDUES (2^31 - 9) residues in total.
+ * @author junghyey
+ */
+public class ProteinStore extends AbstractMap<String, String> {
+
+	private final static float MAX_LOAD = 0.5f;
+	public final static int MAX_RESIDUES = Integer.MAX_VALUE - 8; //largest byte[] the VM allocates
+
+	/**
+	 * Residues of every protein, back to back
+	 */
+	private byte[] residues;
+	private int residueCount;
+	private boolean replaced; //a protein was replaced (unused residues in the array)
+
+	/**
+	 * Protein columns (index: protein index)
+	 */
+	private String[] proteinIDs;
+	private int[] offset;
+	private int[] length;
+	private int size;
+
+	/**
+	 * Hash table: slots hold protein index + 1 (0: empty)
+	 */
+	private int[] slots;
+
+	/**
+	 * Constructor for the class
+	 */
+	public ProteinStore() {
+		this(1024, 1 << 16);
+	}//ProteinStore
+
+	/**
+	 * Constructor for the class
+	 * @param proteinCapacity	expected number of proteins
+	 * @param residueCapacity	expected total number of residues
+	 * @throws IllegalArgumentException if a capacity is < 1
+	 */
+	public ProteinStore(int proteinCapacity, int residueCapacity) {
+		if (proteinCapacity < 1 || residueCapacity < 1)
+			throw new IllegalArgumentException("The capacity is < 1: " + proteinCapacity + ", " + residueCapacity);
+		residues   = new byte[residueCapacity];
+		proteinIDs = new String[proteinCapacity];
+		offset	   = new int[proteinCapacity];
+		length	   = new int[proteinCapacity];
+		slots	   = new int[Integer.highestOneBit(Math.max(2, proteinCapacity) * 4 - 1)];
+	}//ProteinStore
+
+	/**
+	 * Adds (or replaces) a protein.
+	 * @param proteinID		protein id
+	 * @param proteinSeq	protein amino acid sequence (ASCII letters)
+	 * @return the previous sequence of the protein, null if it is new
+	 * @throws IllegalArgumentException if the store would exceed 2^31 residues
+	 */
+	@Override
+	public String put(String proteinID, String proteinSeq) {
+		return add(proteinID, proteinSeq);
+	}//put
+
+	/**
+	 * Adds (or replaces) a protein from any CharSequence (ex: a StringBuilder), without a String copy.
+	 * @param proteinID		protein id
+	 * @param proteinSeq	protein amino acid sequence (ASCII letters)
+	 * @return the previous sequence of the protein, null if it is new
+	 * @throws IllegalArgumentException if the store would exceed 2^31 residues
+	 */
+	public String add(String proteinID, CharSequence proteinSeq) {
+		int protein = indexOf(proteinID);
+		String previous = (protein < 0) ? null : getSequence(protein);
+		append(proteinID, proteinSeq);
+		return previous;
+	}//add
+
+	/**
+	 * Appends the residues of a protein and points the protein (new or replaced) to them.
+	 * @param proteinID		protein id
+	 * @param proteinSeq	protein amino acid sequence (ASCII letters)
+	 * @return protein		index of the protein
+	 * @throws IllegalArgumentException if the store would exceed 2^31 residues
+	 */
+	protected int append(String proteinID, CharSequence proteinSeq) {
+		int seqLength = proteinSeq.length();
+		reserve(seqLength);
+		int start = residueCount;
+		for (int position = 0; position < seqLength; position++)
+			residues[residueCount++] = (byte) proteinSeq.charAt(position);
+		return point(proteinID, start, seqLength);
+	}//append
+
+	/**
+	 * Appends the residues of a protein (ASCII bytes) and points the protein (new or replaced) to them.
+	 * @param proteinID		protein id
+	 * @param source		array holding the residues
+	 * @param start			first residue in the array
+	 * @param seqLength		number of residues
+	 * @return protein		index of the protein
+	 * @throws IllegalArgumentException if the store would exceed 2^31 residues
+	 */
+	protected int append(String proteinID, byte[] source, int start, int seqLength) {
+		reserve(seqLength);
+		System.arraycopy(source, start, residues, residueCount, seqLength);
+		residueCount += seqLength;
+		return point(proteinID, residueCount - seqLength, seqLength);
+	}//append
+
+	/**
+	 * Reserves residues at the end of the array. The reserved range is filled with setResidues
+	 * (by any number of threads, each on its own part), then the proteins are pointed to it in order
+	 * with pointReserved (ex: ParallelFastaParser copies each chunk straight into the store).
+	 * @param count		number of residues
+	 * @return start	position of the first reserved residue
+	 * @throws IllegalArgumentException if the store would exceed MAX_RESIDUES residues
+	 */
+	protected int reserveResidues(int count) {
+		reserve(count);
+		residueCount += count;
+		return residueCount - count;
+	}//reserveResidues
+
+	/**
+	 * Copies residues (ASCII bytes) into a reserved range.
+	 * @param position		position of the first residue in the store
+	 * @param source		array holding the residues
+	 * @param start			first residue in the array
+	 * @param count			number of residues
+	 * @throws IndexOutOfBoundsException if the range was not reserved
+	 */
+	protected void setResidues(int position, byte[] source, int start, int count) {
+		if (position < 0 || count < 0 || position + count > residueCount)
+			throw new IndexOutOfBoundsException("Not a reserved range: " + position + ", " + count);
+		System.arraycopy(source, start, residues, position, count);
+	}//setResidues
+
+	/**
+	 * Points a protein (new or replaced) to residues of a reserved range.
+	 * @param proteinID		protein id
+	 * @param start			position of the first residue in the store
+	 * @param seqLength		number of residues
+	 * @return protein		index of the protein
+	 */
+	protected int pointReserved(String proteinID, int start, int seqLength) {
+		return point(proteinID, start, seqLength);
+	}//pointReserved
+
+	/**
+	 * Grows the residue array for extra residues.
+	 */
+	private void reserve(int extra) {
+		if ((long) residueCount + extra > MAX_RESIDUES)
+			throw new IllegalArgumentException("More than " + MAX_RESIDUES + " residues");
+		if (residueCount + extra > residues.length)
+			residues = Arrays.copyOf(residues, (int) Math.min(MAX_RESIDUES,
+															  Math.max(residueCount + extra, residues.length * 2L)));
+	}//reserve
+
+	/**
+	 * Points a protein (new or replaced) to residues of the array.
+	 * @return protein		index of the protein
+	 */
+	private int point(String proteinID, int start, int seqLength) {
+
+		/* Existing protein: point it to the new residues */
+		int protein = indexOf(proteinID);
+		if (protein >= 0) {
+			offset[protein] = start;
+			length[protein] = seqLength;
+			replaced = true;
+			return protein;
+		}//if
+
+		if (size == proteinIDs.length) {
+			int capacity = size * 2;
+			proteinIDs = Arrays.copyOf(proteinIDs, capacity);
+			offset	   = Arrays.copyOf(offset, capacity);
+			length	   = Arrays.copyOf(length, capacity);
+		}//if
+		proteinIDs[size] = proteinID;
+		offset[size]	 = start;
+		length[size]	 = seqLength;
+		insert(size++);
+		if (size > MAX_LOAD * slots.length)
+			rehash();
+		return size - 1;
+	}//point
+
+	/**
+	 * @param proteinID		protein id
+	 * @return protein		index of the protein, -1 if it is not in the store
+	 */
+	public int indexOf(String proteinID) {
+		int mask = slots.length - 1;
+		for (int slot = hash(proteinID) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+			if (proteinIDs[slots[slot] - 1].equals(proteinID))
+				return slots[slot] - 1;
+		}//for slot
+		return -1;
+	}//indexOf
+
+	/**
+	 * @param protein	index of a protein
+	 * @return the protein sequence (a new String)
+	 */
+	public String getSequence(int protein) {
+		return new String(residues, offset[protein], length[protein], StandardCharsets.ISO_8859_1);
+	}//getSequence
+
+	/**
+	 * @param protein	index of a protein
+	 * @return a read-only view of the protein residues (no copy)
+	 */
+	public CharSequence getResidues(int protein) {
+		return new Residues(residues, offset[protein], length[protein]);
+	}//getResidues
+
+	/**
+	 * @param protein	index of a protein
+	 * @return a copy of the protein residues (ASCII bytes), to be modified in place (ex: reversed)
+	 */
+	public byte[] copyResidues(int protein) {
+		return Arrays.copyOfRange(residues, offset[protein], offset[protein] + length[protein]);
+	}//copyResidues
+
+	/**
+	 * @param proteinSeq	a protein sequence (ex: a view of getResidues)
+	 * @return a copy of the residues (ASCII bytes), an array copy for a view of a store
+	 */
+	public static byte[] copyResidues(CharSequence proteinSeq) {
+		if (proteinSeq instanceof Residues) {
+			Residues view = (Residues) proteinSeq;
+			return Arrays.copyOfRange(view.residues, view.start, view.start + view.length);
+		}//if
+		if (proteinSeq instanceof String)
+			return ((String) proteinSeq).getBytes(StandardCharsets.ISO_8859_1);
+		byte[] residues = new byte[proteinSeq.length()];
+		for (int position = 0; position < residues.length; position++)
+			residues[position] = (byte) proteinSeq.charAt(position);
+		return residues;
+	}//copyResidues
+
+	/**
+	 * @param protein	index of a protein
+	 * @return the number of residues of the protein
+	 */
+	public int getLength(int protein) {
+		return length[protein];
+	}//getLength
+
+	/**
+	 * @param protein	index of a protein
+	 * @return the protein id
+	 */
+	public String getProteinID(int protein) {
+		return proteinIDs[protein];
+	}//getProteinID
+
+	/**
+	 * Counts the amino acids of all the proteins straight off the residue array.
+	 * @return histogram	amino acid count of all the proteins
+	 */
+	public AminoAcidHistogram count() {
+		AminoAcidHistogram histogram = new AminoAcidHistogram();
+		if (!replaced)
+			histogram.add(residues, 0, residueCount);
+		else
+			for (int protein = 0; protein < size; protein++)
+				histogram.add(residues, offset[protein], length[protein]);
+		return histogram;
+	}//count
+
+	/**
+	 * @return the total number of residues of the proteins
+	 */
+	public long getResidueCount() {
+		long total = 0;
+		for (int protein = 0; protein < size; protein++)
+			total += length[protein];
+		return total;
+	}//getResidueCount
+
+	//*******************************************Dictionary view*******************************************
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public String get(Object key) {
+		int protein = (key instanceof String) ? indexOf((String) key) : -1;
+		return (protein < 0) ? null : getSequence(protein);
+	}//get
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsKey(Object key) {
+		return (key instanceof String) && indexOf((String) key) >= 0;
+	}//containsKey
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return size;
+	}//size
+
+	/**
+	 * {@inheritDoc}
+	 * (proteinIDs in the order they were added, no sequence is created)
+	 */
+	@Override
+	public Set<String> keySet() {
+		return new AbstractSet<String>() {
+
+			@Override
+			public Iterator<String> iterator() {
+				return new ProteinIterator<String>() {
+					@Override
+					String get(int protein) {
+						return proteinIDs[protein];
+					}//get
+				};
+			}//iterator
+
+			@Override
+			public boolean contains(Object key) {
+				return containsKey(key);
+			}//contains
+
+			@Override
+			public int size() {
+				return size;
+			}//size
+		};
+	}//keySet
+
+	/**
+	 * {@inheritDoc}
+	 * (sequences in the order the proteins were added, created one at a time)
+	 */
+	@Override
+	public Collection<String> values() {
+		return new AbstractCollection<String>() {
+
+			@Override
+			public Iterator<String> iterator() {
+				return new ProteinIterator<String>() {
+					@Override
+					String get(int protein) {
+						return getSequence(protein);
+					}//get
+				};
+			}//iterator
+
+			@Override
+			public int size() {
+				return size;
+			}//size
+		};
+	}//values
+
+	/**
+	 * Returns the sequences as read-only views of the residues (see getResidues), in the order the
+	 * proteins were added: one pass over all the proteins without a String per protein.
+	 * @return residues		read-only collection view
+	 */
+	public Collection<CharSequence> residues() {
+		return new AbstractCollection<CharSequence>() {
+
+			@Override
+			public Iterator<CharSequence> iterator() {
+				return new ProteinIterator<CharSequence>() {
+					@Override
+					CharSequence get(int protein) {
+						return getResidues(protein);
+					}//get
+				};
+			}//iterator
+
+			@Override
+			public int size() {
+				return size;
+			}//size
+		};
+	}//residues
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Set<Map.Entry<String, String>> entrySet() {
+		return new AbstractSet<Map.Entry<String, String>>() {
+
+			@Override
+			public Iterator<Map.Entry<String, String>> iterator() {
+				return new ProteinIterator<Map.Entry<String, String>>() {
+					@Override
+					Map.Entry<String, String> get(int protein) {
+						return new AbstractMap.SimpleImmutableEntry<String, String>(proteinIDs[protein], getSequence(protein));
+					}//get
+				};
+			}//iterator
+
+			@Override
+			public int size() {
+				return size;
+			}//size
+		};
+	}//entrySet
+
+	/**
+	 * Iterates over the protein indexes (read-only).
+	 */
+	private abstract class ProteinIterator<E> implements Iterator<E> {
+		private int protein;
+
+		abstract E get(int protein);
+
+		@Override
+		public boolean hasNext() {
+			return protein < size;
+		}//hasNext
+
+		@Override
+		public E next() {
+			if (protein >= size)
+				throw new NoSuchElementException();
+			return get(protein++);
+		}//next
+	}//ProteinIterator
+
+	/**
+	 * Read-only CharSequence over residues of the array.
+	 */
+	private static final class Residues implements CharSequence {
+		private final byte[] residues;
+		private final int start;
+		private final int length;
+
+		Residues(byte[] residues, int start, int length) {
+			this.residues = residues;
+			this.start	  = start;
+			this.length	  = length;
+		}//Residues
+
+		@Override
+		public int length() {
+			return length;
+		}//length
+
+		@Override
+		public char charAt(int index) {
+			if (index < 0 || index >= length)
+				throw new IndexOutOfBoundsException(index);
+			return (char) (residues[start + index] & 0xff);
+		}//charAt
+
+		@Override
+		public CharSequence subSequence(int from, int to) {
+			if (from < 0 || to > length || from > to)
+				throw new IndexOutOfBoundsException(from + ", " + to);
+			return new Residues(residues, start + from, to - from);
+		}//subSequence
+
+		@Override
+		public String toString() {
+			return new String(residues, start, length, StandardCharsets.ISO_8859_1);
+		}//toString
+	}//Residues
+
+	private void insert(int protein) {
+		int mask = slots.length - 1;
+		int slot = hash(proteinIDs[protein]) & mask;
+		while (slots[slot] != 0)
+			slot = (slot + 1) & mask;
+		slots[slot] = protein + 1;
+	}//insert
+
+	/**
+	 * String hash spread for the power of 2 table.
+	 */
+	private static int hash(String proteinID) {
+		int hash = proteinID.hashCode() * 0x9e3779b9;
+		return hash ^ (hash >>> 16);
+	}//hash
+
+	/**
+	 * Doubles the hash table.
+	 */
+	private void rehash() {
+		slots = new int[slots.length * 2];
+		for (int protein = 0; protein < size; protein++)
+			insert(protein);
+	}//rehash
+
+}//end of class
@@ -0,0 +1,159 @@
+package target_decoy;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Columnar protein table shared by every stage: proteinIDs are interned once at parse time
+ * into dense int indexes (0 ... size - 1, file order), with the columns
+ * [proteinID, information heading, residue offset, length] (residues: see ProteinStore).
+ * Hot loops walk the indexes (getProteinID, getProteinInfo, getResidues) instead of hashing
+ * the proteinID into several dictionaries; code expecting dictionaries uses the table itself
+ * (sequence dictionary) and asInfoDict (information dictionary view).
+ * A table is not thread safe for add, any number of threads can read it.
+ * @author junghyey
+ */
+public class ProteinTable extends ProteinStore {
+
+	private String[] proteinInfos; //information heading (starts with ">"), index: protein index
+
+	/**
+	 * Constructor for the class
+	 */
+	public ProteinTable() {
+		this(1024, 1 << 16);
+	}//ProteinTable
+
+	/**
+	 * Constructor for the class
+	 * @param proteinCapacity	expected number of proteins
+	 * @param residueCapacity	expected total number of residues
+	 * @throws IllegalArgumentException if a capacity is < 1
+	 */
+	public ProteinTable(int proteinCapacity, int residueCapacity) {
+		super(proteinCapacity, residueCapacity);
+		proteinInfos = new String[proteinCapacity];
+	}//ProteinTable
+
+	/**
+	 * Adds (or replaces) a protein.
+	 * @param proteinID		protein id
+	 * @param proteinInfo	protein information heading (starts with ">")
+	 * @param proteinSeq	protein amino acid sequence (ASCII letters)
+	 * @return protein		index of the protein
+	 * @throws IllegalArgumentException if the table would exceed 2^31 residues
+	 */
+	public int add(String proteinID, String proteinInfo, CharSequence proteinSeq) {
+		return setProteinInfo(append(proteinID, proteinSeq), proteinInfo);
+	}//add
+
+	/**
+	 * Adds (or replaces) a protein from residues of a byte array (ex: a parser buffer).
+	 * @param proteinID		protein id
+	 * @param proteinInfo	protein information heading (starts with ">")
+	 * @param source		array holding the residues (ASCII letters)
+	 * @param start			first residue in the array
+	 * @param seqLength		number of residues
+	 * @return protein		index of the protein
+	 * @throws IllegalArgumentException if the table would exceed 2^31 residues
+	 */
+	public int add(String proteinID, String proteinInfo, byte[] source, int start, int seqLength) {
+		return setProteinInfo(append(proteinID, source, start, seqLength), proteinInfo);
+	}//add
+
+	/**
+	 * Adds (or replaces) a protein whose residues were copied into a reserved range
+	 * (see ProteinStore.reserveResidues, ex: chunks parsed in parallel).
+	 * @param proteinID		protein id
+	 * @param proteinInfo	protein information heading (starts with ">")
+	 * @param start			position of the first residue in the table
+	 * @param seqLength		number of residues
+	 * @return protein		index of the protein
+	 */
+	protected int addReserved(String proteinID, String proteinInfo, int start, int seqLength) {
+		return setProteinInfo(pointReserved(proteinID, start, seqLength), proteinInfo);
+	}//addReserved
+
+	/**
+	 * @param protein	index of a protein
+	 * @return the protein information heading (starts with ">"), null if it was added without one
+	 */
+	public String getProteinInfo(int protein) {
+		return (protein < proteinInfos.length) ? proteinInfos[protein] : null;
+	}//getProteinInfo
+
+	private int setProteinInfo(int protein, String proteinInfo) {
+		if (protein >= proteinInfos.length)
+			proteinInfos = Arrays.copyOf(proteinInfos, Math.max(protein + 1, proteinInfos.length * 2));
+		proteinInfos[protein] = proteinInfo;
+		return protein;
+	}//setProteinInfo
+
+	/**
+	 * Returns a read-only dictionary view of the information headings:
+	 * [Key: proteinID, Value: protein information heading] (iteration follows the protein indexes).
+	 * @return infoDict		dictionary view of the table
+	 */
+	public Map<String, String> asInfoDict() {
+		return new AbstractMap<String, String>() {
+
+			@Override
+			public String get(Object key) {
+				int protein = (key instanceof String) ? indexOf((String) key) : -1;
+				return (protein < 0) ? null : getProteinInfo(protein);
+			}//get
+
+			@Override
+			public boolean containsKey(Object key) {
+				return (key instanceof String) && indexOf((String) key) >= 0;
+			}//containsKey
+
+			@Override
+			public Set<String> keySet() {
+				return ProteinTable.this.keySet();
+			}//keySet
+
+			@Override
+			public int size() {
+				return ProteinTable.this.size();
+			}//size
+
+			@Override
+			public Set<Map.Entry<String, String>> entrySet() {
+				return new AbstractSet<Map.Entry<String, String>>() {
+
+					@Override
+					public Iterator<Map.Entry<String, String>> iterator() {
+						return new Iterator<Map.Entry<String, String>>() {
+							private int protein;
+
+							@Override
+							public boolean hasNext() {
+								return protein < ProteinTable.this.size();
+							}//hasNext
+
+							@Override
+							public Map.Entry<String, String> next() {
+								if (!hasNext())
+									throw new NoSuchElementException();
+								String proteinID = getProteinID(protein);
+								return new AbstractMap.SimpleImmutableEntry<String, String>(proteinID, getProteinInfo(protein++));
+							}//next
+						};
+					}//iterator
+
+					@Override
+					public int size() {
+						return ProteinTable.this.size();
+					}//size
+				};
+			}//entrySet
+		};
+	}//asInfoDict
+
+}//end of class
@@ -1,42 +1,62 @@
-package target_decoy;
-
-import java.util.Map;
-import java.util.Set;
-
-public class ReverseDecoy extends DecoyGenerator {
-
-    public ReverseDecoy(Map<String, String> targetSeqDict, Map<String, String> targetInfoDict) {
-        super(targetSeqDict, targetInfoDict);
-    }//ReverseDecoy
-
-    @Override
-    protected String generateDecoy(String proteinID) {
-        String sequence = targetSeqDict.get(proteinID);
-        StringBuilder reversed = new StringBuilder();
-
-         //start from the end
-        for (int position = sequence.length() - 1; position >= 0; position--){
-            reversed.append(sequence.charAt(position));
-        }//for position
-        return reversed.toString();
-    }//generateDecoy
-
-    @Override
-    public void generateDecoyDict() {
-        Set<String> idSet = targetSeqDict.keySet();
-		 
-        for (String proteinID: idSet) {
-            String decoyProtein = generateDecoy(proteinID);
-            decoySeqDict.put(proteinID, decoyProtein);
-        }// for proteinID
-        
-        /* Confirm postcondition: The decoy proteinIDs and target protein IDs are the same. 
-         *						   i.e. Have the same key sets. 
-         */
-        assert(decoySeqDict.keySet().equals(idSet));
-        
-    }//generateDecoyDict
-
-
-    
-}
+package target_decoy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+public class ReverseDecoy extends DecoyGenerator {
+
+    private boolean pseudoReverse; //reverse each tryptic peptide, keeping its C-terminal K/R
+
+    public ReverseDecoy(Map<String, String> targetSeqDict, Map<String, String> targetInfoDict) {
+        super(targetSeqDict, targetInfoDict);
+    }//ReverseDecoy
+
+    @Override
+    protected String generateDecoy(String proteinID, CharSequence targetSeq, int attempt) {
+        byte[] sequence = ProteinStore.copyResidues(targetSeq); //same decoy protein for every attempt
+
+        if (!pseudoReverse) {
+            //whole protein, in place
+            reverse(sequence, 0, sequence.length);
+            return new String(sequence, StandardCharsets.ISO_8859_1);
+        }//if
+
+        //one pass: reverse every peptide, leaving the cleavage residue (K/R) at its end
+        int start = 0;
+        for (int position = 0; position < sequence.length; position++) {
+            if (sequence[position] == 'K' || sequence[position] == 'R') {
+                reverse(sequence, start, position);
+                start = position + 1;
+            }//if
+        }//for position
+        reverse(sequence, start, sequence.length); //C-terminal peptide (no cleavage residue)
+        return new String(sequence, StandardCharsets.ISO_8859_1);
+    }//generateDecoy
+
+    /**
+     * Reverses sequence[from, to) in place.
+     */
+    private static void reverse(byte[] sequence, int from, int to) {
+        for (int left = from, right = to - 1; left < right; left++, right--) {
+            byte residue    = sequence[left];
+            sequence[left]  = sequence[right];
+            sequence[right] = residue;
+        }//for left
+    }//reverse
+
+    /**
+     * @param pseudoReverse    true to reverse each tryptic peptide but keep its C-terminal K/R in place
+     *                         (decoy peptide masses mirror the target ones), false to reverse the whole protein
+     */
+    public void setPseudoReverse(boolean pseudoReverse) {
+        this.pseudoReverse = pseudoReverse;
+    }//setPseudoReverse
+
+    /**
+     * @return true if each tryptic peptide is reversed (pseudo-reverse), false if the whole protein is
+     */
+    public boolean isPseudoReverse() {
+        return pseudoReverse;
+    }//isPseudoReverse
+
+}
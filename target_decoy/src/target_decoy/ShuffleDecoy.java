@@ -0,0 +1,125 @@
+package target_decoy;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Represents decoy protein data created using "shuffle" approach.
+ * Every tryptic peptide (ending after K or R) is shuffled on its own, keeping the K, R & P
+ * residues in place, so the decoy protein has the same cleavage sites, amino acid composition
+ * and peptide masses as the target protein. A peptide is shuffled again (up to MAX_SHUFFLES times)
+ * while it is equal to the target peptide.
+ * @author junghyey
+ */
+public class ShuffleDecoy extends DecoyGenerator {
+
+	public final static int MAX_SHUFFLES = 10; //shuffles of a peptide before keeping it as is
+
+	/**
+	 * Constructor for the class, inherits parent class constructor
+	 * {@inheritDoc}
+	 */
+	public ShuffleDecoy(Map<String, String> targetSeqDict, Map<String, String> targetInfoDict) {
+		super(targetSeqDict, targetInfoDict);
+	}//ShuffleDecoy
+
+	/**
+	 * {@inheritDoc}
+	 * (every attempt shuffles with its own random number generator)
+	 */
+	@Override
+	protected String generateDecoy(String proteinID, CharSequence targetSeq, int attempt) {
+
+		/*Prepare the buffer (shuffled in place) */
+		byte[] decoyArr  = ProteinStore.copyResidues(targetSeq);
+		int targetLength = decoyArr.length;
+		int[] movable = new int[targetLength];	 //positions of the residues that can be moved
+		byte[] target = new byte[targetLength]; //target residues at those positions
+		SplittableRandom getRandNum = getRandom(proteinID, attempt); //seeded from (seed, proteinID, attempt)
+
+		/*Shuffle every peptide [start, end) */
+		int start = 0;
+		for (int end = 1; end <= targetLength; end++) {
+			if (end == targetLength || isCleavageSite(decoyArr[end - 1])) {
+				shufflePeptide(decoyArr, start, end, movable, target, getRandNum);
+				start = end;
+			}//if
+		}//for end
+
+		String decoyProtein = new String(decoyArr, StandardCharsets.ISO_8859_1);
+
+		/* Confirm postcondition: The length of the decoy protein and that of target protein
+		 * 						  are equal to each other.
+		 */
+		assert (decoyProtein.length() == targetLength);
+		return decoyProtein;
+	}//generateDecoy
+
+	/**
+	 * Shuffles the movable residues of a peptide (Fisher-Yates) until the peptide differs
+	 * from the target peptide (which is in the buffer before the first shuffle).
+	 * @param decoyArr		protein buffer
+	 * @param start			position of the first residue of the peptide
+	 * @param end			position after the last residue of the peptide
+	 * @param movable		buffer for the movable positions
+	 * @param target		buffer for the target movable residues
+	 * @param getRandNum	random number generator of the protein
+	 */
+	private static void shufflePeptide(byte[] decoyArr, int start, int end, int[] movable, byte[] target,
+									   SplittableRandom getRandNum) {
+
+		/* 1. Find the movable residues (K, R & P stay in place) */
+		int movableCount = 0;
+		boolean distinct = false; //at least two different movable residues
+		for (int position = start; position < end; position++) {
+			if (!isFixed(decoyArr[position])) {
+				distinct |= movableCount > 0 && decoyArr[position] != target[0];
+				movable[movableCount] = position;
+				target[movableCount++] = decoyArr[position];
+			}//if
+		}//for position
+		if (!distinct)
+			return; //every shuffle gives the target peptide
+
+		/* 2. Shuffle until the peptide changes */
+		for (int shuffle = 0; shuffle < MAX_SHUFFLES; shuffle++) {
+			for (int index = movableCount - 1; index > 0; index--) {
+				int swap = getRandNum.nextInt(index + 1);
+				byte residue = decoyArr[movable[index]];
+				decoyArr[movable[index]] = decoyArr[movable[swap]];
+				decoyArr[movable[swap]]  = residue;
+			}//for index
+
+			for (int index = 0; index < movableCount; index++) {
+				if (decoyArr[movable[index]] != target[index])
+					return;
+			}//for index
+		}//for shuffle
+	}//shufflePeptide
+
+	/**
+	 * @param residue	an amino acid
+	 * @return true if trypsin cleaves after the residue (K, R)
+	 */
+	private static boolean isCleavageSite(byte residue) {
+		return residue == 'K' || residue == 'R';
+	}//isCleavageSite
+
+	/**
+	 * @param residue	an amino acid
+	 * @return true if the residue stays in place (K, R, P)
+	 */
+	private static boolean isFixed(byte residue) {
+		return residue == 'K' || residue == 'R' || residue == 'P';
+	}//isFixed
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean canRegenerate() {
+		return true;
+	}//canRegenerate
+
+}//end of class
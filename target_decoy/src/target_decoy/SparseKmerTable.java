@@ -0,0 +1,173 @@
+package target_decoy;
+
+import java.util.Arrays;
+
+/**
+ * KmerTable backed by an open addressing (linear probing) hash table with primitive
+ * long keys, for combinations too long for a dense array (more than 4 letters).
+ * Only the combinations that occur are stored: 14 bytes per slot, at most 75% full.
+ * @author junghyey
+ */
+public class SparseKmerTable extends KmerTable {
+
+	private final static long  EMPTY = -1L; //packed keys are never negative
+	private final static float MAX_LOAD = 0.75f;
+
+	private long[] keys;
+	private int[]  counts;
+	private char[] residues;
+	private int size;
+	private int mask;  //capacity - 1 (capacity is a power of 2)
+
+	/**
+	 * Constructor for the class
+	 * @param k		letters per combination (at most 12)
+	 */
+	public SparseKmerTable(int k) {
+		super(k);
+		allocate(1 << 16);
+	}//SparseKmerTable
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void increment(long key) {
+		int slot = insert(key); //may grow the arrays: find the slot first
+		counts[slot]++;
+	}//increment
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setCount(long key, int count) {
+		int slot = insert(key);
+		counts[slot] = count;
+	}//setCount
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getCount(long key) {
+		int slot = find(key);
+		return (slot < 0) ? 0 : counts[slot];
+	}//getCount
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setResidue(long key, char residue) {
+		int slot = insert(key);
+		residues[slot] = residue;
+	}//setResidue
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public char getResidue(long key) {
+		int slot = find(key);
+		return (slot < 0) ? 0 : residues[slot];
+	}//getResidue
+
+	/**
+	 * {@inheritDoc}
+	 * (slot order)
+	 */
+	@Override
+	public void forEach(EntryVisitor visitor) {
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (keys[slot] != EMPTY)
+				visitor.visit(keys[slot], counts[slot], residues[slot]);
+		}//for slot
+	}//forEach
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int size() {
+		return size;
+	}//size
+
+	/**
+	 * @param key	packed combination
+	 * @return the slot of the key, -1 if the key is not in the table
+	 */
+	private int find(long key) {
+		int slot = hash(key) & mask;
+		while (keys[slot] != EMPTY) {
+			if (keys[slot] == key)
+				return slot;
+			slot = (slot + 1) & mask;
+		}//while
+		return -1;
+	}//find
+
+	/**
+	 * @param key	packed combination
+	 * @return the slot of the key (added to the table if missing)
+	 */
+	private int insert(long key) {
+		int slot = hash(key) & mask;
+		while (keys[slot] != EMPTY) {
+			if (keys[slot] == key)
+				return slot;
+			slot = (slot + 1) & mask;
+		}//while
+
+		/* New key: grow first if the table would be too full */
+		if (size + 1 > MAX_LOAD * keys.length) {
+			grow();
+			return insert(key);
+		}//if
+		keys[slot] = key;
+		size++;
+		return slot;
+	}//insert
+
+	/**
+	 * Doubles the capacity and moves every entry to its new slot.
+	 */
+	private void grow() {
+		long[] oldKeys     = keys;
+		int[]  oldCounts   = counts;
+		char[] oldResidues = residues;
+
+		allocate(oldKeys.length * 2);
+		for (int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++) {
+			if (oldKeys[oldSlot] == EMPTY)
+				continue;
+			int slot = hash(oldKeys[oldSlot]) & mask;
+			while (keys[slot] != EMPTY)
+				slot = (slot + 1) & mask;
+			keys[slot]     = oldKeys[oldSlot];
+			counts[slot]   = oldCounts[oldSlot];
+			residues[slot] = oldResidues[oldSlot];
+		}//for oldSlot
+	}//grow
+
+	private void allocate(int capacity) {
+		keys     = new long[capacity];
+		counts   = new int[capacity];
+		residues = new char[capacity];
+		Arrays.fill(keys, EMPTY);
+		mask = capacity - 1;
+	}//allocate
+
+	/**
+	 * Spreads the bits of a packed key (murmur3 finalizer).
+	 */
+	private static int hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key;
+	}//hash
+
+}//end of class
@@ -0,0 +1,345 @@
+package target_decoy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DecoyPipeline streaming the target file instead of holding it in memory.
+ * Target proteins flow through three stages connected by bounded queues:
+ * 		parse	 (one thread)	 : FastaReader, BATCH_SIZE proteins at a time
+ * 		generate (thread pool)	 : decoy proteins of every strategy, batches in any order
+ * 		write	 (calling thread): collision check (digestion) & DecoySink, batches in file order
+ * At most 2 * threads + 2 batches are in flight: parsing blocks until the oldest batch is written
+ * (backpressure), so the memory used does not depend on the size of the proteome and the output
+ * files are written while later proteins are still parsed & generated.
+ * Decoy proteins are generated from the sequence of each parsed record (the generators get no
+ * target dictionary: getTseqDict is empty), so repeated proteinIDs each get the decoy protein of
+ * their own record; statistics of the whole target file (amino acid count, DeBruijn combinations,
+ * collision detector index) are computed by rereading it: through an IndexedFastaReader (memory
+ * mapped, no parsing, the FastaIndex is saved next to the file) when the file can be indexed,
+ * with FastaReader otherwise (compressed file, lines of different widths).
+ * The output is the same as DecoyPipeline's for files with unique proteinIDs (DecoyPipeline keeps
+ * only the last protein of a repeated proteinID).
+ * @author junghyey
+ */
+public class StreamingDecoyPipeline extends DecoyPipeline {
+
+	private final static int BATCH_SIZE = 1024; //proteins parsed & generated together
+
+	private final String targetFileName;
+	private final int threads;		  //generating threads
+	private final int proteinCount;	  //number of proteins of the target file
+
+	/**
+	 * Batch of target proteins with their decoy proteins (or a marker of the end of the file / a failure)
+	 */
+	private static final class Batch {
+		private final long sequence;		  //batch number (file order), number of batches for the end marker
+		private final FastaRecord[] records;  //target proteins (null for a marker)
+		private String[][] decoySeqs;		  //[strategy][position]
+		private Throwable error;			  //failure of the parsing or generating thread
+
+		private Batch(long sequence, FastaRecord[] records) {
+			this.sequence = sequence;
+			this.records  = records;
+		}//Batch
+	}//Batch
+
+	/**
+	 * Constructor for the class (reads the target file once for the amino acid count).
+	 * @param targetFileName	full file path (path + name) of the target protein file
+	 * @param threads			number of threads generating decoy proteins
+	 * @throws IllegalArgumentException if threads < 1
+	 * @throws IOException		if reading the file fails
+	 */
+	public StreamingDecoyPipeline(String targetFileName, int threads) throws IOException {
+		this(targetFileName, threads, new AminoAcidHistogram());
+	}//StreamingDecoyPipeline
+
+	private StreamingDecoyPipeline(String targetFileName, int threads, AminoAcidHistogram targetAminoCount) throws IOException {
+		super(null, Collections.<String, String>emptyMap(), Collections.<String, String>emptyMap(), targetAminoCount);
+
+		/*Enforce the precondition: threads >= 1*/
+		if (threads < 1)
+			throw new IllegalArgumentException("The number of threads is < 1: " + threads);
+
+		this.targetFileName = targetFileName;
+		this.threads		= threads;
+
+		/*Target statistics are computed only once*/
+		int count = 0;
+		try (FastaReader fileReader = FastaReader.open(targetFileName)) {
+			while (fileReader.hasNext()) {
+				targetAminoCount.add(fileReader.next().getProteinSeq());
+				count++;
+			}//while
+		}//try
+		catch (UncheckedIOException uioe) {
+			throw uioe.getCause();
+		}//catch
+		proteinCount = count;
+	}//StreamingDecoyPipeline
+
+	/**
+	 * {@inheritDoc}
+	 * The target file is streamed through the parse, generate & write stages.
+	 */
+	@Override
+	public void run() throws IOException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+		TargetSequences targetSeqs = new TargetSequences(); //nothing is read before the first iteration
+		try {
+			/* 1. Prepare every strategy (rereads the file only if a strategy needs all the target proteins)*/
+			prepare(targetSeqs);
+
+			/* 2. Start the parse & generate stages, write on this thread*/
+			int maxBatches = 2 * threads + 2;
+			Semaphore inFlight = new Semaphore(maxBatches);
+			BlockingQueue<Batch> parsed	   = new ArrayBlockingQueue<Batch>(maxBatches + threads);
+			BlockingQueue<Batch> generated = new ArrayBlockingQueue<Batch>(maxBatches + threads + 1);
+
+			executor.execute(() -> parse(inFlight, parsed, generated));
+			for (int thread = 0; thread < threads; thread++)
+				executor.execute(() -> generate(parsed, generated));
+			write(inFlight, generated);
+
+			/* 3. Confirm the collision candidates against the target peptides*/
+			verify(targetSeqs);
+		}//try
+		catch (UncheckedIOException uioe) {
+			throw uioe.getCause();
+		}//catch
+		finally {
+			/* 4. Stop the stages, then close all the outputs, even if one of them failed*/
+			executor.shutdownNow();
+			try {
+				executor.awaitTermination(1, TimeUnit.MINUTES);
+			}//try
+			catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}//catch
+			try {
+				targetSeqs.close();
+			}//try
+			finally {
+				closeAll();
+			}//finally
+		}//finally
+	}//run
+
+	/**
+	 * Parse stage: reads the target file in batches (waiting for a free slot before each batch).
+	 */
+	private void parse(Semaphore inFlight, BlockingQueue<Batch> parsed, BlockingQueue<Batch> generated) {
+		try {
+			long sequence = 0;
+			try (FastaReader fileReader = FastaReader.open(targetFileName)) {
+				while (fileReader.hasNext()) {
+					inFlight.acquire();
+					FastaRecord[] records = new FastaRecord[BATCH_SIZE];
+					int size = 0;
+					while (size < BATCH_SIZE && fileReader.hasNext()) {
+						records[size++] = fileReader.next();
+					}//while
+					parsed.put(new Batch(sequence++, (size == BATCH_SIZE) ? records : Arrays.copyOf(records, size)));
+				}//while
+			}//try
+
+			/*End markers: one per generating thread, the number of batches for the write stage*/
+			for (int thread = 0; thread < threads; thread++)
+				parsed.put(new Batch(-1, null));
+			generated.put(new Batch(sequence, null));
+		}//try
+		catch (InterruptedException ie) {
+			return; //the pipeline stopped
+		}//catch
+		catch (IOException | RuntimeException | Error e) {
+			fail(generated, e);
+		}//catch
+	}//parse
+
+	/**
+	 * Generate stage: generates the decoy proteins of every strategy for each batch until the end marker
+	 * (from the sequence of each record, not looked up by proteinID).
+	 */
+	private void generate(BlockingQueue<Batch> parsed, BlockingQueue<Batch> generated) {
+		try {
+			for (Batch batch = parsed.take(); batch.records != null; batch = parsed.take()) {
+				String[][] decoySeqs = new String[generators.size()][batch.records.length];
+				for (int strategy = 0; strategy < decoySeqs.length; strategy++) {
+					DecoyGenerator generator = generators.get(strategy);
+					for (int position = 0; position < batch.records.length; position++) {
+						FastaRecord record = batch.records[position];
+						decoySeqs[strategy][position] = generator.generateDecoy(record.getProteinID(), record.getProteinSeq(), 0);
+					}//for position
+				}//for strategy
+				batch.decoySeqs = decoySeqs;
+				generated.put(batch);
+			}//for batch
+		}//try
+		catch (InterruptedException ie) {
+			return; //the pipeline stopped
+		}//catch
+		catch (RuntimeException | Error e) {
+			fail(generated, e);
+		}//catch
+	}//generate
+
+	/**
+	 * Write stage: writes the generated batches in file order (later batches wait in a buffer)
+	 * and frees their slot once written.
+	 * @throws IOException	if writing fails or another stage failed
+	 */
+	private void write(Semaphore inFlight, BlockingQueue<Batch> generated) throws IOException {
+		Map<Long, Batch> waiting = new HashMap<Long, Batch>(); //generated before an earlier batch
+		long next = 0;		  //next batch to write
+		long batchCount = -1; //unknown until the end marker
+		try {
+			while (batchCount < 0 || next < batchCount) {
+				Batch batch = generated.take();
+				if (batch.error != null)
+					rethrow(batch.error);
+				if (batch.records == null) {
+					batchCount = batch.sequence;
+					continue;
+				}//if
+				waiting.put(batch.sequence, batch);
+
+				for (Batch ready = waiting.remove(next); ready != null; ready = waiting.remove(next)) {
+					writeBatch(ready);
+					next++;
+					inFlight.release();
+				}//for ready
+			}//while
+		}//try
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while writing the decoy proteins");
+		}//catch
+	}//write
+
+	/**
+	 * Writes a batch for every strategy (see DecoyPipeline.write).
+	 */
+	private void writeBatch(Batch batch) throws IOException {
+		for (int strategy = 0; strategy < batch.decoySeqs.length; strategy++) {
+			for (int position = 0; position < batch.records.length; position++) {
+				FastaRecord record = batch.records[position];
+				write(strategy, record.getProteinID(), record.getProteinInfo(), record.getProteinSeq(),
+					  batch.decoySeqs[strategy][position]);
+			}//for position
+		}//for strategy
+	}//writeBatch
+
+	/**
+	 * Hands the failure of a stage to the write stage.
+	 */
+	private static void fail(BlockingQueue<Batch> generated, Throwable error) {
+		Batch failure = new Batch(-1, null);
+		failure.error = error;
+		generated.offer(failure); //the queue keeps a slot for each thread
+	}//fail
+
+	private static void rethrow(Throwable error) throws IOException {
+		if (error instanceof IOException)
+			throw (IOException) error;
+		if (error instanceof UncheckedIOException)
+			throw ((UncheckedIOException) error).getCause();
+		if (error instanceof RuntimeException)
+			throw (RuntimeException) error;
+		throw (Error) error;
+	}//rethrow
+
+	/**
+	 * All the target protein sequences, read again from the file on every iteration
+	 * (ex: DeBruijn combination count, collision detector index). The file is indexed & memory
+	 * mapped on the first iteration if it can be, otherwise every iteration parses it with FastaReader.
+	 */
+	private class TargetSequences extends AbstractCollection<CharSequence> implements Closeable {
+		private IndexedFastaReader indexedReader; //null until the first iteration, or if the file cannot be indexed
+		private boolean indexTried;
+
+		/**
+		 * {@inheritDoc}
+		 * @throws UncheckedIOException if reading the file fails
+		 */
+		@Override
+		public Iterator<CharSequence> iterator() {
+			if (!indexTried) {
+				indexTried = true;
+				if (!CompressedIO.isCompressed(targetFileName)) {
+					try {
+						indexedReader = IndexedFastaReader.open(targetFileName);
+					}//try
+					catch (IOException ioe) {
+						/*Lines of different widths (or the index cannot be saved): parse the file instead*/
+					}//catch
+				}//if
+			}//if
+			if (indexedReader != null)
+				return indexedReader.sequences().iterator();
+
+			FastaReader fileReader;
+			try {
+				fileReader = FastaReader.open(targetFileName);
+			}//try
+			catch (IOException ioe) {
+				throw new UncheckedIOException(ioe);
+			}//catch
+
+			return new Iterator<CharSequence>() {
+
+				@Override
+				public boolean hasNext() {
+					boolean hasNext = fileReader.hasNext();
+					if (!hasNext) {
+						try {
+							fileReader.close();
+						}//try
+						catch (IOException ioe) {
+							throw new UncheckedIOException(ioe);
+						}//catch
+					}//if
+					return hasNext;
+				}//hasNext
+
+				@Override
+				public CharSequence next() {
+					if (!hasNext())
+						throw new NoSuchElementException();
+					return fileReader.next().getProteinSeq();
+				}//next
+			};
+		}//iterator
+
+		@Override
+		public int size() {
+			return proteinCount;
+		}//size
+
+		/**
+		 * Closes the indexed reader (if the file was indexed).
+		 */
+		@Override
+		public void close() throws IOException {
+			if (indexedReader != null)
+				indexedReader.close();
+		}//close
+	}//TargetSequences
+
+}//end of class
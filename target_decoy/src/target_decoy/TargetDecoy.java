@@ -1,173 +1,309 @@
-package target_decoy;
-
-import java.util.Map;
-
-/**
- * Creates/Represents target & decoy database(s)  
- * @author junghyey
- */
-public class TargetDecoy {
-
-	
-	private String targetFileName; //(original) target protein file
-	
-	/**
-	 * Constructor for the class
-	 * @param targetFileName	target protein file to use to generate decoy
-	 */
-	public TargetDecoy(String targetFileName) {
-		this.targetFileName = targetFileName;
-	}// TargetDecoy
-	
-	/**
-	 * Generate target-decoy concatenated data file & reports about
-	 * target & decoy(using random approach).
-	 * @param targetDecoyFileName	full name (path + name) of the concatenated target decoy file to generate
-	 * 								
-	 */
-	public void targetDecoyRandom(String targetDecoyFileName) {
-		
-	
-		//*******************************************Target*******************************************
-		DictionaryGenerator targetData = new DictionaryGenerator(targetFileName);
-		Map<String, String> targetSeqDict = targetData.getSeqDict();
-		Map<String, String> targetInfoDict = targetData.getInfoDict();
-		
-	
-		
-		//*******************************************Decoy*********************************************
-		/*Instantiate class*/
-		RandomDecoy decoyData = new RandomDecoy(targetSeqDict, targetInfoDict);
-		Map<String, Integer> zeroRemoved = Counter.countZeroRemoved(targetSeqDict);
-		decoyData.setRangeMap(Counter.generateRange(zeroRemoved));
-
-		decoyData.generateDecoyDict();
-		decoyData.generateDecoyInfo();
-
-		/*Store decoy sequence & info*/
-		Map<String, String> decoySeqDict = decoyData.getDseqDict();
-		Map<String, String> decoyInfoDict = decoyData.getDinfoDict();
-
-		
-		/*Generate concatenated database file*/
-		Database.generateDatabase(targetDecoyFileName,targetSeqDict, 
-								  decoySeqDict,targetInfoDict, 
-								  decoyInfoDict);
-		
-		//*******************************************Reports********************************************
-		/*Generate reports for target */
-		Database.writeCSV("../random_result/target/target_amino_acid_count_r.csv",  Counter.countAminoAcid(targetSeqDict));
-		Database.writeCSV("../random_result/target/target_amino_acid_proportion_r.csv",  Counter.getProportion(targetSeqDict, 6));
-		
-		
-		/*Generate reports for decoy random*/
-		Database.writeData("../random_result/decoy/decoy_random.fasta", decoySeqDict, decoyInfoDict);
-		Database.writeCSV("../random_result/decoy/decoy_amino_acid_count_r.csv",  Counter.countAminoAcid(decoySeqDict));
-		Database.writeCSV("../random_result/decoy/decoy_aminoacid_proportion_r.csv", Counter.getProportion(decoySeqDict, 6));
-		
-		
-	}//targetDecoyRandom
-	
-	/**
-	 * Generate target-decoy concatenated data file & reports about
-	 * target & decoy(using deBruijn approach).
-	 * @param targetDecoyFileName	full name(path + name) of the target decoy file to generate
-	 */
-	public void targetDecoyDeBruijn(String targetDecoyFileName) {
-		
-		//*******************************************Target*******************************************
-		DictionaryGenerator targetData  = new DictionaryGenerator(targetFileName);
-		
-		Map<String, String> targetSeqDict  = targetData.getSeqDict();
-		Map<String, String> targetInfoDict = targetData.getInfoDict();
-		
-		//*******************************************Decoy*********************************************
-		/*Instantiate class*/
-		DeBruijnDecoy decoyData = new DeBruijnDecoy(targetSeqDict, targetInfoDict);
-		Map <String, String> modifiedTargetSeq = DeBruijnDecoy.addDummySeq(targetSeqDict);		
-		decoyData.setModifiedSeq(modifiedTargetSeq);
-
-	
-		/*Get all the possible three letter (position, position + 1, position +2) combinations*/
-		decoyData.countAllCombination();	
-		
-		// /* Get the new amino acid count to be used for decoy data set  */
-		Map<String, Integer> zeroRemoved = Counter.countZeroRemoved(targetSeqDict);
-		decoyData.setRangeMap(Counter.generateRange(zeroRemoved));
-		
-		// /*Generate decoy sequence & info header */
-		decoyData.mapCombination(); //map three letter combination to a amino acid
-		decoyData.generateDecoyDict();
-		decoyData.generateDecoyInfo();
-		Map<String, String> decoySeqDict = decoyData.getDseqDict();
-		Map<String, String> decoyInfoDict = decoyData.getDinfoDict();
-
-		/* Confirm postcondition: Every generated decoy sequence can be decoded and the decoded
-		 * 						  sequence should be equal to the according target protein sequence.				 
-		 */
-		assert(decoyData.isAllMappingCorrect(targetSeqDict, decoySeqDict));
-		
-		/*Generate concatenated database file*/
-		Database.generateDatabase(targetDecoyFileName,targetSeqDict, 
-								  decoySeqDict,targetInfoDict, 
-								  decoyInfoDict);
-		
-		//*******************************************Reports********************************************
-		/*Generate reports for target */
-		Database.writeCSV("../deBruijn_result/target/target_amino_acid_count_d.csv",  Counter.countAminoAcid(targetSeqDict));
-		Database.writeCSV("../deBruijn_result/target/target_amino_acid_proportion_d.csv",  Counter.getProportion(targetSeqDict, 6));
-
-		
-		/*Generate reports for decoy random*/
-		Database.writeData("../deBruijn_result/decoy/decoy_deBrujin.fasta", decoySeqDict, decoyInfoDict);
-		Database.writeCSV("../deBruijn_result/decoy/dummy_added_sequence_d.csv", modifiedTargetSeq);
-		Database.writeCSV("../deBruijn_result/decoy/decoy_combination_count_d.csv", decoyData.getCombinationCount());
-		Database.writeCSV("../deBruijn_result/decoy/decoy_combination_map_d.csv", decoyData.getCombinationMap());
-		Database.writeCSV("../deBruijn_result/decoy/decoy_amino_acid_count_d.csv",  Counter.countAminoAcid(decoySeqDict));
-		Database.writeCSV("../deBruijn_result/decoy/decoy_amino_acid_proportion_d.csv", Counter.getProportion(decoySeqDict, 6));
-
-	}//targetDecoyDeBruijn		
-
-
-	
-	/**
-	 * Generate target-decoy concatenated data file & reports about
-	 * target & decoy(reverse).
-	 * @param targetDecoyFile	full name of the target decoy file to generate
-	 */
-	public void targetDecoyReverse(String targetDecoyFile) {
-		
-		//*******************************************Target*******************************************
-		DictionaryGenerator    targetData     = new DictionaryGenerator(targetFileName);
-		Map<String, String> targetSeqDict  = targetData.getSeqDict();
-		Map<String, String> targetInfoDict = targetData.getInfoDict();
-		
-		//*******************************************Decoy*********************************************
-		/*Instantiate class*/
-		ReverseDecoy decoyData = new ReverseDecoy(targetSeqDict, targetInfoDict);
-		
-		decoyData.generateDecoyDict();
-		decoyData.generateDecoyInfo();
-		Map<String, String> decoySeqDict = decoyData.getDseqDict();
-		Map<String, String> decoyInfoDict = decoyData.getDinfoDict();
-
-		
-		/*Generate concatenated database file*/
-		Database.generateDatabase(targetDecoyFile,targetSeqDict, 
-								  decoySeqDict,targetInfoDict, 
-								  decoyInfoDict);
-		
-		//*******************************************Reports********************************************
-		/*Generate reports for target */
-		Database.writeCSV("../reverse_result/target/target_amino_acid_count_rv.csv",  Counter.countAminoAcid(targetSeqDict));
-		Database.writeCSV("../reverse_result/target/target_amino_acid_proportion_rv.csv",  Counter.getProportion(targetSeqDict, 6));
-
-		
-		/*Generate reports for decoy random*/
-		Database.writeData("../reverse_result/decoy/decoy_reverse.fasta", decoySeqDict, decoyInfoDict);
-		Database.writeCSV("../reverse_result/decoy/decoy_amino_acid_count_rv.csv",  Counter.countAminoAcid(decoySeqDict));
-		Database.writeCSV("../reverse_result/decoy/decoy_amino_acid_proportion_rv.csv", Counter.getProportion(decoySeqDict, 6));
-
-	}//targetDecoyReverse	
-
-}//end of class
+package target_decoy;
+
+import java.io.IOException;
+
+/**
+ * Creates/Represents target & decoy database(s)  
+ * The target protein file is parsed only once (see DecoyPipeline) and shared
+ * by all the decoy approaches.
+ * @author junghyey
+ */
+public class TargetDecoy {
+
+	
+	private String targetFileName; //(original) target protein file
+	private DecoyPipeline pipeline; //parsed target data, created on first use
+	private Long seed;				//master seed of the decoy generators (null: random)
+	private boolean parallel;		//generate decoy proteins on all cores
+	private int deBruijnK = DeBruijnDecoy.MIN_K; //letters per deBruijn combination
+	private boolean pseudoReverse;	//reverse approach keeps the tryptic cleavage sites
+	private boolean collisionCheck;	//report decoy peptides that are also target peptides
+	private int collisionAttempts;	//regeneration attempts of colliding decoy proteins
+	private boolean streaming;		//stream the target file instead of holding it in memory
+	
+	/**
+	 * Constructor for the class
+	 * @param targetFileName	target protein file to use to generate decoy
+	 */
+	public TargetDecoy(String targetFileName) {
+		this.targetFileName = targetFileName;
+	}// TargetDecoy
+	
+	/**
+	 * Generate target-decoy concatenated data file & reports about
+	 * target & decoy(using random approach).
+	 * @param targetDecoyFileName	full name (path + name) of the concatenated target decoy file to generate
+	 * @throws IOException			if writing a file fails
+	 */
+	public void targetDecoyRandom(String targetDecoyFileName) throws IOException {
+		addRandom(targetDecoyFileName);
+		getPipeline().run();
+	}//targetDecoyRandom
+	
+	/**
+	 * Generate target-decoy concatenated data file & reports about
+	 * target & decoy(using deBruijn approach).
+	 * @param targetDecoyFileName	full name(path + name) of the target decoy file to generate
+	 * @throws IOException			if writing a file fails
+	 */
+	public void targetDecoyDeBruijn(String targetDecoyFileName) throws IOException {
+		DeBruijnDecoy decoyData = addDeBruijn(targetDecoyFileName);
+		getPipeline().run();
+		writeDeBruijnReports(decoyData);
+	}//targetDecoyDeBruijn		
+
+	/**
+	 * Generate target-decoy concatenated data file & reports about
+	 * target & decoy(reverse).
+	 * @param targetDecoyFile	full name of the target decoy file to generate
+	 * @throws IOException		if writing a file fails
+	 */
+	public void targetDecoyReverse(String targetDecoyFile) throws IOException {
+		addReverse(targetDecoyFile);
+		getPipeline().run();
+	}//targetDecoyReverse	
+	
+	/**
+	 * Generate target-decoy concatenated data file & reports about
+	 * target & decoy(shuffled tryptic peptides).
+	 * @param targetDecoyFile	full name of the target decoy file to generate
+	 * @throws IOException		if writing a file fails
+	 */
+	public void targetDecoyShuffle(String targetDecoyFile) throws IOException {
+		addShuffle(targetDecoyFile);
+		getPipeline().run();
+	}//targetDecoyShuffle
+	
+	/**
+	 * Generate target-decoy concatenated data files & reports for all three approaches
+	 * (deBruijn, random, reverse) with a single pass over the target proteins.
+	 * @param deBruijnFileName	full name of the deBruijn target decoy file to generate
+	 * @param randomFileName	full name of the random target decoy file to generate
+	 * @param reverseFileName	full name of the reverse target decoy file to generate
+	 * @throws IOException		if writing a file fails
+	 */
+	public void targetDecoyAll(String deBruijnFileName, String randomFileName, String reverseFileName) throws IOException {
+		DeBruijnDecoy deBruijnData = addDeBruijn(deBruijnFileName);
+		addRandom(randomFileName);
+		addReverse(reverseFileName);
+		
+		getPipeline().run();
+		writeDeBruijnReports(deBruijnData);
+	}//targetDecoyAll
+	
+	
+	/**
+	 * Applies the seed & parallel settings to a decoy generator.
+	 * @param decoyData		a decoy generator
+	 */
+	private void configure(DecoyGenerator decoyData) {
+		if (seed != null)
+			decoyData.setSeed(seed);
+		decoyData.setParallel(parallel);
+	}//configure
+	
+	/**
+	 * Sets the master seed of all decoy generators, so that the same seed & target file
+	 * always give the same decoy data (regardless of the number of threads).
+	 * @param seed		master seed
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}//setSeed
+	
+	/**
+	 * @param parallel	true to parse the target file & generate decoy proteins on all cores
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}//setParallel
+	
+	/**
+	 * @param deBruijnK	letters per deBruijn combination (DeBruijnDecoy.MIN_K to DeBruijnDecoy.MAX_K)
+	 * @throws IllegalArgumentException if deBruijnK is out of range
+	 */
+	public void setDeBruijnK(int deBruijnK) {
+		if (deBruijnK < DeBruijnDecoy.MIN_K || deBruijnK > DeBruijnDecoy.MAX_K)
+			throw new IllegalArgumentException("k should be between " + DeBruijnDecoy.MIN_K 
+											   + " and " + DeBruijnDecoy.MAX_K + ": " + deBruijnK);
+		this.deBruijnK = deBruijnK;
+	}//setDeBruijnK
+	
+	/**
+	 * @param pseudoReverse	true to reverse each tryptic peptide (keeping its C-terminal K/R)
+	 * 						in the reverse approach, false to reverse the whole protein
+	 */
+	public void setPseudoReverse(boolean pseudoReverse) {
+		this.pseudoReverse = pseudoReverse;
+	}//setPseudoReverse
+	
+	/**
+	 * Streams the target file through parse, generate & write stages (see StreamingDecoyPipeline):
+	 * the memory used does not depend on the size of the target file, and the output files are
+	 * written while decoy proteins are generated. The target file is read once more for the
+	 * statistics (and by the deBruijn approach & the collision check), the deBruijn
+	 * dummy_added_sequence report (the whole target file) is not written.
+	 * @param streaming		true to stream the target file
+	 */
+	public void setStreaming(boolean streaming) {
+		this.streaming = streaming;
+	}//setStreaming
+	
+	/**
+	 * Checks the decoy proteins for target-decoy peptide collisions (tryptic peptides of at least
+	 * CollisionDetector.DEFAULT_MIN_LENGTH residues) and writes the collision reports of each approach.
+	 * @param collisionCheck	true to check the decoy proteins
+	 * @param maxAttempts		regeneration attempts of colliding decoy proteins (0: report only,
+	 * 							 only approaches with randomness can regenerate)
+	 * @throws IllegalArgumentException if maxAttempts < 0
+	 */
+	public void setCollisionCheck(boolean collisionCheck, int maxAttempts) {
+		if (maxAttempts < 0)
+			throw new IllegalArgumentException("The number of attempts is < 0: " + maxAttempts);
+		this.collisionCheck	   = collisionCheck;
+		this.collisionAttempts = maxAttempts;
+	}//setCollisionCheck
+	
+	/**
+	 * Adds a collision detector to the sink of an approach (if collisions are checked).
+	 * @param sink			output of the approach
+	 * @param decoyDir		report directory of the approach (ex: "../random_result/decoy/")
+	 * @param suffix		report suffix of the approach (ex: "r")
+	 */
+	private void configure(DecoySink sink, String decoyDir, String suffix) {
+		if (!collisionCheck)
+			return;
+		CollisionDetector collisionDetector = new CollisionDetector();
+		collisionDetector.setMaxAttempts(collisionAttempts);
+		sink.setCollisionDetector(collisionDetector,
+								  decoyDir + "decoy_collision_summary_" + suffix + ".csv",
+								  decoyDir + "decoy_collision_proteins_" + suffix + ".csv");
+	}//configure
+	
+	/**
+	 * Returns the pipeline holding the target data (parses the target file on first use).
+	 * @return pipeline		DecoyPipeline of the target file
+	 * @throws IOException	if reading the target file fails (streaming)
+	 */
+	private DecoyPipeline getPipeline() throws IOException {
+		if (pipeline == null && streaming)
+			pipeline = new StreamingDecoyPipeline(targetFileName, parallel ? Runtime.getRuntime().availableProcessors() : 1);
+		else if (pipeline == null)
+			pipeline = new DecoyPipeline(new DictionaryGenerator(targetFileName, parallel));
+		return pipeline;
+	}//getPipeline
+	
+	/**
+	 * Adds the random approach (and its reports) to the pipeline.
+	 * @param targetDecoyFileName	full name of the concatenated target decoy file to generate
+	 */
+	private void addRandom(String targetDecoyFileName) throws IOException {
+		DecoyPipeline pipeline = getPipeline();
+		
+		/*Instantiate class*/
+		RandomDecoy decoyData = new RandomDecoy(pipeline.getTseqDict(), pipeline.getTinfoDict());
+		configure(decoyData);
+		decoyData.setSampler(new AminoAcidSampler(pipeline.getTargetCount().toArray()));
+		
+		/*Concatenated database & reports for decoy random*/
+		DecoySink sink = new DecoySink(targetDecoyFileName, 
+								"../random_result/decoy/decoy_random.fasta",
+								"../random_result/decoy/decoy_amino_acid_count_r.csv",
+								"../random_result/decoy/decoy_aminoacid_proportion_r.csv");
+		configure(sink, "../random_result/decoy/", "r");
+		pipeline.addStrategy(decoyData, sink);
+		
+		/*Generate reports for target */
+		pipeline.writeTargetReports("../random_result/target/target_amino_acid_count_r.csv", 
+									"../random_result/target/target_amino_acid_proportion_r.csv");
+	}//addRandom
+	
+	/**
+	 * Adds the deBruijn approach (and its reports) to the pipeline.
+	 * @param targetDecoyFileName	full name of the concatenated target decoy file to generate
+	 * @return decoyData			the deBruijn generator (for the combination reports)
+	 */
+	private DeBruijnDecoy addDeBruijn(String targetDecoyFileName) throws IOException {
+		DecoyPipeline pipeline = getPipeline();
+		
+		/*Instantiate class*/
+		DeBruijnDecoy decoyData = new DeBruijnDecoy(pipeline.getTseqDict(), pipeline.getTinfoDict(), deBruijnK);
+		configure(decoyData);
+		decoyData.setSampler(new AminoAcidSampler(pipeline.getTargetCount().toArray()));
+		
+		/*Concatenated database & reports for decoy deBruijn*/
+		DecoySink sink = new DecoySink(targetDecoyFileName, 
+								"../deBruijn_result/decoy/decoy_deBrujin.fasta",
+								"../deBruijn_result/decoy/decoy_amino_acid_count_d.csv",
+								"../deBruijn_result/decoy/decoy_amino_acid_proportion_d.csv");
+		configure(sink, "../deBruijn_result/decoy/", "d");
+		pipeline.addStrategy(decoyData, sink);
+		
+		/*Generate reports for target */
+		pipeline.writeTargetReports("../deBruijn_result/target/target_amino_acid_count_d.csv", 
+									"../deBruijn_result/target/target_amino_acid_proportion_d.csv");
+		return decoyData;
+	}//addDeBruijn
+	
+	/**
+	 * Writes the deBruijn combination reports (after the pipeline has run).
+	 * @param decoyData		the deBruijn generator
+	 * @throws IOException	if a report cannot be written
+	 */
+	private void writeDeBruijnReports(DeBruijnDecoy decoyData) throws IOException {
+		if (!(pipeline instanceof StreamingDecoyPipeline))
+			Database.writeCSV("../deBruijn_result/decoy/dummy_added_sequence_d.csv", decoyData.getModifiedTarget());
+		Database.writeCSV("../deBruijn_result/decoy/decoy_combination_count_d.csv", decoyData.getCombinationCount());
+		Database.writeCSV("../deBruijn_result/decoy/decoy_combination_map_d.csv", decoyData.getCombinationMap());
+	}//writeDeBruijnReports
+	
+	/**
+	 * Adds the reverse approach (and its reports) to the pipeline.
+	 * @param targetDecoyFileName	full name of the concatenated target decoy file to generate
+	 */
+	private void addReverse(String targetDecoyFileName) throws IOException {
+		DecoyPipeline pipeline = getPipeline();
+		
+		/*Instantiate class*/
+		ReverseDecoy decoyData = new ReverseDecoy(pipeline.getTseqDict(), pipeline.getTinfoDict());
+		configure(decoyData);
+		decoyData.setPseudoReverse(pseudoReverse);
+		
+		/*Concatenated database & reports for decoy reverse*/
+		DecoySink sink = new DecoySink(targetDecoyFileName, 
+								"../reverse_result/decoy/decoy_reverse.fasta",
+								"../reverse_result/decoy/decoy_amino_acid_count_rv.csv",
+								"../reverse_result/decoy/decoy_amino_acid_proportion_rv.csv");
+		configure(sink, "../reverse_result/decoy/", "rv");
+		pipeline.addStrategy(decoyData, sink);
+		
+		/*Generate reports for target */
+		pipeline.writeTargetReports("../reverse_result/target/target_amino_acid_count_rv.csv", 
+									"../reverse_result/target/target_amino_acid_proportion_rv.csv");
+	}//addReverse
+	
+	/**
+	 * Adds the shuffle approach (and its reports) to the pipeline.
+	 * @param targetDecoyFileName	full name of the concatenated target decoy file to generate
+	 */
+	private void addShuffle(String targetDecoyFileName) throws IOException {
+		DecoyPipeline pipeline = getPipeline();
+		
+		/*Instantiate class*/
+		ShuffleDecoy decoyData = new ShuffleDecoy(pipeline.getTseqDict(), pipeline.getTinfoDict());
+		configure(decoyData);
+		
+		/*Concatenated database & reports for decoy shuffle*/
+		DecoySink sink = new DecoySink(targetDecoyFileName, 
+								"../shuffle_result/decoy/decoy_shuffle.fasta",
+								"../shuffle_result/decoy/decoy_amino_acid_count_s.csv",
+								"../shuffle_result/decoy/decoy_amino_acid_proportion_s.csv");
+		configure(sink, "../shuffle_result/decoy/", "s");
+		pipeline.addStrategy(decoyData, sink);
+		
+		/*Generate reports for target */
+		pipeline.writeTargetReports("../shuffle_result/target/target_amino_acid_count_s.csv", 
+									"../shuffle_result/target/target_amino_acid_proportion_s.csv");
+	}//addShuffle
+
+}//end of class
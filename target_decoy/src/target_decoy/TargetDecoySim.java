@@ -1,31 +1,38 @@
-package target_decoy;
-
-
-
-/**
- * Generates target decoy concatenated data file.
- * @author junghyey
- *
- */
-
-public class TargetDecoySim {
-
-	/*main method starts here*/
-	public static void main(String[] args) {
-
-		TargetDecoy targetDecoySim = new TargetDecoy("human_swiss_prot_target.fasta");
-
-		targetDecoySim.targetDecoyDeBruijn("../deBruijn_result/concat_target_decoy_deBruijn.fasta");
-		targetDecoySim.targetDecoyRandom("../random_result/concat_target_decoy_random.fasta");
-		targetDecoySim.targetDecoyReverse("../reverse_result/concat_target_decoy_reverse.fasta");
-
-
-	
-
-	
-	}//main
-
-}//end of class
-
-
-
+package target_decoy;
+
+import java.io.IOException;
+
+
+/**
+ * Generates target decoy concatenated data file.
+ * @author junghyey
+ *
+ */
+
+public class TargetDecoySim {
+
+	/*main method starts here*/
+	public static void main(String[] args) throws IOException {
+
+		TargetDecoy targetDecoySim = new TargetDecoy("human_swiss_prot_target.fasta");
+		targetDecoySim.setParallel(true);
+		
+		/*Optional master seed (first argument) for reproducible decoy data*/
+		if (args.length > 0)
+			targetDecoySim.setSeed(Long.parseLong(args[0]));
+
+		/*All three approaches share a single pass over the target proteins*/
+		targetDecoySim.targetDecoyAll("../deBruijn_result/concat_target_decoy_deBruijn.fasta",
+									  "../random_result/concat_target_decoy_random.fasta",
+									  "../reverse_result/concat_target_decoy_reverse.fasta");
+
+
+	
+
+	
+	}//main
+
+}//end of class
+
+
+
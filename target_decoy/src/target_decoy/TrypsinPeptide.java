@@ -1,146 +1,183 @@
-package target_decoy;
-
-import java.util.ArrayList;
-import java.util.Map;
-import java.util.Set;
-
-/**
- * Represents peptide(s) created using Trypsin
- * @author Hyeyun Jung
- */
-
-public class TrypsinPeptide extends Peptide {
-    
-    /**
-     * 
-     * @param enzyme    Trypsin
-     * @param seqDict   {@inheritDoc}}
-     */
-    public TrypsinPeptide(String enzyme, Map <String, String> seqDict){
-       super(enzyme,seqDict);
-
-    }// Peptide
-
-
-    /**
-     * {@inheritDoc}}
-     */
-    @Override
-    public ArrayList<String> cleaveSingleProtein(String proteinID, String proteinSeq){
-
-        
-        StringBuilder peptideBuilder = new StringBuilder();
-        char [] sequence = proteinSeq.toCharArray(); 
-        int length = proteinSeq.length();
-        ArrayList<String> peptides = new ArrayList<String>();
-
-        /*Generate peptides*/
-        for(int i = 0; i < length; i++)
-        {
-            peptideBuilder.append(sequence[i]);
-
-            /*Cleaves c-termius of K & R amino acid */
-            if (sequence[i] == 'K' || sequence[i] == 'R'){
-                peptides.add(peptideBuilder.toString()); //add a peptide to the list
-                peptideBuilder.setLength(0);
-            }// if K or R
-
-        }// for int i
-
-        /*Add the uncleaved peptide (no ending K or R) */
-        if(peptideBuilder.length() != 0)
-            peptides.add(peptideBuilder.toString());
-
-        /* Confirm postcondition: If you take all the peptides' amino acid sequences 
-         *                        and append altogether, we get the original protein sequence 
-         *                        (i.e. proteinSeq).
-		 */
-        peptideBuilder.setLength(0);
-        for(String peptide: peptides){
-            peptideBuilder.append(peptide);
-        }//for
-        assert(proteinSeq.equals(peptideBuilder.toString()));
-
-        return peptides;
-
-    }// cleaveProtein
-
-    
-    /**
-     * {@inheritDoc}}
-     */
-    @Override
-    public void cleaveAllProtein(){
-        
-        Set <String> idSet = seqDict.keySet();
-        
-        for (String proteinID : idSet){ 
-            peptideDict.put(proteinID, cleaveSingleProtein(proteinID, seqDict.get(proteinID)));
-        }
-        
-    }//cleaveAllProtein()
-   
-    
-    /**
-     * {@inheritDoc}}
-     */
-
-    @Override
-    public void countLength(){
-
-        Set<String> idSet = peptideDict.keySet();
-
-        /*Get peptide lengths & count */
-        for (String proteinID: idSet){
-            /*Calculate the length of the chosen peptide */
-            for (String peptide: peptideDict.get(proteinID)){
-                /*Accumulate count */
-                if (peptideLengthDict.get(peptide.length()) == null){
-                    peptideLengthDict.put(peptide.length(), 1);
-                }
-                else
-                    peptideLengthDict.put(peptide.length(), peptideLengthDict.get(peptide.length()) + 1);
-            }//for peptide
-        }//for proteinID
-         
-    }//countLength
-
-
-    
-    /**
-     * {@inheritDoc}}
-     */
-    @Override
-    public void calculateMass(ArrayList<String> peptideList){
-    
-        
-        for (String peptide: peptideList){
-            double mass = 0.0;
-            /*Calculate the mass of the chosen peptide */
-            for (int i = 0; i < peptide.length(); i++){
-                mass += getAminoMass(peptide.charAt(i));
-            }//for i
-            /*Accumulate the count */
-            if(peptideMassDict.get(mass) == null)
-                peptideMassDict.put(mass, 1);
-            else
-                peptideMassDict.put(mass, peptideMassDict.get(mass) + 1);
-        }//for peptide
-     
-    }//calculateMass
-
-    
-    /**
-     * {@inheritDoc}}
-     */
-    @Override
-    public void countAllMass(){
-        Set <String> idSet = seqDict.keySet();
-        for (String proteinID: idSet){
-            calculateMass(peptideDict.get(proteinID));
-        }//for proteinID
-    }//calculateAllMass
-
-  
-
-}//end of class
+package target_decoy;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Represents peptide(s) created using Trypsin
+ * (the digestion rules come from the digester: other proteases, missed cleavages...etc.. via setDigester)
+ * @author Hyeyun Jung
+ */
+
+public class TrypsinPeptide extends Peptide {
+
+    private double[] prefixMass;  //prefix masses of the protein being counted (reused, see MassTable)
+    private int[] prefixUnknown;  //prefix counts of its unknown residues
+    
+    /**
+     * 
+     * @param enzyme    Trypsin
+     * @param seqDict   {@inheritDoc}}
+     */
+    public TrypsinPeptide(String enzyme, Map <String, String> seqDict){
+       super(enzyme,seqDict);
+
+    }// Peptide
+
+    /**
+     * Constructor for the class (trypsin with the proline rule)
+     * @param seqDict   {@inheritDoc}}
+     */
+    public TrypsinPeptide(Map <String, String> seqDict){
+       this(Protease.TRYPSIN.getName(), seqDict);
+    }// Peptide
+
+
+    /**
+     * {@inheritDoc}}
+     */
+    @Override
+    public ArrayList<String> cleaveSingleProtein(String proteinID, String proteinSeq){
+
+        ArrayList<String> peptides = new ArrayList<String>();
+
+        /*Generate peptides: cleaves c-termius of K & R amino acid (not before P, see digester) */
+        digester.digest(0, proteinSeq, (proteinIndex, start, end) -> peptides.add(proteinSeq.substring(start, end)));
+
+        /* Confirm postcondition: If you take all the peptides' amino acid sequences 
+         *                        and append altogether, we get the original protein sequence 
+         *                        (i.e. proteinSeq). (No missed cleavage, no filter only)
+		 */
+        if (digester.isPartitioning()) {
+            StringBuilder peptideBuilder = new StringBuilder();
+            for(String peptide: peptides){
+                peptideBuilder.append(peptide);
+            }//for
+            assert(proteinSeq.equals(peptideBuilder.toString()));
+        }//if
+
+        return peptides;
+
+    }// cleaveProtein
+
+    
+    /**
+     * {@inheritDoc}}
+     */
+    @Override
+    public void cleaveAllProtein(){
+        
+        Set <String> idSet = seqDict.keySet();
+        
+        for (String proteinID : idSet){ 
+            peptideDict.put(proteinID, cleaveSingleProtein(proteinID, seqDict.get(proteinID)));
+        }
+        
+    }//cleaveAllProtein()
+   
+    
+    /**
+     * {@inheritDoc}}
+     */
+
+    @Override
+    public void countLength(){
+
+        Set<String> idSet = peptideDict.keySet();
+
+        /*Get peptide lengths & count */
+        for (String proteinID: idSet){
+            /*Calculate the length of the chosen peptide */
+            for (String peptide: peptideDict.get(proteinID)){
+                /*Accumulate count */
+                if (peptideLengthDict.get(peptide.length()) == null){
+                    peptideLengthDict.put(peptide.length(), 1);
+                }
+                else
+                    peptideLengthDict.put(peptide.length(), peptideLengthDict.get(peptide.length()) + 1);
+            }//for peptide
+        }//for proteinID
+         
+    }//countLength
+
+
+    
+    /**
+     * {@inheritDoc}}
+     */
+    @Override
+    public void calculateMass(ArrayList<String> peptideList){
+    
+        
+        for (String peptide: peptideList){
+            /*Calculate the mass of the chosen peptide (residues + water), peptides with an unknown residue have no mass */
+            double mass = massTable.getPeptideMass(peptide);
+            if (Double.isNaN(mass))
+                continue;
+
+            /*Accumulate the count (of every modified form) */
+            if (modifications == null)
+                countMass(mass);
+            else
+                modifications.enumerate(peptide, 0, peptide.length(), mass, (variantMass, modCount) -> countMass(variantMass));
+        }//for peptide
+     
+    }//calculateMass
+
+    /**
+     * Helper for calculateMass: adds a peptide form to peptideMassDict
+     * (masses are rounded so equal masses share a key).
+     * @param mass  neutral mass of the peptide form
+     */
+    private void countMass(double mass){
+        peptideMassDict.merge(MassTable.round(mass), 1, Integer::sum);
+        variantCount++;
+    }//countMass
+
+    
+    /**
+     * {@inheritDoc}}
+     * Digests every protein once (same digester as cleaveAllProtein, peptideDict is not read):
+     * peptide masses come from the prefix masses of the protein (O(1) per peptide) and the modified
+     * forms are enumerated on the protein sequence, so no peptide String is created.
+     */
+    @Override
+    public void countAllMass(){
+        if (seqDict instanceof ProteinStore) {
+            /*Walk the store by index (no proteinID lookup, no sequence String) */
+            ProteinStore store = (ProteinStore) seqDict;
+            for (int protein = 0; protein < store.size(); protein++)
+                countProteinMass(store.getResidues(protein));
+        }//if
+        else {
+            for (String proteinSeq: seqDict.values())
+                countProteinMass(proteinSeq);
+        }//else
+    }//calculateAllMass
+
+    /**
+     * Helper for countAllMass: counts the masses of the peptides (and of their modified forms) of a protein.
+     * @param proteinSeq    protein amino acid sequence
+     */
+    private void countProteinMass(CharSequence proteinSeq){
+        double[] prefix = prefixMass = massTable.fillPrefixMasses(proteinSeq, prefixMass);
+        int[] unknown = prefixUnknown = massTable.fillUnknownCounts(proteinSeq, prefixUnknown);
+
+        digester.digest(0, proteinSeq, (proteinIndex, start, end) -> {
+            /*Mass of the peptide (residues + water), peptides with an unknown residue have no mass */
+            double mass = massTable.getPeptideMass(prefix, unknown, start, end);
+            if (Double.isNaN(mass))
+                return;
+
+            /*Accumulate the count (of every modified form, enumerated during digestion) */
+            if (modifications == null)
+                countMass(mass);
+            else
+                modifications.enumerate(proteinSeq, start, end, mass, (variantMass, modCount) -> countMass(variantMass));
+        });
+    }//countProteinMass
+
+  
+
+}//end of class